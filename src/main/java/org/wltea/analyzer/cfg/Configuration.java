@@ -28,12 +28,14 @@ import java.util.List;
 /**
  *
  * 配置管理类接口
+ * set方法只修改当前配置对象，不影响其他配置对象；DefaultConfig.getInstance每次返回配置文件的一份副本
  *
  */
 public interface Configuration {
 
     /**
      * 返回useSmart标志位
+     * 分词器未指定切分策略时使用的默认策略，切分策略由各分词器各自指定
      * useSmart =true ，分词器使用智能切分策略， =false则使用细粒度切分
      * @return useSmart
      */
@@ -41,7 +43,7 @@ public interface Configuration {
 
     /**
      * 设置useSmart标志位
-     * useSmart =true ，分词器使用智能切分策略， =false则使用细粒度切分
+     * 影响此后以该配置对象创建、且未指定切分策略的分词器
      * @param useSmart
      */
     void setUseSmart(boolean useSmart);
@@ -65,8 +67,7 @@ public interface Configuration {
     long getRemoteExtDictRefreshInterval();
 
     /**
-     * 设置远程扩展词典刷新的时间间隔(单位:秒)
-     * @return
+     * 从配置文件中读取远程扩展词典刷新的时间间隔(单位:秒)
      */
     void setRemoteExtDictRefreshInterval();
 
@@ -77,6 +78,29 @@ public interface Configuration {
      */
     String getMainDictionary();
 
+    /**
+     * 获取预编译的二进制主词典文件路径
+     * 配置后将直接映射该文件，不再加载文本主词典和扩展词典
+     * @return String 二进制主词典文件路径，未配置返回null
+     */
+    String getMainDictionaryBinary();
+
+    /**
+     * 获取主词典的存储格式
+     * double_array为双数组Trie(默认)，fst为Lucene FST；
+     * 配置了二进制主词典文件时，文件也需为对应的格式。
+     * fst格式下运行期增删的词条(如远程扩展词典)先记录在覆盖Trie中，累计超过一万条时合并进FST重新编译，
+     * 重新编译的耗时与主词典大小成正比
+     * @return String 主词典存储格式
+     */
+    String getMainDictionaryFormat();
+
+    /**
+     * 设置主词典的存储格式，在以该配置对象加载词典前设置
+     * @param mainDictionaryFormat double_array或fst，为null时使用默认格式double_array
+     */
+    void setMainDictionaryFormat(String mainDictionaryFormat);
+
     /**
      * 获取中文量词词典路径
      * @return String 量词词典路径
@@ -123,11 +147,39 @@ public interface Configuration {
      */
     boolean isEnableLowercase();
 
+    /**
+     * 从配置文件中读取enable_lower_case配置项的值
+     */
     void setEnableLowercase();
 
+    /**
+     * 设置是否启用自动大写转小写
+     * @param enableLowercase
+     */
     void setEnableLowercase(boolean enableLowercase);
 
+    /**
+     * 是否使用Aho-Corasick自动机切分中文词语
+     *
+     * @return
+     */
+    boolean isEnableAhoCorasick();
+
+    /**
+     * 设置是否使用Aho-Corasick自动机切分中文词语
+     * @param enableAhoCorasick
+     */
+    void setEnableAhoCorasick(boolean enableAhoCorasick);
+
+    /**
+     * 设置是否启用远程词典加载，在以该配置对象加载词典前设置
+     * @param enableRemoteDict
+     */
     void setEnableRemoteDict(boolean enableRemoteDict);
 
+    /**
+     * 设置远程扩展词典刷新的时间间隔(单位:秒)，在以该配置对象加载词典前设置
+     * @param remoteExtDictRefreshInterval
+     */
     void setRemoteExtDictRefreshInterval(long remoteExtDictRefreshInterval);
 }
@@ -26,8 +26,10 @@ package org.wltea.analyzer.cfg;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
 
@@ -35,6 +37,9 @@ import java.util.Properties;
  * Configuration 默认实现
  * 2012-5-8
  *
+ * IKAnalyzer.cfg.xml只在第一次调用getInstance时解析一次，解析结果不可修改；
+ * getInstance每次返回解析结果的一份副本，副本的set方法只影响该副本，不会波及其他分词器。
+ * 需要不同的词典路径时，通过builder()在配置文件的基础上构建新的配置对象。
  */
 public class DefaultConfig implements Configuration {
     private static final Logger log = LogManager.getLogger(DefaultConfig.class);
@@ -42,6 +47,11 @@ public class DefaultConfig implements Configuration {
     /**远程扩展词典自动刷新的时间间隔,单位：秒,默认值为60*/
     public static final long DEFAULT_REMOTE_EXT_DICT_REFRESH_INTERVAL = 60L;
 
+    /**主词典存储格式：双数组Trie*/
+    public static final String MAIN_DICT_FORMAT_DOUBLE_ARRAY = "double_array";
+    /**主词典存储格式：Lucene FST*/
+    public static final String MAIN_DICT_FORMAT_FST = "fst";
+
     /*
      * 分词器默认字典路径
      */
@@ -59,6 +69,10 @@ public class DefaultConfig implements Configuration {
     private static final String EXT_DICT = "ext_dict";
     //配置属性——远程扩展字典
     private final static String REMOTE_EXT_DICT = "remote_ext_dict";
+    //配置属性——预编译的二进制主词典文件
+    private static final String MAIN_DICT_BINARY = "main_dict_binary";
+    //配置属性——主词典存储格式
+    private static final String MAIN_DICT_FORMAT = "main_dict_format";
     //配置属性——扩展停用词词典
     private static final String EXT_STOPWORD_DICT = "ext_stopwords";
     //配置属性——远程扩展停用词词典
@@ -67,13 +81,19 @@ public class DefaultConfig implements Configuration {
     //配置属性——是否启用远程扩展词典
     private static final String ENABLE_LOWER_CASE = "enable_lower_case";
 
+    //配置属性——是否使用Aho-Corasick自动机切分中文词语
+    private static final String ENABLE_AHO_CORASICK = "enable_aho_corasick";
+
     //配置属性——是否启用远程扩展词典
     private static final String ENABLE_REMOTE_DICT = "enable_remote_dict";
 
     //配置属性——远程扩展词典自动刷新时间间隔，单位：秒，默认60s
     private static final String REMOTE_EXT_DICT_REFRESH_INTERVAL = "remote_ext_dict_refresh_interval";
 
-    private Properties props;
+    /**
+     * 配置文件的解析结果，无参的set方法据此恢复配置文件中的值
+     */
+    private final Settings settings;
 
     /*
      * 是否使用smart方式分词
@@ -85,6 +105,16 @@ public class DefaultConfig implements Configuration {
      */
     private boolean enableLowercase;
 
+    /**
+     * 是否使用Aho-Corasick自动机切分中文词语
+     */
+    private boolean enableAhoCorasick;
+
+    /**
+     * 主词典存储格式
+     */
+    private String mainDictionaryFormat;
+
     /**
      * 是否启用远程词典加载
      */
@@ -95,29 +125,117 @@ public class DefaultConfig implements Configuration {
      */
     private long remoteExtDictRefreshInterval;
 
+    /*
+     * 主词典、量词词典、英文单位词典路径
+     */
+    private final String mainDictionary;
+    private final String quantifierDictionary;
+    private final String englishUnitDictionary;
+
+    /**
+     * 预编译的二进制主词典文件路径，未配置为null
+     */
+    private final String mainDictionaryBinary;
+
+    /*
+     * 扩展词典、扩展停用词词典、远程扩展词典及远程扩展停用词词典路径
+     */
+    private final List<String> extDictionarys;
+    private final List<String> extStopWordDictionarys;
+    private final List<String> remoteExtDictionarys;
+    private final List<String> remoteExtStopWordDictionarys;
+
+    /**
+     * 延迟解析配置文件，第一次调用getInstance时解析，类加载机制保证只解析一次
+     */
+    private static final class InstanceHolder {
+        private static final Settings SETTINGS = new Settings(loadIKConfig());
+    }
+
     /**
-     * 返回单例
-     * @return Configuration单例
+     * 返回配置文件的配置对象
+     * 配置文件只解析一次，每次调用返回解析结果的一份副本，修改返回的对象不影响其他分词器
+     * @return Configuration
      */
     public static Configuration getInstance() {
-        return new DefaultConfig();
+        return new DefaultConfig(InstanceHolder.SETTINGS);
     }
 
     /**
-     * 初始化配置文件
+     * 以配置文件中的配置项为初始值，构建自定义的配置对象
+     * @return 配置构建器
      */
-    private DefaultConfig() {
-        loadIKConfig();
+    public static Builder builder() {
+        return new Builder(new DefaultConfig(InstanceHolder.SETTINGS));
+    }
+
+    /**
+     * 从IKAnalyzer.cfg.xml格式的配置文件构建配置对象，如Solr core配置目录中的配置文件
+     * 其中的词典路径由加载词典的一方解析，见Dictionary.shared
+     * @param inputStream 配置文件输入流，由调用方关闭
+     * @return 配置对象
+     * @throws IOException 读取或解析配置文件异常
+     */
+    public static DefaultConfig load(InputStream inputStream) throws IOException {
+        Properties props = new Properties();
+        props.loadFromXML(inputStream);
+        return new DefaultConfig(new Settings(props));
+    }
+
+    /**
+     * 以配置文件的解析结果初始化配置项
+     */
+    private DefaultConfig(Settings settings) {
+        this.settings = settings;
+        this.useSmart = false;
+        this.enableLowercase = settings.enableLowercase;
+        this.enableAhoCorasick = settings.enableAhoCorasick;
+        this.mainDictionaryFormat = settings.mainDictionaryFormat;
+        this.enableRemoteDict = settings.enableRemoteDict;
+        this.remoteExtDictRefreshInterval = settings.remoteExtDictRefreshInterval;
+        this.mainDictionary = PATH_DIC_MAIN;
+        this.quantifierDictionary = PATH_DIC_QUANTIFIER;
+        this.englishUnitDictionary = PATH_DIC_EN_UNIT;
+        this.mainDictionaryBinary = settings.mainDictionaryBinary;
+        this.extDictionarys = settings.extDictionarys;
+        this.extStopWordDictionarys = settings.extStopWordDictionarys;
+        this.remoteExtDictionarys = settings.remoteExtDictionarys;
+        this.remoteExtStopWordDictionarys = settings.remoteExtStopWordDictionarys;
+    }
+
+    /**
+     * 以构建器中的配置项初始化
+     */
+    private DefaultConfig(Builder builder) {
+        this.settings = builder.settings;
+        this.useSmart = builder.useSmart;
+        this.enableLowercase = builder.enableLowercase;
+        this.enableAhoCorasick = builder.enableAhoCorasick;
+        this.mainDictionaryFormat = builder.mainDictionaryFormat;
+        this.enableRemoteDict = builder.enableRemoteDict;
+        this.remoteExtDictRefreshInterval = builder.remoteExtDictRefreshInterval;
+        this.mainDictionary = builder.mainDictionary;
+        this.quantifierDictionary = builder.quantifierDictionary;
+        this.englishUnitDictionary = builder.englishUnitDictionary;
+        this.mainDictionaryBinary = builder.mainDictionaryBinary;
+        this.extDictionarys = builder.extDictionarys;
+        this.extStopWordDictionarys = builder.extStopWordDictionarys;
+        this.remoteExtDictionarys = builder.remoteExtDictionarys;
+        this.remoteExtStopWordDictionarys = builder.remoteExtStopWordDictionarys;
+    }
 
-        this.setEnableLowercase();
-        this.setEnableRemoteDict();
-        this.setRemoteExtDictRefreshInterval();
+    /**
+     * 以当前配置项为初始值构建新的配置对象
+     * @return 配置构建器
+     */
+    public Builder toBuilder() {
+        return new Builder(this);
     }
 
 
     /**
      * 返回useSmart标志位
-     * useSmart =true ，分词器使用智能切分策略， =false则使用细粒度切分
+     * 分词器未指定切分策略时使用该值，配置文件中的配置对象为false，即细粒度切分
      * @return useSmart
      */
     @Override
@@ -125,12 +243,6 @@ public class DefaultConfig implements Configuration {
         return useSmart;
     }
 
-    /**
-     * 设置useSmart标志位
-     * useSmart =true ，分词器使用智能切分策略， =false则使用细粒度切分
-     *
-     * @param useSmart
-     */
     @Override
     public void setUseSmart(boolean useSmart) {
         this.useSmart = useSmart;
@@ -148,15 +260,7 @@ public class DefaultConfig implements Configuration {
 
     @Override
     public void setEnableLowercase() {
-        String enableLowerCaseStr = props.getProperty(ENABLE_LOWER_CASE);
-        //若不配置，则默认值为true
-        if (null == enableLowerCaseStr || "".equals(enableLowerCaseStr) || "".equalsIgnoreCase(enableLowerCaseStr.trim())) {
-            this.enableLowercase = true;
-        } else {
-            this.enableLowercase = ("true".equalsIgnoreCase(enableLowerCaseStr) || "yes".equalsIgnoreCase(enableLowerCaseStr) ||
-                    "on".equalsIgnoreCase(enableLowerCaseStr) || "ok".equalsIgnoreCase(enableLowerCaseStr) ||
-                    "1".equalsIgnoreCase(enableLowerCaseStr));
-        }
+        this.enableLowercase = settings.enableLowercase;
     }
 
     @Override
@@ -165,35 +269,38 @@ public class DefaultConfig implements Configuration {
     }
 
     /**
-     * 设置是否启用远程词典加载
+     * 是否使用Aho-Corasick自动机切分中文词语
      *
      * @return
      */
     @Override
-    public boolean enableRemoteDict() {
-        return enableRemoteDict;
+    public boolean isEnableAhoCorasick() {
+        return enableAhoCorasick;
     }
 
     @Override
-    public void setEnableRemoteDict(boolean enableRemoteDict) {
-        this.enableRemoteDict = enableRemoteDict;
+    public void setEnableAhoCorasick(boolean enableAhoCorasick) {
+        this.enableAhoCorasick = enableAhoCorasick;
     }
 
+    /**
+     * 设置是否启用远程词典加载
+     *
+     * @return
+     */
     @Override
-    public void setRemoteExtDictRefreshInterval(long remoteExtDictRefreshInterval) {
-        this.remoteExtDictRefreshInterval = remoteExtDictRefreshInterval;
+    public boolean enableRemoteDict() {
+        return enableRemoteDict;
     }
 
-    /**
-     * 从配置文件中读取enableRemoteDict配置项的值
-     */
     @Override
     public void setEnableRemoteDict() {
-        String enableRemoteDict = props.getProperty(ENABLE_REMOTE_DICT);
-        this.enableRemoteDict = (null != enableRemoteDict && !"".equals(enableRemoteDict) &&
-                ("true".equalsIgnoreCase(enableRemoteDict) || "yes".equalsIgnoreCase(enableRemoteDict) ||
-                        "on".equalsIgnoreCase(enableRemoteDict) || "ok".equalsIgnoreCase(enableRemoteDict) ||
-                        "1".equalsIgnoreCase(enableRemoteDict)));
+        this.enableRemoteDict = settings.enableRemoteDict;
+    }
+
+    @Override
+    public void setEnableRemoteDict(boolean enableRemoteDict) {
+        this.enableRemoteDict = enableRemoteDict;
     }
 
     /**
@@ -208,18 +315,12 @@ public class DefaultConfig implements Configuration {
 
     @Override
     public void setRemoteExtDictRefreshInterval() {
-        String remoteExtDictRefreshInterval = props.getProperty(REMOTE_EXT_DICT_REFRESH_INTERVAL);
-        if(null == remoteExtDictRefreshInterval || "".equalsIgnoreCase(remoteExtDictRefreshInterval)) {
-            this.remoteExtDictRefreshInterval = DEFAULT_REMOTE_EXT_DICT_REFRESH_INTERVAL;
-        } else {
-            try {
-                this.remoteExtDictRefreshInterval = Long.parseLong(remoteExtDictRefreshInterval);
-            } catch (Exception e) {
-                log.error("The configured parameter:[{}] value:[{}] cannot be converted to an Long type, it will be set to default value:[{}]",
-                        REMOTE_EXT_DICT_REFRESH_INTERVAL, remoteExtDictRefreshInterval, DEFAULT_REMOTE_EXT_DICT_REFRESH_INTERVAL);
-                this.remoteExtDictRefreshInterval = DEFAULT_REMOTE_EXT_DICT_REFRESH_INTERVAL;
-            }
-        }
+        this.remoteExtDictRefreshInterval = settings.remoteExtDictRefreshInterval;
+    }
+
+    @Override
+    public void setRemoteExtDictRefreshInterval(long remoteExtDictRefreshInterval) {
+        this.remoteExtDictRefreshInterval = remoteExtDictRefreshInterval;
     }
 
     /**
@@ -229,7 +330,32 @@ public class DefaultConfig implements Configuration {
      */
     @Override
     public String getMainDictionary() {
-        return PATH_DIC_MAIN;
+        return mainDictionary;
+    }
+
+    /**
+     * 获取预编译的二进制主词典文件路径
+     *
+     * @return String 二进制主词典文件路径，未配置返回null
+     */
+    @Override
+    public String getMainDictionaryBinary() {
+        return mainDictionaryBinary;
+    }
+
+    /**
+     * 获取主词典的存储格式
+     *
+     * @return String 主词典存储格式，未配置返回double_array
+     */
+    @Override
+    public String getMainDictionaryFormat() {
+        return mainDictionaryFormat;
+    }
+
+    @Override
+    public void setMainDictionaryFormat(String mainDictionaryFormat) {
+        this.mainDictionaryFormat = normalizeMainDictionaryFormat(mainDictionaryFormat);
     }
 
     /**
@@ -238,7 +364,7 @@ public class DefaultConfig implements Configuration {
      */
     @Override
     public String getQuantifierDicionary() {
-        return PATH_DIC_QUANTIFIER;
+        return quantifierDictionary;
     }
 
     /**
@@ -247,7 +373,7 @@ public class DefaultConfig implements Configuration {
      */
     @Override
     public String getEnglishUnitDicionary() {
-        return PATH_DIC_EN_UNIT;
+        return englishUnitDictionary;
     }
 
     /**
@@ -256,20 +382,7 @@ public class DefaultConfig implements Configuration {
      */
     @Override
     public List<String> getExtDictionarys() {
-        List<String> extDictFiles = new ArrayList<String>(2);
-        String extDictCfg = props.getProperty(EXT_DICT);
-        if (extDictCfg != null) {
-            //使用;分割多个扩展字典配置
-            String[] filePaths = extDictCfg.split(";");
-            if (filePaths != null) {
-                for (String filePath : filePaths) {
-                    if (filePath != null && !"".equals(filePath.trim())) {
-                        extDictFiles.add(filePath.trim());
-                    }
-                }
-            }
-        }
-        return extDictFiles;
+        return extDictionarys;
     }
 
     /**
@@ -278,18 +391,7 @@ public class DefaultConfig implements Configuration {
      */
     @Override
     public List<String> getRemoteExtDictionarys() {
-        List<String> remoteExtDictFiles = new ArrayList<String>(2);
-        String remoteExtDictCfg = props.getProperty(REMOTE_EXT_DICT);
-        if (remoteExtDictCfg != null) {
-            String[] filePaths = remoteExtDictCfg.split(";");
-            for (String filePath : filePaths) {
-                if (filePath != null && !"".equals(filePath.trim())) {
-                    remoteExtDictFiles.add(filePath);
-
-                }
-            }
-        }
-        return remoteExtDictFiles;
+        return remoteExtDictionarys;
     }
 
     /**
@@ -298,17 +400,7 @@ public class DefaultConfig implements Configuration {
      */
     @Override
     public List<String> getRemoteExtStopWordDictionarys() {
-        List<String> remoteExtStopWordDictFiles = new ArrayList<String>(2);
-        String remoteExtStopWordDictCfg = props.getProperty(REMOTE_EXT_STOPWORD_DICT);
-        if (remoteExtStopWordDictCfg != null) {
-            String[] filePaths = remoteExtStopWordDictCfg.split(";");
-            for (String filePath : filePaths) {
-                if (filePath != null && !"".equals(filePath.trim())) {
-                    remoteExtStopWordDictFiles.add(filePath);
-                }
-            }
-        }
-        return remoteExtStopWordDictFiles;
+        return remoteExtStopWordDictionarys;
     }
 
 
@@ -317,34 +409,278 @@ public class DefaultConfig implements Configuration {
      * @return List<String> 相对类加载器的路径
      */
     public List<String> getExtStopWordDictionarys() {
-        List<String> extStopWordDictFiles = new ArrayList<String>(2);
-        String extStopWordDictCfg = props.getProperty(EXT_STOPWORD_DICT);
-        if (extStopWordDictCfg != null) {
-            //使用;分割多个扩展字典配置
-            String[] filePaths = extStopWordDictCfg.split(";");
-            if (filePaths != null) {
-                for (String filePath : filePaths) {
-                    if (filePath != null && !"".equals(filePath.trim())) {
-                        extStopWordDictFiles.add(filePath.trim());
-                    }
+        return extStopWordDictionarys;
+    }
+
+    /**
+     * 读取enable_lower_case配置项，若不配置，则默认值为true
+     */
+    private static boolean parseEnableLowercase(Properties props) {
+        String enableLowerCaseStr = props.getProperty(ENABLE_LOWER_CASE);
+        if (null == enableLowerCaseStr || "".equals(enableLowerCaseStr) || "".equalsIgnoreCase(enableLowerCaseStr.trim())) {
+            return true;
+        }
+        return parseSwitch(enableLowerCaseStr);
+    }
+
+    /**
+     * 解析开关型配置项，未配置为false
+     */
+    private static boolean parseSwitch(String value) {
+        return (null != value && !"".equals(value) &&
+                ("true".equalsIgnoreCase(value) || "yes".equalsIgnoreCase(value) ||
+                        "on".equalsIgnoreCase(value) || "ok".equalsIgnoreCase(value) ||
+                        "1".equalsIgnoreCase(value)));
+    }
+
+    private static String parseMainDictionaryBinary(Properties props) {
+        String mainDictBinary = props.getProperty(MAIN_DICT_BINARY);
+        if (mainDictBinary == null || "".equals(mainDictBinary.trim())) {
+            return null;
+        }
+        return mainDictBinary.trim();
+    }
+
+    /**
+     * 规范化主词典存储格式，未配置为double_array
+     */
+    private static String normalizeMainDictionaryFormat(String mainDictFormat) {
+        if (mainDictFormat == null || "".equals(mainDictFormat.trim())) {
+            return MAIN_DICT_FORMAT_DOUBLE_ARRAY;
+        }
+        return mainDictFormat.trim().toLowerCase();
+    }
+
+    private static long parseRemoteExtDictRefreshInterval(Properties props) {
+        String remoteExtDictRefreshInterval = props.getProperty(REMOTE_EXT_DICT_REFRESH_INTERVAL);
+        if(null == remoteExtDictRefreshInterval || "".equalsIgnoreCase(remoteExtDictRefreshInterval)) {
+            return DEFAULT_REMOTE_EXT_DICT_REFRESH_INTERVAL;
+        }
+        try {
+            return Long.parseLong(remoteExtDictRefreshInterval);
+        } catch (Exception e) {
+            log.error("The configured parameter:[{}] value:[{}] cannot be converted to an Long type, it will be set to default value:[{}]",
+                    REMOTE_EXT_DICT_REFRESH_INTERVAL, remoteExtDictRefreshInterval, DEFAULT_REMOTE_EXT_DICT_REFRESH_INTERVAL);
+            return DEFAULT_REMOTE_EXT_DICT_REFRESH_INTERVAL;
+        }
+    }
+
+    /**
+     * 使用;分割多个词典配置
+     * @param trim 本地词典路径去除首尾空白，远程词典URL按原样保留
+     * @return 不可修改的路径列表
+     */
+    private static List<String> parsePaths(String pathsCfg, boolean trim) {
+        List<String> paths = new ArrayList<String>(2);
+        if (pathsCfg != null) {
+            String[] filePaths = pathsCfg.split(";");
+            for (String filePath : filePaths) {
+                if (filePath != null && !"".equals(filePath.trim())) {
+                    paths.add(trim ? filePath.trim() : filePath);
                 }
             }
         }
-        return extStopWordDictFiles;
+        return Collections.unmodifiableList(paths);
     }
 
     /**
      * 加载 IKAnalyzer.cfg.xml
      */
-    private void loadIKConfig() {
-        this.props = new Properties();
-        InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream(FILE_NAME);
+    private static Properties loadIKConfig() {
+        Properties props = new Properties();
+        InputStream inputStream = DefaultConfig.class.getClassLoader().getResourceAsStream(FILE_NAME);
         if (inputStream != null) {
             try {
-                this.props.loadFromXML(inputStream);
+                props.loadFromXML(inputStream);
             } catch (Exception e) {
                 log.error("Load IKAnalyzer.cfg.xml occur exception.");
             }
         }
+        return props;
+    }
+
+    /**
+     * 配置文件的解析结果，不可修改
+     */
+    private static final class Settings {
+        private final boolean enableLowercase;
+        private final boolean enableAhoCorasick;
+        private final String mainDictionaryBinary;
+        private final String mainDictionaryFormat;
+        private final boolean enableRemoteDict;
+        private final long remoteExtDictRefreshInterval;
+        private final List<String> extDictionarys;
+        private final List<String> extStopWordDictionarys;
+        private final List<String> remoteExtDictionarys;
+        private final List<String> remoteExtStopWordDictionarys;
+
+        private Settings(Properties props) {
+            this.enableLowercase = parseEnableLowercase(props);
+            this.enableAhoCorasick = parseSwitch(props.getProperty(ENABLE_AHO_CORASICK));
+            this.mainDictionaryBinary = parseMainDictionaryBinary(props);
+            this.mainDictionaryFormat = normalizeMainDictionaryFormat(props.getProperty(MAIN_DICT_FORMAT));
+            this.enableRemoteDict = parseSwitch(props.getProperty(ENABLE_REMOTE_DICT));
+            this.remoteExtDictRefreshInterval = parseRemoteExtDictRefreshInterval(props);
+            this.extDictionarys = parsePaths(props.getProperty(EXT_DICT), true);
+            this.extStopWordDictionarys = parsePaths(props.getProperty(EXT_STOPWORD_DICT), true);
+            this.remoteExtDictionarys = parsePaths(props.getProperty(REMOTE_EXT_DICT), false);
+            this.remoteExtStopWordDictionarys = parsePaths(props.getProperty(REMOTE_EXT_STOPWORD_DICT), false);
+        }
+    }
+
+    /**
+     * 配置构建器
+     * 以已有的配置对象为初始值，修改配置项及词典路径后构建新的配置对象
+     */
+    public static final class Builder {
+        private final Settings settings;
+        private boolean useSmart;
+        private boolean enableLowercase;
+        private boolean enableAhoCorasick;
+        private String mainDictionaryFormat;
+        private boolean enableRemoteDict;
+        private long remoteExtDictRefreshInterval;
+        private String mainDictionary;
+        private String quantifierDictionary;
+        private String englishUnitDictionary;
+        private String mainDictionaryBinary;
+        private List<String> extDictionarys;
+        private List<String> extStopWordDictionarys;
+        private List<String> remoteExtDictionarys;
+        private List<String> remoteExtStopWordDictionarys;
+
+        private Builder(DefaultConfig base) {
+            this.settings = base.settings;
+            this.useSmart = base.useSmart;
+            this.enableLowercase = base.enableLowercase;
+            this.enableAhoCorasick = base.enableAhoCorasick;
+            this.mainDictionaryFormat = base.mainDictionaryFormat;
+            this.enableRemoteDict = base.enableRemoteDict;
+            this.remoteExtDictRefreshInterval = base.remoteExtDictRefreshInterval;
+            this.mainDictionary = base.mainDictionary;
+            this.quantifierDictionary = base.quantifierDictionary;
+            this.englishUnitDictionary = base.englishUnitDictionary;
+            this.mainDictionaryBinary = base.mainDictionaryBinary;
+            this.extDictionarys = base.extDictionarys;
+            this.extStopWordDictionarys = base.extStopWordDictionarys;
+            this.remoteExtDictionarys = base.remoteExtDictionarys;
+            this.remoteExtStopWordDictionarys = base.remoteExtStopWordDictionarys;
+        }
+
+        /**
+         * 分词器未指定切分策略时使用的默认策略
+         * @param useSmart =true ，使用智能切分策略， =false则使用细粒度切分
+         */
+        public Builder useSmart(boolean useSmart) {
+            this.useSmart = useSmart;
+            return this;
+        }
+
+        public Builder enableLowercase(boolean enableLowercase) {
+            this.enableLowercase = enableLowercase;
+            return this;
+        }
+
+        public Builder enableAhoCorasick(boolean enableAhoCorasick) {
+            this.enableAhoCorasick = enableAhoCorasick;
+            return this;
+        }
+
+        /**
+         * @param mainDictionaryFormat double_array或fst，为null时使用默认格式double_array
+         */
+        public Builder mainDictionaryFormat(String mainDictionaryFormat) {
+            this.mainDictionaryFormat = normalizeMainDictionaryFormat(mainDictionaryFormat);
+            return this;
+        }
+
+        public Builder enableRemoteDict(boolean enableRemoteDict) {
+            this.enableRemoteDict = enableRemoteDict;
+            return this;
+        }
+
+        /**
+         * @param remoteExtDictRefreshInterval 远程扩展词典刷新的时间间隔，单位：秒
+         */
+        public Builder remoteExtDictRefreshInterval(long remoteExtDictRefreshInterval) {
+            this.remoteExtDictRefreshInterval = remoteExtDictRefreshInterval;
+            return this;
+        }
+
+        /**
+         * @param mainDictionary 文本主词典路径，为null时使用默认的主词典
+         */
+        public Builder mainDictionary(String mainDictionary) {
+            this.mainDictionary = mainDictionary == null ? PATH_DIC_MAIN : mainDictionary;
+            return this;
+        }
+
+        /**
+         * @param quantifierDictionary 量词词典路径，为null时使用默认的量词词典
+         */
+        public Builder quantifierDictionary(String quantifierDictionary) {
+            this.quantifierDictionary = quantifierDictionary == null ? PATH_DIC_QUANTIFIER : quantifierDictionary;
+            return this;
+        }
+
+        /**
+         * @param englishUnitDictionary 英文单位词典路径，为null时使用默认的英文单位词典
+         */
+        public Builder englishUnitDictionary(String englishUnitDictionary) {
+            this.englishUnitDictionary = englishUnitDictionary == null ? PATH_DIC_EN_UNIT : englishUnitDictionary;
+            return this;
+        }
+
+        /**
+         * @param mainDictionaryBinary 预编译的二进制主词典文件路径，为null时加载文本主词典
+         */
+        public Builder mainDictionaryBinary(String mainDictionaryBinary) {
+            this.mainDictionaryBinary = mainDictionaryBinary == null || "".equals(mainDictionaryBinary.trim())
+                    ? null : mainDictionaryBinary.trim();
+            return this;
+        }
+
+        /**
+         * @param extDictionarys 扩展词典路径，为null时不加载扩展词典
+         */
+        public Builder extDictionarys(List<String> extDictionarys) {
+            this.extDictionarys = copyPaths(extDictionarys);
+            return this;
+        }
+
+        /**
+         * @param extStopWordDictionarys 扩展停用词词典路径，为null时不加载扩展停用词词典
+         */
+        public Builder extStopWordDictionarys(List<String> extStopWordDictionarys) {
+            this.extStopWordDictionarys = copyPaths(extStopWordDictionarys);
+            return this;
+        }
+
+        /**
+         * @param remoteExtDictionarys 远程扩展词典的URL，为null时不加载远程扩展词典
+         */
+        public Builder remoteExtDictionarys(List<String> remoteExtDictionarys) {
+            this.remoteExtDictionarys = copyPaths(remoteExtDictionarys);
+            return this;
+        }
+
+        /**
+         * @param remoteExtStopWordDictionarys 远程扩展停用词词典的URL，为null时不加载远程扩展停用词词典
+         */
+        public Builder remoteExtStopWordDictionarys(List<String> remoteExtStopWordDictionarys) {
+            this.remoteExtStopWordDictionarys = copyPaths(remoteExtStopWordDictionarys);
+            return this;
+        }
+
+        public DefaultConfig build() {
+            return new DefaultConfig(this);
+        }
+
+        private static List<String> copyPaths(List<String> paths) {
+            if (paths == null) {
+                return Collections.<String>emptyList();
+            }
+            return Collections.unmodifiableList(new ArrayList<String>(paths));
+        }
     }
 }
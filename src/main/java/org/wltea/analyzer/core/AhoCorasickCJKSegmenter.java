@@ -0,0 +1,90 @@
+package org.wltea.analyzer.core;
+
+import org.wltea.analyzer.dic.AhoCorasickAutomaton;
+import org.wltea.analyzer.dic.Dictionary;
+
+/**
+ * 基于Aho-Corasick自动机的中文-日韩文子分词器
+ * 与CJKSegmenter输出相同的词元集合，但不维护未完成的前缀队列：
+ * 每个字符只做一次状态转移，再沿输出链接取出以该字符结尾的所有词。
+ */
+class AhoCorasickCJKSegmenter implements ISegmenter {
+
+    //子分词器标签
+    static final String SEGMENTER_NAME = "AC_CJK_SEGMENTER";
+    //子分词器锁定位
+    static final int LOCK_BIT = AnalyzeContext.lockBit(SEGMENTER_NAME);
+    //词典
+    private final Dictionary dictionary;
+    //主词典自动机
+    private AhoCorasickAutomaton automaton;
+    //自动机当前状态
+    private int state;
+
+    AhoCorasickCJKSegmenter(Dictionary dictionary) {
+        this.dictionary = dictionary;
+        this.automaton = dictionary.getMainDictAutomaton();
+        this.state = AhoCorasickAutomaton.ROOT;
+    }
+
+    @Override
+    public void analyze(AnalyzeContext context) {
+        if (CharacterUtil.CHAR_USELESS != context.getCurrentCharType()) {
+            //没有可继续延伸的前缀时，切换到最新的词典
+            if (this.state == AhoCorasickAutomaton.ROOT) {
+                this.automaton = this.dictionary.getMainDictAutomaton();
+            }
+            this.state = this.automaton.next(this.state, context.getCurrentChar());
+            //输出以当前字符结尾的所有词
+            for (int word = this.automaton.wordSuffix(this.state); word != AhoCorasickAutomaton.NONE;
+                 word = this.automaton.wordSuffix(this.automaton.fail(word))) {
+                int length = this.automaton.depth(word);
+                context.addLexeme(context.getCursor() - length + 1, length, Lexeme.TYPE_CNWORD);
+            }
+            //后缀都不能继续成词时，回到初始状态
+            if (this.automaton.prefixSuffix(this.state) == AhoCorasickAutomaton.NONE) {
+                this.state = AhoCorasickAutomaton.ROOT;
+            }
+        } else {
+            //遇到CHAR_USELESS字符
+            this.state = AhoCorasickAutomaton.ROOT;
+        }
+
+        //判断缓冲区是否已经读完
+        if (context.isBufferConsumed()) {
+            //与CJKSegmenter一致：缓冲区最后一个字符对未完成的前缀再匹配一次
+            char currentChar = context.getCurrentChar();
+            for (int prefix = this.automaton.prefixSuffix(this.state); prefix != AhoCorasickAutomaton.NONE;
+                 prefix = this.automaton.prefixSuffix(this.automaton.fail(prefix))) {
+                if (this.automaton.isWord(this.automaton.transition(prefix, currentChar))) {
+                    int length = this.automaton.depth(prefix);
+                    context.addLexeme(context.getCursor() - length + 1, length, Lexeme.TYPE_CNWORD);
+                }
+            }
+            this.state = AhoCorasickAutomaton.ROOT;
+        }
+
+        //判断是否锁定缓冲区
+        if (this.state == AhoCorasickAutomaton.ROOT) {
+            context.unlockBuffer(LOCK_BIT);
+        } else {
+            context.lockBuffer(LOCK_BIT);
+        }
+    }
+
+    @Override
+    public int getLockBit() {
+        return LOCK_BIT;
+    }
+
+    @Override
+    public boolean needAnalyze(AnalyzeContext context) {
+        //自动机处于初始状态时，CHAR_USELESS字符不改变状态
+        return CharacterUtil.CHAR_USELESS != context.getCurrentCharType();
+    }
+
+    @Override
+    public void reset() {
+        this.state = AhoCorasickAutomaton.ROOT;
+    }
+}
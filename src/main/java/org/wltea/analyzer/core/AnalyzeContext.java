@@ -31,6 +31,7 @@ import java.io.Reader;
 import java.util.*;
 
 import static org.wltea.analyzer.core.Lexeme.*;
+import static org.wltea.analyzer.core.LexemeArena.NONE;
 
 /**
  * 分词器上下文状态
@@ -40,6 +41,16 @@ class AnalyzeContext {
     private static final int BUFF_SIZE = 4096;
     //缓冲区耗尽的临界值
     private static final int BUFF_EXHAUST_CRITICAL = 100;
+    //结果队列的初始容量
+    private static final int RESULTS_CAPACITY = 256;
+    //延迟生成文本的词元表的初始容量
+    private static final int LAZY_LEXEMES_CAPACITY = 64;
+    //每个线程缓存的空闲上下文数上限
+    private static final int MAX_POOLED_CONTEXTS = 4;
+    //线程私有的空闲上下文池，分析完一段文本的上下文归还到池中，供同一线程随后创建的分词器复用
+    private static final ThreadLocal<ArrayDeque<AnalyzeContext>> CONTEXT_POOL = ThreadLocal.withInitial(ArrayDeque::new);
+    //子分词器名称 ---> 子分词器锁定位
+    private static final Map<String, Integer> LOCK_BITS = new HashMap<String, Integer>();
 
     //字符窜读取缓冲
     private char[] segmentBuff;
@@ -54,34 +65,55 @@ class AnalyzeContext {
     //最近一次读入的,可处理的字串长度
     private int available;
 
-    //子分词器锁
-    //该集合非空，说明有子分词器在占用segmentBuff
-    private Set<String> buffLocker;
+    //子分词器锁，每个子分词器占用其中一位
+    //该值非0，说明有子分词器在占用segmentBuff
+    private int buffLocker;
 
+    //本轮分析产生的词元存储区
+    private final LexemeArena lexemeArena;
     //原始分词结果集合，未经歧义处理
     private QuickSortSet orgLexemes;
-    //LexemePath位置索引表
-    private Map<Integer, LexemePath> pathMap;
-    //最终分词结果集
-    private LinkedList<Lexeme> results;
+    //LexemePath位置索引表，下标为路径在缓冲区中的起始位置
+    private final LexemePath[] pathTable;
+    //pathTable中已登记路径的最大起始位置+1
+    private int pathLimit;
+    //最终分词结果队列，以环形数组保存词元句柄，容量为2的幂
+    private int[] results;
+    //队首在results中的下标
+    private int resultHead;
+    //队列中的词元数
+    private int resultSize;
+    //本轮输出的、词元文本尚未生成的词元，缓冲区被改写前统一生成词元文本
+    private Lexeme[] lazyLexemes;
+    private int lazyLexemeCount;
 
     //分词器配置项
     private Configuration cfg;
+    //是否使用智能分词策略
+    private boolean useSmart;
+    //分词器使用的词典，为null时使用词典单例
+    private Dictionary dictionary;
 
     //英文常见单位
     private Set<String> english_unit = new HashSet<String>();
 
-    public AnalyzeContext(Configuration cfg) {
+    public AnalyzeContext(Configuration cfg, boolean useSmart) {
         this.cfg = cfg;
+        this.useSmart = useSmart;
         this.segmentBuff = new char[BUFF_SIZE];
         this.charTypes = new int[BUFF_SIZE];
-        this.buffLocker = new HashSet<String>();
-        this.orgLexemes = new QuickSortSet();
-        this.pathMap = new HashMap<Integer, LexemePath>();
-        this.results = new LinkedList<Lexeme>();
+        this.lexemeArena = new LexemeArena();
+        this.orgLexemes = new QuickSortSet(this.lexemeArena);
+        this.pathTable = new LexemePath[BUFF_SIZE];
+        this.results = new int[RESULTS_CAPACITY];
+        this.lazyLexemes = new Lexeme[LAZY_LEXEMES_CAPACITY];
     }
 
 
+    void setUseSmart(boolean useSmart) {
+        this.useSmart = useSmart;
+    }
+
     int getCursor() {
         return this.cursor;
     }
@@ -104,25 +136,36 @@ class AnalyzeContext {
 
     /**
      * 根据context的上下文情况，填充segmentBuff
+     * 新读入的字符在此一次性完成规格化及字符类型识别，分析过程中只读取处理结果
      *
      * @param reader
      * @return 返回待分析的（有效的）字串长度
      * @throws IOException
      */
     int fillBuffer(Reader reader) throws IOException {
+        //已输出的词元引用当前缓冲区，改写前生成词元文本
+        this.materializeLexemes();
+        boolean lowercase = null == cfg ? false : cfg.isEnableLowercase();
         int readCount = 0;
         if (this.buffOffset == 0) {
             //首次读取reader
             readCount = reader.read(segmentBuff);
+            CharacterUtil.regularize(this.segmentBuff, this.charTypes, 0, readCount, lowercase);
         } else {
             int offset = this.available - this.cursor;
             if (offset > 0) {
-                //最近一次读取的>最近一次处理的，将未处理的字串拷贝到segmentBuff头部
+                //最近一次读取的>最近一次处理的，将未处理的字串及其字符类型拷贝到segmentBuff头部
                 System.arraycopy(this.segmentBuff, this.cursor, this.segmentBuff, 0, offset);
+                System.arraycopy(this.charTypes, this.cursor, this.charTypes, 0, offset);
                 readCount = offset;
             }
             //继续读取reader ，以onceReadIn - onceAnalyzed为起始位置，继续填充segmentBuff剩余的部分
             readCount += reader.read(this.segmentBuff, offset, BUFF_SIZE - offset);
+            CharacterUtil.regularize(this.segmentBuff, this.charTypes, offset, readCount, lowercase);
+            if (offset > 0 && readCount > 0) {
+                //头部字符是上一轮最后处理的字符，与逐字处理时一样，本轮再规格化一次
+                CharacterUtil.regularize(this.segmentBuff, this.charTypes, 0, 1, lowercase);
+            }
         }
         //记录最后一次从Reader中读入的可用字符长度
         this.available = readCount;
@@ -132,56 +175,110 @@ class AnalyzeContext {
     }
 
     /**
-     * 初始化buff指针，处理第一个字符
+     * 初始化buff指针
      */
     void initCursor() {
+        //上一轮的词元均已输出，清空存储区
+        this.clearLexemes();
         this.cursor = 0;
-        this.segmentBuff[this.cursor] = CharacterUtil.regularize(this.segmentBuff[this.cursor], null == cfg ? false : cfg.isEnableLowercase());
-        this.charTypes[this.cursor] = CharacterUtil.identifyCharType(this.segmentBuff[this.cursor]);
     }
 
     /**
      * 指针+1
      * 成功返回 true； 指针已经到了buff尾部，不能前进，返回false
-     * 并处理当前字符
      */
     boolean moveCursor() {
         if (this.cursor < this.available - 1) {
             this.cursor++;
-            this.segmentBuff[this.cursor] = CharacterUtil.regularize(this.segmentBuff[this.cursor], cfg.isEnableLowercase());
-            this.charTypes[this.cursor] = CharacterUtil.identifyCharType(this.segmentBuff[this.cursor]);
             return true;
         }
         return false;
     }
 
+    /**
+     * 为子分词器分配锁定位
+     * 同一名称总是得到同一位，子分词器一般在类初始化时登记，保存为常量
+     *
+     * @param segmenterName 子分词器名称
+     * @return 只有一位为1的int
+     */
+    static synchronized int lockBit(String segmenterName) {
+        Integer bit = LOCK_BITS.get(segmenterName);
+        if (bit == null) {
+            if (LOCK_BITS.size() == Integer.SIZE) {
+                throw new IllegalStateException("子分词器超过" + Integer.SIZE + "个，无法分配锁定位：" + segmenterName);
+            }
+            bit = 1 << LOCK_BITS.size();
+            LOCK_BITS.put(segmenterName, bit);
+        }
+        return bit;
+    }
+
     /**
      * 设置当前segmentBuff为锁定状态
-     * 加入占用segmentBuff的子分词器名称，表示占用segmentBuff
+     * 置位占用segmentBuff的子分词器锁定位，表示占用segmentBuff
+     *
+     * @param lockBit 子分词器锁定位
+     */
+    void lockBuffer(int lockBit) {
+        this.buffLocker |= lockBit;
+    }
+
+    /**
+     * 清除指定的子分词器锁定位，释放对segmentBuff的占用
+     *
+     * @param lockBit 子分词器锁定位
+     */
+    void unlockBuffer(int lockBit) {
+        this.buffLocker &= ~lockBit;
+    }
+
+    /**
+     * 判断指定的子分词器是否占用segmentBuff
+     *
+     * @param lockBit 子分词器锁定位
+     * @return boolean
+     */
+    boolean isBufferLocked(int lockBit) {
+        return (this.buffLocker & lockBit) != 0;
+    }
+
+    /**
+     * 以子分词器名称锁定segmentBuff，兼容按名称加锁的子分词器
      *
      * @param segmenterName
      */
     void lockBuffer(String segmenterName) {
-        this.buffLocker.add(segmenterName);
+        this.lockBuffer(lockBit(segmenterName));
     }
 
     /**
-     * 移除指定的子分词器名，释放对segmentBuff的占用
+     * 以子分词器名称释放segmentBuff，兼容按名称加锁的子分词器
      *
      * @param segmenterName
      */
     void unlockBuffer(String segmenterName) {
-        this.buffLocker.remove(segmenterName);
+        this.unlockBuffer(lockBit(segmenterName));
     }
 
     /**
-     * 只要buffLocker中存在segmenterName
+     * 以子分词器名称判断是否占用segmentBuff，兼容按名称加锁的子分词器
+     *
+     * @param segmenterName
+     * @return boolean
+     */
+    boolean isBufferLocked(String segmenterName) {
+        return this.isBufferLocked(lockBit(segmenterName));
+    }
+
+    /**
+     * 只要有子分词器的锁定位被置位
      * 则buffer被锁定
      *
      * @return boolean 缓冲去是否被锁定
      */
     boolean isBufferLocked() {
-        return this.buffLocker.size() > 0;
+        return this.buffLocker != 0;
     }
 
     /**
@@ -222,21 +319,27 @@ class AnalyzeContext {
     /**
      * 向分词结果集添加词元
      *
-     * @param lexeme
+     * @param begin 词元在当前缓冲区中的起始位置
+     * @param length 词元长度
+     * @param lexemeType 词元类型
      */
-    void addLexeme(Lexeme lexeme) {
-        this.orgLexemes.addLexeme(lexeme);
+    void addLexeme(int begin, int length, int lexemeType) {
+        this.orgLexemes.addLexeme(this.lexemeArena.newLexeme(this.buffOffset, begin, length, lexemeType));
     }
 
     /**
      * 添加分词结果路径
-     * 路径起始位置 ---> 路径 映射表
+     * 以路径起始位置为下标登记到路径索引表，空路径没有词元可输出，不登记
      *
      * @param path
      */
     void addLexemePath(LexemePath path) {
-        if (path != null) {
-            this.pathMap.put(path.getPathBegin(), path);
+        if (path != null && path.size() > 0) {
+            int pathBegin = path.getPathBegin();
+            this.pathTable[pathBegin] = path;
+            if (pathBegin >= this.pathLimit) {
+                this.pathLimit = pathBegin + 1;
+            }
         }
     }
 
@@ -250,11 +353,20 @@ class AnalyzeContext {
         return this.orgLexemes;
     }
 
+    /**
+     * 返回词元存储区
+     *
+     * @return
+     */
+    LexemeArena getLexemeArena() {
+        return this.lexemeArena;
+    }
+
     /**
      * 推送分词结果到结果集合
      * 1.从buff头部遍历到this.cursor已处理位置
-     * 2.将map中存在的分词结果推入results
-     * 3.将map中不存在的CJDK字符以单字方式推入results
+     * 2.将路径索引表中存在的分词结果推入results
+     * 3.将路径索引表中不存在的CJDK字符以单字方式推入results
      */
     void outputToResult() {
         int index = 0;
@@ -264,31 +376,39 @@ class AnalyzeContext {
                 index++;
                 continue;
             }
-            //从pathMap找出对应index位置的LexemePath
-            LexemePath path = this.pathMap.get(index);
+            //从路径索引表找出对应index位置的LexemePath
+            LexemePath path = this.pathTable[index];
             if (path != null) {
                 //输出LexemePath中的lexeme到results集合
-                Lexeme l = path.pollFirst();
-                while (l != null) {
-                    this.results.add(l);
+                int l = path.pollFirst();
+                while (l != NONE) {
+                    this.addResult(l);
                     //将index移至lexeme后
-                    index = l.getBegin() + l.getLength();
+                    index = this.lexemeArena.getBegin(l) + this.lexemeArena.getLength(l);
                     l = path.pollFirst();
-                    if (l != null) {
+                    if (l != NONE) {
                         //输出path内部，词元间遗漏的单字
-                        for (; index < l.getBegin(); index++) {
+                        for (; index < this.lexemeArena.getBegin(l); index++) {
                             this.outputSingleCJK(index);
                         }
                     }
                 }
-            } else {//pathMap中找不到index对应的LexemePath
+            } else {//路径索引表中找不到index对应的LexemePath
                 //单字输出
                 this.outputSingleCJK(index);
                 index++;
             }
         }
-        //清空当前的Map
-        this.pathMap.clear();
+        //清空路径索引表
+        this.clearPaths();
+    }
+
+    /**
+     * 清空路径索引表中已登记的路径
+     */
+    private void clearPaths() {
+        Arrays.fill(this.pathTable, 0, this.pathLimit, null);
+        this.pathLimit = 0;
     }
 
     /**
@@ -298,12 +418,56 @@ class AnalyzeContext {
      */
     private void outputSingleCJK(int index) {
         if (CharacterUtil.CHAR_CHINESE == this.charTypes[index]) {
-            Lexeme singleCharLexeme = new Lexeme(this.buffOffset, index, 1, Lexeme.TYPE_CNCHAR);
-            this.results.add(singleCharLexeme);
+            this.addResult(this.lexemeArena.newLexeme(this.buffOffset, index, 1, Lexeme.TYPE_CNCHAR));
         } else if (CharacterUtil.CHAR_OTHER_CJK == this.charTypes[index]) {
-            Lexeme singleCharLexeme = new Lexeme(this.buffOffset, index, 1, Lexeme.TYPE_OTHER_CJK);
-            this.results.add(singleCharLexeme);
+            this.addResult(this.lexemeArena.newLexeme(this.buffOffset, index, 1, Lexeme.TYPE_OTHER_CJK));
+        }
+    }
+
+    /**
+     * 词元加入结果队列队尾
+     */
+    private void addResult(int lexeme) {
+        if (this.resultSize == this.results.length) {
+            //队列已满，按队列顺序复制到两倍容量的新数组
+            int[] grown = new int[this.results.length << 1];
+            int headLength = this.results.length - this.resultHead;
+            System.arraycopy(this.results, this.resultHead, grown, 0, headLength);
+            System.arraycopy(this.results, 0, grown, headLength, this.resultHead);
+            this.results = grown;
+            this.resultHead = 0;
         }
+        this.results[(this.resultHead + this.resultSize++) & (this.results.length - 1)] = lexeme;
+    }
+
+    /**
+     * 结果队列中第i个词元，i为0时为队首
+     */
+    private int peekResult(int i) {
+        return this.results[(this.resultHead + i) & (this.results.length - 1)];
+    }
+
+    /**
+     * 取出结果队列的队首词元
+     * @return 词元句柄，队列为空时返回NONE
+     */
+    private int pollResult() {
+        if (this.resultSize == 0) {
+            return NONE;
+        }
+        int lexeme = this.results[this.resultHead];
+        this.resultHead = (this.resultHead + 1) & (this.results.length - 1);
+        this.resultSize--;
+        return lexeme;
+    }
+
+    /**
+     * 清空存储区及结果队列
+     */
+    private void clearLexemes() {
+        this.lexemeArena.clear();
+        this.resultHead = 0;
+        this.resultSize = 0;
     }
 
     /**
@@ -314,22 +478,75 @@ class AnalyzeContext {
      * @return
      */
     Lexeme getNextLexeme() {
+        int result = this.pollNextLexeme();
+        if (result == NONE) {
+            return null;
+        }
+        //生成lexeme，词元文本延迟到读取时或缓冲区被改写前生成
+        Lexeme lexeme = this.lexemeArena.toLexeme(result);
+        lexeme.setTextBuffer(this.segmentBuff);
+        if (this.lazyLexemeCount == this.lazyLexemes.length) {
+            this.lazyLexemes = Arrays.copyOf(this.lazyLexemes, this.lazyLexemeCount << 1);
+        }
+        this.lazyLexemes[this.lazyLexemeCount++] = lexeme;
+        return lexeme;
+    }
+
+    /**
+     * 返回lexeme，复用调用方的Lexeme对象
+     * 不生成词元文本，词元文本只在缓冲区被改写前(即下一次取词元之前)有效，调用方应立即通过getLexemeChars读取
+     *
+     * @param lexeme 复用的词元对象
+     * @return boolean 是否取到词元
+     */
+    boolean getNextLexeme(Lexeme lexeme) {
+        int result = this.pollNextLexeme();
+        if (result == NONE) {
+            return false;
+        }
+        LexemeArena arena = this.lexemeArena;
+        lexeme.setOffset(arena.getOffset(result));
+        lexeme.setBegin(arena.getBegin(result));
+        lexeme.setLength(arena.getLength(result));
+        lexeme.setLexemeType(arena.getType(result));
+        lexeme.setTextBuffer(this.segmentBuff);
+        return true;
+    }
+
+    /**
+     * 从结果集取出第一个非停用词的词元
+     * 同时处理合并
+     *
+     * @return 词元句柄，结果集为空时返回NONE
+     */
+    private int pollNextLexeme() {
         //从结果集取出，并移除第一个Lexme
-        Lexeme result = this.results.pollFirst();
-        while (result != null) {
+        int result = this.pollResult();
+        while (result != NONE) {
             //数量词合并
             this.compound(result);
 
-            if (Dictionary.getSingleton().isStopWord(this.segmentBuff, result.getBegin(), result.getLength())) {
+            int begin = this.lexemeArena.getBegin(result);
+            int length = this.lexemeArena.getLength(result);
+            if (this.getDictionary().isStopWord(this.segmentBuff, begin, length)) {
                 //如果是停用词，则继续取列表的下一个
-                result = this.results.pollFirst();
+                result = this.pollResult();
             } else {
-                //如果不是停用词, 生成lexeme的词元文本,输出
-                result.setLexemeText(String.valueOf(this.segmentBuff, result.getBegin(), result.getLength()));
-                break;
+                return result;
             }
         }
-        return result;
+        return NONE;
+    }
+
+    /**
+     * 为已输出、尚未读取文本的词元生成词元文本，并清空延迟生成文本的词元表
+     */
+    private void materializeLexemes() {
+        for (int i = 0; i < this.lazyLexemeCount; i++) {
+            this.lazyLexemes[i].getLexemeText();
+            this.lazyLexemes[i] = null;
+        }
+        this.lazyLexemeCount = 0;
     }
 
     /*public ReLexeme getReLexemeText(Lexeme result) {
@@ -355,25 +572,62 @@ class AnalyzeContext {
 
     /**
      * 重置分词上下文状态
+     * 复用缓冲区及集合，不分配新对象；缓冲区中残留的字符在下次fillBuffer时被覆盖，available之后的内容不会被读取
      */
     void reset() {
-        this.buffLocker.clear();
-        this.orgLexemes = new QuickSortSet();
+        //上下文可能被其他分词器复用，归还前生成已输出词元的文本
+        this.materializeLexemes();
+        this.buffLocker = 0;
+        this.orgLexemes.clear();
         this.available = 0;
         this.buffOffset = 0;
-        this.charTypes = new int[BUFF_SIZE];
         this.cursor = 0;
-        this.results.clear();
-        this.segmentBuff = new char[BUFF_SIZE];
-        this.pathMap.clear();
+        this.clearLexemes();
+        this.clearPaths();
+    }
+
+    private Dictionary getDictionary() {
+        return this.dictionary != null ? this.dictionary : Dictionary.getSingleton();
+    }
+
+    /**
+     * 从当前线程的上下文池中借出一个上下文，池为空时新建
+     * @param cfg 分词器配置项
+     * @param dictionary 分词器使用的词典
+     * @param useSmart 是否使用智能分词策略
+     * @return 已重置的上下文
+     */
+    static AnalyzeContext borrow(Configuration cfg, Dictionary dictionary, boolean useSmart) {
+        AnalyzeContext context = CONTEXT_POOL.get().pollFirst();
+        if (context == null) {
+            context = new AnalyzeContext(cfg, useSmart);
+        }
+        context.cfg = cfg;
+        context.dictionary = dictionary;
+        context.useSmart = useSmart;
+        return context;
+    }
+
+    /**
+     * 重置上下文并归还到当前线程的上下文池，归还后调用方不能再使用该上下文
+     */
+    void release() {
+        this.reset();
+        //池中的上下文不再引用配置及词典，已释放的词典可以被回收；borrow时重新设置
+        this.cfg = null;
+        this.dictionary = null;
+        ArrayDeque<AnalyzeContext> pool = CONTEXT_POOL.get();
+        if (pool.size() < MAX_POOLED_CONTEXTS) {
+            pool.addFirst(this);
+        }
     }
 
     /**
      * 组合词元
      */
-    private void compound(Lexeme result) {
+    private void compound(int result) {
         //词语合并处理
-        if (!this.results.isEmpty()) {
+        if (this.resultSize > 0) {
             //可能存在多次合并
             combinWord(result);
         }
@@ -381,105 +635,114 @@ class AnalyzeContext {
 
     /**
      * 词语合并
+     * 智能模式下结果队列按起始位置排列且词元互不重叠，只有紧接在result之后的词元可能与之合并，
+     * 因此只需依次查看队首的一两个词元，遇到起始位置超过result结束位置的词元即可结束，每个词元的处理代价为常数
      *
      * @param result
      */
-    public void combinWord(Lexeme result) {
+    void combinWord(int result) {
         //如果是细粒度切分，就不需要合并了
-        if (!this.cfg.useSmart()) {
+        if (!this.useSmart) {
             return;
         }
-        LinkedList<Lexeme> tempResults = new LinkedList<Lexeme>(this.results);
+        LexemeArena arena = this.lexemeArena;
+        //依次与结果队列中的后续词元尝试合并，不移除队列中的词元
+        int i = 0;
         do {
             //如果下一个词既不是阿拉伯数字，也不是中文数字，那么数字合并结束
-            if (Lexeme.TYPE_ARABIC != result.getLexemeType() &&
-                    Lexeme.TYPE_CNUM != result.getLexemeType()) {
+            if (Lexeme.TYPE_ARABIC != arena.getType(result) &&
+                    Lexeme.TYPE_CNUM != arena.getType(result)) {
+                break;
+            }
+            //后续词元的起始位置都不小于下一个词元，下一个词元与result之间有间隔时，不会再有可以合并的词元
+            if (arena.getBegin(this.peekResult(i)) > arena.getBegin(result) + arena.getLength(result)) {
                 break;
             }
             //当前词是阿拉伯数字
-            if (Lexeme.TYPE_ARABIC == result.getLexemeType()) {
-                Lexeme nextLexeme = tempResults.peekFirst();
+            if (Lexeme.TYPE_ARABIC == arena.getType(result)) {
+                int nextLexeme = this.peekResult(i);
                 boolean appendOk = false;
                 //中文十进制
-                if (Lexeme.TYPE_DENARY == nextLexeme.getLexemeType()) {
+                if (Lexeme.TYPE_DENARY == arena.getType(nextLexeme)) {
                     //如果是智能分词
-                    if (this.cfg.useSmart()) {
+                    if (this.useSmart) {
                         //合并阿拉伯数字+中文十进制,比如：2百万，8千
-                        appendOk = result.append(nextLexeme, TYPE_CNWORD);
+                        appendOk = arena.append(result, nextLexeme, TYPE_CNWORD);
                     }
                 }
                 //中文量词
-                else if (Lexeme.TYPE_COUNT == nextLexeme.getLexemeType()) {
+                else if (Lexeme.TYPE_COUNT == arena.getType(nextLexeme)) {
                     //如果是智能分词
-                    if (this.cfg.useSmart()) {
+                    if (this.useSmart) {
                         //合并阿拉伯数字+中文量词，比如：2天  24小时
-                        appendOk = result.append(nextLexeme, TYPE_ARABIC_COUNT);
+                        appendOk = arena.append(result, nextLexeme, TYPE_ARABIC_COUNT);
                     }
                 }
                 //英文单位
-                else if (Lexeme.TYPE_EN_UNIT == nextLexeme.getLexemeType()) {
+                else if (Lexeme.TYPE_EN_UNIT == arena.getType(nextLexeme)) {
                     //如果是智能分词
-                    if (this.cfg.useSmart()) {
+                    if (this.useSmart) {
                         //合并阿拉伯数字+英文单位，比如：80KG  160cm  3600s
-                        appendOk = result.append(nextLexeme, TYPE_ARABIC_EN_UNIT);
+                        appendOk = arena.append(result, nextLexeme, TYPE_ARABIC_EN_UNIT);
                     }
-                } else if (Lexeme.TYPE_ARABIC == nextLexeme.getLexemeType()) {
+                } else if (Lexeme.TYPE_ARABIC == arena.getType(nextLexeme)) {
                     //合并数字+数字
-                    appendOk = result.append(nextLexeme, Lexeme.TYPE_ARABIC);
+                    appendOk = arena.append(result, nextLexeme, Lexeme.TYPE_ARABIC);
                 }
                 /*if (appendOk) {
                     //弹出
                     this.results.pollFirst();
                 }*/
-                tempResults.pollFirst();
+                i++;
             }
             //如果当前词是中文数字
-            else if (Lexeme.TYPE_CNUM == result.getLexemeType()) {
-                Lexeme nextLexeme = tempResults.peekFirst();
+            else if (Lexeme.TYPE_CNUM == arena.getType(result)) {
+                int nextLexeme = this.peekResult(i);
                 boolean appendOk = false;
                 //中文十进制
-                if (Lexeme.TYPE_DENARY == nextLexeme.getLexemeType()) {
+                if (Lexeme.TYPE_DENARY == arena.getType(nextLexeme)) {
                     //如果是智能分词
-                    if (this.cfg.useSmart()) {
+                    if (this.useSmart) {
                         //合并中文数字+中文十进制,比如：三百万，八千
-                        appendOk = result.append(nextLexeme, TYPE_CNUM_DENARY);
+                        appendOk = arena.append(result, nextLexeme, TYPE_CNUM_DENARY);
                     }
                 }
                 //中文量词
-                else if (Lexeme.TYPE_COUNT == nextLexeme.getLexemeType()) {
+                else if (Lexeme.TYPE_COUNT == arena.getType(nextLexeme)) {
                     //如果是智能分词
-                    if (this.cfg.useSmart()) {
+                    if (this.useSmart) {
                         //合并中文数字+中文量词，比如：两天三夜  八小时
-                        appendOk = result.append(nextLexeme, Lexeme.TYPE_CNUM_COUNT);
+                        appendOk = arena.append(result, nextLexeme, Lexeme.TYPE_CNUM_COUNT);
                     }
                 }
                 /*if (appendOk) {
                     //弹出
                     this.results.pollFirst();
                 }*/
-                tempResults.pollFirst();
+                i++;
             }
-        } while (!tempResults.isEmpty());
+        } while (i < this.resultSize);
     }
 
-    //获取上一个匹配词
-    public QuickSortSet.Cell getPrevLexeme() {
+    //获取上一个匹配词所在的链表单元
+    int getPrevLexeme() {
         QuickSortSet quickSortSet = this.getOrgLexemes();
         if (null == quickSortSet) {
-            return null;
+            return NONE;
         }
-        QuickSortSet.Cell tail = quickSortSet.getTail();
-        if (null == tail) {
-            return null;
+        int tail = quickSortSet.getTail();
+        if (NONE == tail) {
+            return NONE;
         }
-        return tail.getPrev();
+        return quickSortSet.getPrev(tail);
     }
 
     //获取上一个匹配词的字符串
-    public String getLexemeText(QuickSortSet.Cell cell) {
-        if (null == cell) {
+    String getLexemeText(int cell) {
+        if (NONE == cell) {
             return "";
         }
-        return String.valueOf(this.getSegmentBuff(), cell.getLexemeBegin(), cell.getLexemeLength());
+        int lexeme = this.lexemeArena.getCellLexeme(cell);
+        return String.valueOf(this.getSegmentBuff(), this.lexemeArena.getBegin(lexeme), this.lexemeArena.getLength(lexeme));
     }
 }
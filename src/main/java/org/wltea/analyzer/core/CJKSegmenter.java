@@ -24,11 +24,10 @@
  */
 package org.wltea.analyzer.core;
 
+import org.wltea.analyzer.dic.DictCursor;
 import org.wltea.analyzer.dic.Dictionary;
-import org.wltea.analyzer.dic.Hit;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
 
 
 /**
@@ -38,44 +37,58 @@ class CJKSegmenter implements ISegmenter {
 
     //子分词器标签
     static final String SEGMENTER_NAME = "CJK_SEGMENTER";
-    //待处理的分词hit队列
-    private List<Hit> tmpHits;
-
-
-    CJKSegmenter() {
-        this.tmpHits = new LinkedList<Hit>();
+    //子分词器锁定位
+    static final int LOCK_BIT = AnalyzeContext.lockBit(SEGMENTER_NAME);
+    //主词典匹配游标
+    private DictCursor cursor;
+    //待处理的分词hit队列：词段开始位置及匹配状态
+    private int[] hitBegins;
+    private int[] hitStates;
+    private int hitCount;
+
+
+    CJKSegmenter(Dictionary dictionary) {
+        this.cursor = dictionary.newMainDictCursor();
+        this.hitBegins = new int[16];
+        this.hitStates = new int[16];
+        this.hitCount = 0;
     }
 
     @Override
     public void analyze(AnalyzeContext context) {
         if (CharacterUtil.CHAR_USELESS != context.getCurrentCharType()) {
 
+            //没有未完成的前缀时，切换到最新的词典
+            if (this.hitCount == 0) {
+                this.cursor.refresh();
+            }
             //优先处理tmpHits中的hit
             handleTempHits(context, false);
 
             //*********************************
             //再对当前指针位置的字符进行单字匹配
-            Hit singleCharHit = Dictionary.getSingleton().matchInMainDict(context.getSegmentBuff(), context.getCursor(), 1);
-            if (singleCharHit.isMatch()) {//首字成词
+            //不是任何词条首字的字符无需检索
+            char currentChar = context.getCurrentChar();
+            int singleCharState = this.cursor.isFirstChar(currentChar) ? this.cursor.first(currentChar) : DictCursor.UNMATCH;
+            if (DictCursor.isMatch(singleCharState)) {//首字成词
                 //输出当前的词
-                Lexeme newLexeme = new Lexeme(context.getBufferOffset(), context.getCursor(), 1, Lexeme.TYPE_CNWORD);
-                context.addLexeme(newLexeme);
+                context.addLexeme(context.getCursor(), 1, Lexeme.TYPE_CNWORD);
 
                 //同时也是词前缀
-                if (singleCharHit.isPrefix()) {
+                if (DictCursor.isPrefix(singleCharState)) {
                     //前缀匹配则放入hit列表
-                    this.tmpHits.add(singleCharHit);
+                    this.addHit(context.getCursor(), singleCharState);
                 }
-            } else if (singleCharHit.isPrefix()) {//首字为词前缀
+            } else if (DictCursor.isPrefix(singleCharState)) {//首字为词前缀
                 //前缀匹配则放入hit列表
-                this.tmpHits.add(singleCharHit);
+                this.addHit(context.getCursor(), singleCharState);
             }
 
 
         } else {
             //遇到CHAR_USELESS字符
             //清空队列
-            this.tmpHits.clear();
+            this.hitCount = 0;
         }
 
         //判断缓冲区是否已经读完
@@ -85,46 +98,70 @@ class CJKSegmenter implements ISegmenter {
         }
 
         //判断是否锁定缓冲区
-        if (this.tmpHits.size() == 0) {
-            context.unlockBuffer(SEGMENTER_NAME);
+        if (this.hitCount == 0) {
+            context.unlockBuffer(LOCK_BIT);
 
         } else {
-            context.lockBuffer(SEGMENTER_NAME);
+            context.lockBuffer(LOCK_BIT);
         }
     }
 
+    @Override
+    public int getLockBit() {
+        return LOCK_BIT;
+    }
+
+    @Override
+    public boolean needAnalyze(AnalyzeContext context) {
+        //hit队列为空时，CHAR_USELESS字符不改变状态
+        return CharacterUtil.CHAR_USELESS != context.getCurrentCharType();
+    }
+
     private void handleTempHits(AnalyzeContext context, boolean end) {
-        if (!this.tmpHits.isEmpty()) {
-            //处理词段队列
-            Hit[] tmpArray = this.tmpHits.toArray(new Hit[this.tmpHits.size()]);
-            for (Hit hit : tmpArray) {
-                hit = Dictionary.getSingleton().matchWithHit(context.getSegmentBuff(), context.getCursor(), hit);
-                if (hit.isMatch()) {
-                    if (context.getCursor() >= hit.getBegin()) {
+        if (this.hitCount > 0) {
+            //处理词段队列，仍为词前缀的hit按原顺序保留
+            char currentChar = context.getCurrentChar();
+            int retained = 0;
+            for (int i = 0; i < this.hitCount; i++) {
+                int begin = this.hitBegins[i];
+                int state = this.cursor.next(this.hitStates[i], currentChar);
+                if (DictCursor.isMatch(state)) {
+                    if (context.getCursor() >= begin) {
                         //输出当前的词
-                        Lexeme newLexeme = new Lexeme(context.getBufferOffset(), hit.getBegin(), context.getCursor() - hit.getBegin() + 1, Lexeme.TYPE_CNWORD);
-                        context.addLexeme(newLexeme);
-                    }
-
-                    if (!hit.isPrefix()) {//不是词前缀，hit不需要继续匹配，移除
-                        this.tmpHits.remove(hit);
+                        context.addLexeme(begin, context.getCursor() - begin + 1, Lexeme.TYPE_CNWORD);
                     }
-
-                } else if (hit.isUnmatch()) {
-                    //hit不是词，移除
-                    this.tmpHits.remove(hit);
+                }
+                //不是词前缀或不匹配的hit不需要继续匹配，移除
+                if (DictCursor.isPrefix(state)) {
+                    this.hitBegins[retained] = begin;
+                    this.hitStates[retained] = state;
+                    retained++;
                 }
             }
+            this.hitCount = retained;
             if (end) {
-                this.tmpHits.clear();
+                this.hitCount = 0;
             }
         }
     }
 
+    /**
+     * 将前缀匹配放入hit队列
+     */
+    private void addHit(int begin, int state) {
+        if (this.hitCount == this.hitBegins.length) {
+            this.hitBegins = Arrays.copyOf(this.hitBegins, this.hitCount << 1);
+            this.hitStates = Arrays.copyOf(this.hitStates, this.hitCount << 1);
+        }
+        this.hitBegins[this.hitCount] = begin;
+        this.hitStates[this.hitCount] = state;
+        this.hitCount++;
+    }
+
     @Override
     public void reset() {
         //清空队列
-        this.tmpHits.clear();
+        this.hitCount = 0;
     }
 
 }
@@ -23,8 +23,8 @@
  */
 package org.wltea.analyzer.core;
 
+import org.wltea.analyzer.dic.DictCursor;
 import org.wltea.analyzer.dic.Dictionary;
-import org.wltea.analyzer.dic.Hit;
 
 import java.util.*;
 
@@ -36,31 +36,40 @@ class CN_QuantifierSegmenter implements ISegmenter {
 
     //子分词器标签
     static final String SEGMENTER_NAME = "QUAN_SEGMENTER";
+    //子分词器锁定位
+    static final int LOCK_BIT = AnalyzeContext.lockBit(SEGMENTER_NAME);
 
     //链接符号
     private static final char[] Symbolic_Link = new char[]{'#', '&', '+', '-', '.', '@', '_'};
 
+    //链接符号位图
+    private static final BitSet SymbolicLinkChars = new BitSet();
+
     //中文数字
     private static String Chn_Num = "一二两三四五六七八九十零壹贰叁肆伍陆柒捌玖卅廿";
 
     //中文十进制
     private static String Denary_Name = "十百千万亿兆拾佰仟萬億";
 
-    //中文数字
-    private static Set<Character> ChnNumberChars = new HashSet<Character>();
+    //中文数字位图，以字符编码为下标
+    private static final BitSet ChnNumberChars = new BitSet();
 
-    //十进制位
-    private static Set<Character> DenaryChars = new HashSet<Character>();
+    //十进制位位图，以字符编码为下标
+    private static final BitSet DenaryChars = new BitSet();
 
     static {
         char[] ca = Chn_Num.toCharArray();
         for (char nChar : ca) {
-            ChnNumberChars.add(nChar);
+            ChnNumberChars.set(nChar);
         }
 
         char[] dn = Denary_Name.toCharArray();
         for (char dc : dn) {
-            DenaryChars.add(dc);
+            DenaryChars.set(dc);
+        }
+
+        for (char lc : Symbolic_Link) {
+            SymbolicLinkChars.set(lc);
         }
     }
 
@@ -95,11 +104,15 @@ class CN_QuantifierSegmenter implements ISegmenter {
 	private int start_cnum_count;
 	private int end_cnum_count;*/
 
-    //待处理的量词hit队列
-    private List<Hit> countHits;
+    //量词词典匹配游标
+    private DictCursor cursor;
+    //待处理的量词hit队列：词段开始位置及匹配状态
+    private int[] countHitBegins;
+    private int[] countHitStates;
+    private int countHitCount;
 
 
-    CN_QuantifierSegmenter() {
+    CN_QuantifierSegmenter(Dictionary dictionary) {
         nStart = -1;
         nEnd = -1;
         dnStart = -1;
@@ -110,7 +123,10 @@ class CN_QuantifierSegmenter implements ISegmenter {
         start_arabic_unit_cn = -1;
         end_arabic_unit_cn = -1;
         matche = false;
-        this.countHits = new LinkedList<Hit>();
+        this.cursor = dictionary.newQuantifierDictCursor();
+        this.countHitBegins = new int[16];
+        this.countHitStates = new int[16];
+        this.countHitCount = 0;
     }
 
     /**
@@ -118,6 +134,10 @@ class CN_QuantifierSegmenter implements ISegmenter {
      */
     @Override
     public void analyze(AnalyzeContext context) {
+        //没有未完成的量词前缀时，切换到最新的词典
+        if (this.countHitCount == 0) {
+            this.cursor.refresh();
+        }
         //处理中文十进制
         this.processDenary(context);
         //处理中文数字
@@ -130,15 +150,38 @@ class CN_QuantifierSegmenter implements ISegmenter {
         //判断是否锁定缓冲区
         if (this.nStart == -1 && this.nEnd == -1 &&
                 this.dnStart == -1 && this.dnEnd == -1 &&
-                countHits.isEmpty()) {
+                this.countHitCount == 0) {
             //对缓冲区解锁
-            context.unlockBuffer(SEGMENTER_NAME);
+            context.unlockBuffer(LOCK_BIT);
         } else {
-            context.lockBuffer(SEGMENTER_NAME);
+            context.lockBuffer(LOCK_BIT);
         }
     }
 
 
+    @Override
+    public int getLockBit() {
+        return LOCK_BIT;
+    }
+
+    @Override
+    public boolean needAnalyze(AnalyzeContext context) {
+        int charType = context.getCurrentCharType();
+        if (CharacterUtil.CHAR_ARABIC == charType || this.start_arabic_unit_num != -1) {
+            //阿拉伯数字+中文量词
+            return true;
+        }
+        if (CharacterUtil.CHAR_CHINESE == charType) {
+            char currentChar = context.getCurrentChar();
+            if (DenaryChars.get(currentChar) || ChnNumberChars.get(currentChar)) {
+                //中文十进制及中文数字
+                return true;
+            }
+        }
+        //未锁定缓冲区时没有处理中的数词，前一个词是数词时才需要扫描量词
+        return this.needCountScan(context);
+    }
+
     /**
      * 重置子分词器状态
      */
@@ -148,7 +191,21 @@ class CN_QuantifierSegmenter implements ISegmenter {
         nEnd = -1;
         dnStart = -1;
         dnEnd = -1;
-        countHits.clear();
+        this.countHitCount = 0;
+    }
+
+    /**
+     * 阿拉伯数字加中文量词的状态可跨缓冲区保留，开始新的文本时一并清除，
+     * 否则复用的分词器会把上一段文本末尾未完成的数量词带入下一段文本
+     */
+    @Override
+    public void resetInput() {
+        this.reset();
+        this.start_arabic_unit_num = -1;
+        this.end_arabic_unit_num = -1;
+        this.start_arabic_unit_cn = -1;
+        this.end_arabic_unit_cn = -1;
+        this.matche = false;
     }
 
     /**
@@ -158,14 +215,14 @@ class CN_QuantifierSegmenter implements ISegmenter {
         if (dnStart == -1 && dnEnd == -1) {//初始状态
             //如果是中文十进制
             if (CharacterUtil.CHAR_CHINESE == context.getCurrentCharType()
-                    && DenaryChars.contains(context.getCurrentChar())) {
+                    && DenaryChars.get(context.getCurrentChar())) {
                 //记录中文十进制的起始、结束位置
                 dnStart = context.getCursor();
                 dnEnd = context.getCursor();
             }
         } else {//正在处理状态
             if (CharacterUtil.CHAR_CHINESE == context.getCurrentCharType()
-                    && DenaryChars.contains(context.getCurrentChar())) {
+                    && DenaryChars.get(context.getCurrentChar())) {
                 //记录中文十进制的结束位置
                 dnEnd = context.getCursor();
             } else {
@@ -195,7 +252,7 @@ class CN_QuantifierSegmenter implements ISegmenter {
     private void processCNumber(AnalyzeContext context) {
         if (nStart == -1 && nEnd == -1) {//初始状态
             if (CharacterUtil.CHAR_CHINESE == context.getCurrentCharType()
-                    && ChnNumberChars.contains(context.getCurrentChar())) {
+                    && ChnNumberChars.get(context.getCurrentChar())) {
                 //记录数词的起始、结束位置
                 nStart = context.getCursor();
                 nEnd = context.getCursor();
@@ -235,60 +292,74 @@ class CN_QuantifierSegmenter implements ISegmenter {
         } else {
             //输入的不是中文字符
             //清空未成形的量词
-            this.countHits.clear();
+            this.countHitCount = 0;
         }
 
         //缓冲区数据已经读完，还有尚未输出的量词
         if (context.isBufferConsumed()) {
             //清空未成形的量词
             handleCountHits(context, true);
-            //this.countHits.clear();
+            //this.countHitCount = 0;
         }
     }
 
     private void handleCountHits(AnalyzeContext context, boolean end) {
+        char currentChar = context.getCurrentChar();
         //优先处理countHits中的hit
-        if (!this.countHits.isEmpty()) {
-            //处理词段队列
-            Hit[] tmpArray = this.countHits.toArray(new Hit[this.countHits.size()]);
-            for (Hit hit : tmpArray) {
-                hit = Dictionary.getSingleton().matchWithHit(context.getSegmentBuff(), context.getCursor(), hit);
-                if (hit.isMatch()) {
-                    if (context.getCursor() >= hit.getBegin()) {
+        if (this.countHitCount > 0) {
+            //处理词段队列，仍为量词前缀的hit按原顺序保留
+            int retained = 0;
+            for (int i = 0; i < this.countHitCount; i++) {
+                int begin = this.countHitBegins[i];
+                int state = this.cursor.next(this.countHitStates[i], currentChar);
+                if (DictCursor.isMatch(state)) {
+                    if (context.getCursor() >= begin) {
                         //输出当前的词
-                        Lexeme newLexeme = new Lexeme(context.getBufferOffset(), hit.getBegin(), context.getCursor() - hit.getBegin() + 1, Lexeme.TYPE_COUNT);
-                        context.addLexeme(newLexeme);
+                        context.addLexeme(begin, context.getCursor() - begin + 1, Lexeme.TYPE_COUNT);
                     }
-                    if (!hit.isPrefix()) {//不是词前缀，hit不需要继续匹配，移除
-                        this.countHits.remove(hit);
-                    }
-                } else if (hit.isUnmatch()) {
-                    //hit不是词，移除
-                    this.countHits.remove(hit);
+                }
+                //不是词前缀或不匹配的hit不需要继续匹配，移除
+                if (DictCursor.isPrefix(state)) {
+                    this.countHitBegins[retained] = begin;
+                    this.countHitStates[retained] = state;
+                    retained++;
                 }
             }
+            this.countHitCount = retained;
         }
 
         //*********************************
         //对当前指针位置的字符进行单字匹配
-        Hit singleCharHit = Dictionary.getSingleton().matchInQuantifierDict(context.getSegmentBuff(), context.getCursor(), 1);
-        if (singleCharHit.isMatch()) {//首字成量词词
+        int singleCharState = this.cursor.isFirstChar(currentChar) ? this.cursor.first(currentChar) : DictCursor.UNMATCH;
+        if (DictCursor.isMatch(singleCharState)) {//首字成量词词
             //输出当前的词
-            Lexeme newLexeme = new Lexeme(context.getBufferOffset(), context.getCursor(), 1, Lexeme.TYPE_COUNT);
-            context.addLexeme(newLexeme);
+            context.addLexeme(context.getCursor(), 1, Lexeme.TYPE_COUNT);
 
             //同时也是词前缀
-            if (singleCharHit.isPrefix()) {
+            if (DictCursor.isPrefix(singleCharState)) {
                 //前缀匹配则放入hit列表
-                this.countHits.add(singleCharHit);
+                this.addCountHit(context.getCursor(), singleCharState);
             }
-        } else if (singleCharHit.isPrefix()) {//首字为量词前缀
+        } else if (DictCursor.isPrefix(singleCharState)) {//首字为量词前缀
             //前缀匹配则放入hit列表
-            this.countHits.add(singleCharHit);
+            this.addCountHit(context.getCursor(), singleCharState);
         }
         if (end) {
-            this.countHits.clear();
+            this.countHitCount = 0;
+        }
+    }
+
+    /**
+     * 将量词前缀匹配放入hit队列
+     */
+    private void addCountHit(int begin, int state) {
+        if (this.countHitCount == this.countHitBegins.length) {
+            this.countHitBegins = Arrays.copyOf(this.countHitBegins, this.countHitCount << 1);
+            this.countHitStates = Arrays.copyOf(this.countHitStates, this.countHitCount << 1);
         }
+        this.countHitBegins[this.countHitCount] = begin;
+        this.countHitStates[this.countHitCount] = state;
+        this.countHitCount++;
     }
 
     /**
@@ -314,14 +385,14 @@ class CN_QuantifierSegmenter implements ISegmenter {
                 if (this.start_arabic_unit_cn != -1) {
                     this.end_arabic_unit_cn = context.getCursor();
                     if (this.end_arabic_unit_cn != -1 && this.start_arabic_unit_cn != -1) {
-                        Hit singleCharHit = Dictionary.getSingleton().matchInQuantifierDict(context.getSegmentBuff(),
+                        int unitState = this.cursor.match(context.getSegmentBuff(),
                                 this.start_arabic_unit_cn, this.end_arabic_unit_cn - this.start_arabic_unit_cn + 1);
-                        if (!singleCharHit.isMatch() && !singleCharHit.isPrefix()) {
+                        if (!DictCursor.isMatch(unitState) && !DictCursor.isPrefix(unitState)) {
                             this.start_arabic_unit_cn = -1;
                             this.end_arabic_unit_cn = -1;
                             this.start_arabic_unit_num = -1;
                             this.end_arabic_unit_num = -1;
-                        } else if (singleCharHit.isMatch()) {
+                        } else if (DictCursor.isMatch(unitState)) {
                             this.matche = true;
                         }
                     }
@@ -332,14 +403,14 @@ class CN_QuantifierSegmenter implements ISegmenter {
                     this.end_arabic_unit_cn = start_arabic_unit_cn;
                     this.end_arabic_unit_num = start_arabic_unit_cn;
                     if (this.end_arabic_unit_cn != -1 && this.start_arabic_unit_cn != -1) {
-                        Hit singleCharHit = Dictionary.getSingleton().matchInQuantifierDict(context.getSegmentBuff(),
+                        int unitState = this.cursor.match(context.getSegmentBuff(),
                                 this.start_arabic_unit_cn, 1);
-                        if (!singleCharHit.isMatch() && !singleCharHit.isPrefix()) {
+                        if (!DictCursor.isMatch(unitState) && !DictCursor.isPrefix(unitState)) {
                             this.start_arabic_unit_cn = -1;
                             this.end_arabic_unit_cn = -1;
                             this.start_arabic_unit_num = -1;
                             this.end_arabic_unit_num = -1;
-                        } else if (singleCharHit.isMatch()) {
+                        } else if (DictCursor.isMatch(unitState)) {
                             this.matche = true;
                         }
                     }
@@ -347,23 +418,20 @@ class CN_QuantifierSegmenter implements ISegmenter {
                     this.end_arabic_unit_cn = context.getCursor();
                     //查询中文单位词典，如果当前字符不是中文单位的前缀，那么直接重置位置信息
                     if (this.end_arabic_unit_cn != -1 && this.start_arabic_unit_cn != -1) {
-                        Hit singleCharHit = Dictionary.getSingleton().matchInQuantifierDict(context.getSegmentBuff(),
+                        int unitState = this.cursor.match(context.getSegmentBuff(),
                                 this.start_arabic_unit_cn, this.end_arabic_unit_cn - this.start_arabic_unit_cn + 1);
                         //既不是中文单位，也不是中文单位的前缀，那么说明不需要组合
-                        if (!singleCharHit.isMatch() && !singleCharHit.isPrefix()) {
+                        if (!DictCursor.isMatch(unitState) && !DictCursor.isPrefix(unitState)) {
                             if (this.matche) {
                                 if (this.end_arabic_unit_cn > this.start_arabic_unit_num) {
-                                    Lexeme newLexeme = new Lexeme(context.getBufferOffset(),
-                                            this.start_arabic_unit_num, this.end_arabic_unit_cn - this.start_arabic_unit_num,
-                                            Lexeme.TYPE_ARABIC_COUNT);
-                                    context.addLexeme(newLexeme);
+                                    context.addLexeme(this.start_arabic_unit_num, this.end_arabic_unit_cn - this.start_arabic_unit_num, Lexeme.TYPE_ARABIC_COUNT);
                                 }
                             }
                             this.start_arabic_unit_cn = -1;
                             this.end_arabic_unit_cn = -1;
                             this.start_arabic_unit_num = -1;
                             this.end_arabic_unit_num = -1;
-                        } else if (singleCharHit.isMatch()) {
+                        } else if (DictCursor.isMatch(unitState)) {
                             this.matche = true;
                         }
                     }
@@ -373,10 +441,7 @@ class CN_QuantifierSegmenter implements ISegmenter {
                 if (this.start_arabic_unit_cn != -1 && this.end_arabic_unit_cn != -1 &&
                         this.start_arabic_unit_num != -1 && this.end_arabic_unit_num != -1 && this.matche) {
                     if (this.end_arabic_unit_cn >= this.start_arabic_unit_num) {
-                        Lexeme newLexeme = new Lexeme(context.getBufferOffset(),
-                                this.start_arabic_unit_num, this.end_arabic_unit_cn - this.start_arabic_unit_num + 1,
-                                Lexeme.TYPE_ARABIC_COUNT);
-                        context.addLexeme(newLexeme);
+                        context.addLexeme(this.start_arabic_unit_num, this.end_arabic_unit_cn - this.start_arabic_unit_num + 1, Lexeme.TYPE_ARABIC_COUNT);
                     }
                 }
                 this.start_arabic_unit_cn = -1;
@@ -391,10 +456,7 @@ class CN_QuantifierSegmenter implements ISegmenter {
             if (this.start_arabic_unit_cn != -1 && this.end_arabic_unit_cn != -1 &&
                     this.start_arabic_unit_num != -1 && this.end_arabic_unit_num != -1 && this.matche) {
                 if (this.end_arabic_unit_cn >= this.start_arabic_unit_num) {
-                    Lexeme newLexeme = new Lexeme(context.getBufferOffset(),
-                            this.start_arabic_unit_num, this.end_arabic_unit_cn - this.start_arabic_unit_num + 1,
-                            Lexeme.TYPE_ARABIC_COUNT);
-                    context.addLexeme(newLexeme);
+                    context.addLexeme(this.start_arabic_unit_num, this.end_arabic_unit_cn - this.start_arabic_unit_num + 1, Lexeme.TYPE_ARABIC_COUNT);
                 }
                 this.start_arabic_unit_cn = -1;
                 this.end_arabic_unit_cn = -1;
@@ -420,8 +482,7 @@ class CN_QuantifierSegmenter implements ISegmenter {
      * @return
      */
     private boolean isSymbolicLink(char input) {
-        int index = Arrays.binarySearch(Symbolic_Link, input);
-        return index >= 0;
+        return SymbolicLinkChars.get(input);
     }
 
     /**
@@ -435,8 +496,9 @@ class CN_QuantifierSegmenter implements ISegmenter {
         }
         //找到一个相邻的数词
         if (!context.getOrgLexemes().isEmpty()) {
-            Lexeme l = context.getOrgLexemes().peekLast();
-            if (Lexeme.TYPE_CNUM == l.getLexemeType() || Lexeme.TYPE_ARABIC == l.getLexemeType()) {
+            int l = context.getOrgLexemes().peekLast();
+            int lexemeType = context.getLexemeArena().getType(l);
+            if (Lexeme.TYPE_CNUM == lexemeType || Lexeme.TYPE_ARABIC == lexemeType) {
                 return true;
 				/*if(l.getBegin() + l.getLength() == context.getCursor()){
 					return true;
@@ -454,8 +516,7 @@ class CN_QuantifierSegmenter implements ISegmenter {
         if (nStart > -1 && nEnd > -1) {
             if (nEnd >= nStart) {
                 //输出中文数字
-                Lexeme newLexeme = new Lexeme(context.getBufferOffset(), nStart, nEnd - nStart + 1, Lexeme.TYPE_CNUM);
-                context.addLexeme(newLexeme);
+                context.addLexeme(nStart, nEnd - nStart + 1, Lexeme.TYPE_CNUM);
             }
         }
     }
@@ -468,8 +529,7 @@ class CN_QuantifierSegmenter implements ISegmenter {
         if (dnStart > -1 && dnEnd > -1) {
             if (dnEnd >= dnStart) {
                 //输出中文十进制
-                Lexeme newLexeme = new Lexeme(context.getBufferOffset(), dnStart, dnEnd - dnStart + 1, Lexeme.TYPE_DENARY);
-                context.addLexeme(newLexeme);
+                context.addLexeme(dnStart, dnEnd - dnStart + 1, Lexeme.TYPE_DENARY);
             }
         }
     }
@@ -42,12 +42,66 @@ class CharacterUtil {
     public static final int CHAR_OTHER_CJK = 0X00000008;
 
 
+    //全部char的字符类型表
+    private static final byte[] CHAR_TYPES = new byte[Character.MAX_VALUE + 1];
+    //全部char的规格化结果表：全角转半角
+    private static final char[] REGULARIZED = new char[Character.MAX_VALUE + 1];
+    //全部char的规格化结果表：全角转半角，大写转小写
+    private static final char[] REGULARIZED_LOWERCASE = new char[Character.MAX_VALUE + 1];
+
+    static {
+        for (int i = 0; i <= Character.MAX_VALUE; i++) {
+            char c = (char) i;
+            CHAR_TYPES[i] = (byte) computeCharType(c);
+            REGULARIZED[i] = computeRegularized(c, false);
+            REGULARIZED_LOWERCASE[i] = computeRegularized(c, true);
+        }
+    }
+
     /**
      * 识别字符类型
      * @param input
      * @return int CharacterUtil定义的字符类型常量
      */
     static int identifyCharType(char input) {
+        return CHAR_TYPES[input];
+    }
+
+    /**
+     * 进行字符规格化（全角转半角，大写转小写处理）
+     *
+     * @param input
+     * @return char
+     */
+    static char regularize(char input, boolean lowercase) {
+        return lowercase ? REGULARIZED_LOWERCASE[input] : REGULARIZED[input];
+    }
+
+    /**
+     * 对字符数组的一段进行规格化，并记录规格化后的字符类型
+     *
+     * @param chars 字符数组，规格化结果写回原位置
+     * @param charTypes 字符类型数组
+     * @param from 起始位置(包含)
+     * @param to 结束位置(不包含)
+     * @param lowercase 是否大写转小写
+     */
+    static void regularize(char[] chars, int[] charTypes, int from, int to, boolean lowercase) {
+        char[] regularized = lowercase ? REGULARIZED_LOWERCASE : REGULARIZED;
+        byte[] types = CHAR_TYPES;
+        for (int i = from; i < to; i++) {
+            char c = regularized[chars[i]];
+            chars[i] = c;
+            charTypes[i] = types[c];
+        }
+    }
+
+    /**
+     * 计算字符类型，用于在类初始化时生成字符类型表
+     * @param input
+     * @return int CharacterUtil定义的字符类型常量
+     */
+    static int computeCharType(char input) {
         if (input >= '0' && input <= '9') {
             return CHAR_ARABIC;
 
@@ -83,12 +137,13 @@ class CharacterUtil {
     }
 
     /**
-     * 进行字符规格化（全角转半角，大写转小写处理）
+     * 计算字符规格化结果，用于在类初始化时生成规格化结果表
+     * 全角字母只转为半角，不再转小写
      *
      * @param input
      * @return char
      */
-    static char regularize(char input, boolean lowercase) {
+    static char computeRegularized(char input, boolean lowercase) {
         if (input == 12288) {
             input = (char) 32;
 
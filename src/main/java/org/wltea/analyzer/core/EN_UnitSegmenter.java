@@ -23,13 +23,10 @@
  */
 package org.wltea.analyzer.core;
 
+import org.wltea.analyzer.dic.DictCursor;
 import org.wltea.analyzer.dic.Dictionary;
-import org.wltea.analyzer.dic.Hit;
 
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Set;
+import java.util.Arrays;
 
 /**
  *
@@ -39,18 +36,8 @@ class EN_UnitSegmenter implements ISegmenter {
 
     //子分词器标签
     static final String SEGMENTER_NAME = "EN_UNIT_SEGMENTER";
-
-    //阿拉伯数字
-    private static String Arabic_Num = "0123456789";
-
-    private static Set<Character> ArabicNumberChars = new HashSet<Character>();
-
-    static {
-        char[] an = Arabic_Num.toCharArray();
-        for (char ac : an) {
-            ArabicNumberChars.add(ac);
-        }
-    }
+    //子分词器锁定位
+    static final int LOCK_BIT = AnalyzeContext.lockBit(SEGMENTER_NAME);
 
     /*
      * 词元的开始位置，
@@ -64,14 +51,21 @@ class EN_UnitSegmenter implements ISegmenter {
      */
     private int nEnd;
 
-    //待处理的英文单位hit队列
-    private List<Hit> countHits;
+    //英文单位词典匹配游标
+    private DictCursor cursor;
+    //待处理的英文单位hit队列：词段开始位置及最近一次前缀匹配状态
+    private int[] countHitBegins;
+    private int[] countHitStates;
+    private int countHitCount;
 
 
-    EN_UnitSegmenter() {
+    EN_UnitSegmenter(Dictionary dictionary) {
         nStart = -1;
         nEnd = -1;
-        this.countHits = new LinkedList<Hit>();
+        this.cursor = dictionary.newENUnitDictCursor();
+        this.countHitBegins = new int[16];
+        this.countHitStates = new int[16];
+        this.countHitCount = 0;
     }
 
     /**
@@ -79,19 +73,38 @@ class EN_UnitSegmenter implements ISegmenter {
      */
     @Override
     public void analyze(AnalyzeContext context) {
+        //没有未完成的英文单位前缀时，切换到最新的词典
+        if (this.countHitCount == 0) {
+            this.cursor.refresh();
+        }
         //处理英文单位
         this.processENUnit(context);
 
         //判断是否锁定缓冲区
         if (this.nStart == -1 && this.nEnd == -1 &&
-                countHits.isEmpty()) {
+                this.countHitCount == 0) {
             //对缓冲区解锁
-            context.unlockBuffer(SEGMENTER_NAME);
+            context.unlockBuffer(LOCK_BIT);
         } else {
-            context.lockBuffer(SEGMENTER_NAME);
+            context.lockBuffer(LOCK_BIT);
         }
     }
 
+    @Override
+    public int getLockBit() {
+        return LOCK_BIT;
+    }
+
+    @Override
+    public boolean needAnalyze(AnalyzeContext context) {
+        //只有英文字母及温度单位需要扫描英文单位，其余字符不改变状态
+        if (CharacterUtil.CHAR_ENGLISH == context.getCurrentCharType()) {
+            return true;
+        }
+        char currentChar = context.getCurrentChar();
+        return currentChar == '℃' || currentChar == '℉';
+    }
+
     /**
      * 重置子分词器状态
      */
@@ -99,7 +112,7 @@ class EN_UnitSegmenter implements ISegmenter {
     public void reset() {
         nStart = -1;
         nEnd = -1;
-        countHits.clear();
+        this.countHitCount = 0;
     }
 
     /**
@@ -117,62 +130,80 @@ class EN_UnitSegmenter implements ISegmenter {
         } else {
             //输入的不是英文字符
             //清空未成形的量词
-            this.countHits.clear();
+            this.countHitCount = 0;
         }
 
         //缓冲区数据已经读完，还有尚未输出的量词
         if (context.isBufferConsumed()) {
             //清空未成形的量词
             handleCountHits(context, true);
-            //this.countHits.clear();
+            //this.countHitCount = 0;
         }
     }
 
     private void handleCountHits(AnalyzeContext context, boolean end) {
+        char currentChar = context.getCurrentChar();
         //优先处理countHits中的hit
-        if (!this.countHits.isEmpty()) {
+        if (this.countHitCount > 0) {
             //处理词段队列
-            Hit[] tmpArray = this.countHits.toArray(new Hit[this.countHits.size()]);
-            for (Hit hit : tmpArray) {
-                hit = Dictionary.getSingleton().matchWithHit(context.getSegmentBuff(), context.getCursor(), hit);
-                if (hit.isMatch()) {
-                    //输出当前的词
-                    String text = String.valueOf(context.getSegmentBuff(), hit.getBegin(), hit.getLength());
-                    hit = Dictionary.getSingleton().matchInENUnitDict(context.getSegmentBuff(), hit.getBegin(), hit.getLength());
-                    if (null != hit && hit.isMatch()) {
-                        Lexeme newLexeme = new Lexeme(context.getBufferOffset(), hit.getBegin(), hit.getLength(), Lexeme.TYPE_EN_UNIT);
-                        context.addLexeme(newLexeme);
+            int retained = 0;
+            for (int i = 0; i < this.countHitCount; i++) {
+                int begin = this.countHitBegins[i];
+                int prefixState = this.countHitStates[i];
+                int state = this.cursor.next(prefixState, currentChar);
+                if (DictCursor.isMatch(state)) {
+                    //从词段开始位置重新匹配到当前位置，确认是英文单位后输出当前的词
+                    int length = context.getCursor() - begin + 1;
+                    if (DictCursor.isMatch(this.cursor.match(context.getSegmentBuff(), begin, length))) {
+                        context.addLexeme(begin, length, Lexeme.TYPE_EN_UNIT);
                     }
-                } else if (hit.isUnmatch()) {
+                } else if (DictCursor.isUnmatch(state)) {
                     //hit不是词，移除
-                    this.countHits.remove(hit);
+                    continue;
                 }
+                //仍为前缀时记录新的前缀状态，否则保留上一次的前缀状态
+                this.countHitBegins[retained] = begin;
+                this.countHitStates[retained] = DictCursor.isPrefix(state) ? state : prefixState;
+                retained++;
             }
+            this.countHitCount = retained;
         }
 
         //*********************************
         //对当前指针位置的字符进行单字匹配
-        Hit singleCharHit = Dictionary.getSingleton().matchInENUnitDict(context.getSegmentBuff(), context.getCursor(), 1);
+        int singleCharState = this.cursor.isFirstChar(currentChar) ? this.cursor.first(currentChar) : DictCursor.UNMATCH;
         //首字母是英文单位
-        if (singleCharHit.isMatch()) {
+        if (DictCursor.isMatch(singleCharState)) {
             //输出当前的词
-            Lexeme newLexeme = new Lexeme(context.getBufferOffset(), context.getCursor(), 1, Lexeme.TYPE_EN_UNIT);
-            context.addLexeme(newLexeme);
+            context.addLexeme(context.getCursor(), 1, Lexeme.TYPE_EN_UNIT);
 
             //同时也是词前缀
-            if (singleCharHit.isPrefix()) {
+            if (DictCursor.isPrefix(singleCharState)) {
                 //前缀匹配则放入hit列表
-                this.countHits.add(singleCharHit);
+                this.addCountHit(context.getCursor(), singleCharState);
             }
         }
         //首字母为英文单位前缀
-        else if (singleCharHit.isPrefix()) {
+        else if (DictCursor.isPrefix(singleCharState)) {
             //前缀匹配则放入hit列表
-            this.countHits.add(singleCharHit);
+            this.addCountHit(context.getCursor(), singleCharState);
         }
         if (end) {
-            this.countHits.clear();
+            this.countHitCount = 0;
+        }
+    }
+
+    /**
+     * 将英文单位前缀匹配放入hit队列
+     */
+    private void addCountHit(int begin, int state) {
+        if (this.countHitCount == this.countHitBegins.length) {
+            this.countHitBegins = Arrays.copyOf(this.countHitBegins, this.countHitCount << 1);
+            this.countHitStates = Arrays.copyOf(this.countHitStates, this.countHitCount << 1);
         }
+        this.countHitBegins[this.countHitCount] = begin;
+        this.countHitStates[this.countHitCount] = state;
+        this.countHitCount++;
     }
 
     /**
@@ -186,9 +217,9 @@ class EN_UnitSegmenter implements ISegmenter {
 		}*/
         //找到一个相邻的阿拉伯数字，因为一般英文单位前面一般是阿拉伯数字
         if (!context.getOrgLexemes().isEmpty()) {
-            Lexeme l = context.getOrgLexemes().peekLast();
+            int l = context.getOrgLexemes().peekLast();
             //如果当前英文单位词语的前面一个词是阿拉伯数字
-            if (Lexeme.TYPE_ARABIC == l.getLexemeType() &&
+            if (Lexeme.TYPE_ARABIC == context.getLexemeArena().getType(l) &&
                     CharacterUtil.CHAR_ENGLISH == context.getCurrentCharType()) {
                 return true;
                 //如果这两个词是紧挨在一起的，那么说明此时可以将这两个词组合到一起
@@ -197,10 +228,9 @@ class EN_UnitSegmenter implements ISegmenter {
 				}*/
             } else {
                 if (CharacterUtil.CHAR_ENGLISH == context.getCurrentCharType()) {
-                    Hit hit = Dictionary.getSingleton()
-                            .matchInENUnitDict(context.getSegmentBuff(), l.getBegin(), 1);
+                    int state = this.cursor.first(context.getSegmentBuff()[context.getLexemeArena().getBegin(l)]);
                     //如果前一个词是英文单位的前缀，那么接下来的字符有可能是英文单位的后续部分
-                    if (hit.isPrefix()) {
+                    if (DictCursor.isPrefix(state)) {
                         return true;
                     }
                 } else {
@@ -222,8 +252,7 @@ class EN_UnitSegmenter implements ISegmenter {
         if (nStart > -1 && nEnd > -1) {
             if (nEnd >= nStart) {
                 //输出英文单位
-                Lexeme newLexeme = new Lexeme(context.getBufferOffset(), nStart, nEnd - nStart + 1, Lexeme.TYPE_EN_UNIT);
-                context.addLexeme(newLexeme);
+                context.addLexeme(nStart, nEnd - nStart + 1, Lexeme.TYPE_EN_UNIT);
             }
         }
     }
@@ -23,16 +23,54 @@
  */
 package org.wltea.analyzer.core;
 
-import java.util.Stack;
-import java.util.TreeSet;
+import java.util.Arrays;
+
+import static org.wltea.analyzer.core.LexemeArena.NONE;
 
 /**
  * IK分词歧义裁决器
  */
 class IKArbitrator {
 
-    IKArbitrator() {
+    //初始容量
+    private static final int INITIAL_CAPACITY = 16;
 
+    //歧义路径中的词元，按起始位置升序、长度降序排列
+    private int[] lexemes;
+    //贪心切分时每个词元之后接上的词元下标，即起始位置不早于该词元结束位置的第一个词元，不存在时为词元总数
+    private int[] follows;
+    //从每个词元开始贪心切分所得后缀的词元个数、有效词长、结束位置、长度积、位置权重
+    private int[] suffixSizes;
+    private int[] suffixPayloads;
+    private int[] suffixEnds;
+    private int[] suffixXWeights;
+    private int[] suffixPWeights;
+    //首次遍历路径中各词元的下标
+    private int[] firstPass;
+    //首次遍历路径前k个词元的有效词长、长度积、位置权重
+    private int[] prefixPayloads;
+    private int[] prefixXWeights;
+    private int[] prefixPWeights;
+    //歧义路径内每个相对位置上或之后开始的第一个词元下标
+    private int[] positionFirsts;
+    //复用的路径对象，本轮裁决输出的路径在上下文输出结果后即不再使用，下轮裁决开始时全部回收
+    private LexemePath[] paths;
+    private int pathCount;
+
+    IKArbitrator() {
+        this.lexemes = new int[INITIAL_CAPACITY];
+        this.follows = new int[INITIAL_CAPACITY];
+        this.suffixSizes = new int[INITIAL_CAPACITY];
+        this.suffixPayloads = new int[INITIAL_CAPACITY];
+        this.suffixEnds = new int[INITIAL_CAPACITY];
+        this.suffixXWeights = new int[INITIAL_CAPACITY];
+        this.suffixPWeights = new int[INITIAL_CAPACITY];
+        this.firstPass = new int[INITIAL_CAPACITY];
+        this.prefixPayloads = new int[INITIAL_CAPACITY + 1];
+        this.prefixXWeights = new int[INITIAL_CAPACITY + 1];
+        this.prefixPWeights = new int[INITIAL_CAPACITY + 1];
+        this.positionFirsts = new int[INITIAL_CAPACITY + 1];
+        this.paths = new LexemePath[INITIAL_CAPACITY];
     }
 
     /**
@@ -41,10 +79,13 @@ class IKArbitrator {
      */
     void process(AnalyzeContext context, boolean useSmart) {
         QuickSortSet orgLexemes = context.getOrgLexemes();
-        Lexeme orgLexeme = orgLexemes.pollFirst();
+        LexemeArena arena = context.getLexemeArena();
+        int orgLexeme = orgLexemes.pollFirst();
+        //上一轮的路径已由context.outputToResult输出完毕
+        this.pathCount = 0;
 
-        LexemePath crossPath = new LexemePath();
-        while (orgLexeme != null) {
+        LexemePath crossPath = this.newPath(arena);
+        while (orgLexeme != NONE) {
             if (!crossPath.addCrossLexeme(orgLexeme)) {
                 //找到与crossPath不相交的下一个crossPath
                 if (crossPath.size() == 1 || !useSmart) {
@@ -53,14 +94,13 @@ class IKArbitrator {
                     context.addLexemePath(crossPath);
                 } else {
                     //对当前的crossPath进行歧义处理
-                    QuickSortSet.Cell headCell = crossPath.getHead();
-                    LexemePath judgeResult = this.judge(headCell, crossPath.getPathLength());
+                    LexemePath judgeResult = this.judge(crossPath);
                     //输出歧义处理结果judgeResult
                     context.addLexemePath(judgeResult);
                 }
 
                 //把orgLexeme加入新的crossPath中
-                crossPath = new LexemePath();
+                crossPath = this.newPath(arena);
                 crossPath.addCrossLexeme(orgLexeme);
             }
             orgLexeme = orgLexemes.pollFirst();
@@ -74,8 +114,7 @@ class IKArbitrator {
             context.addLexemePath(crossPath);
         } else {
             //对当前的crossPath进行歧义处理
-            QuickSortSet.Cell headCell = crossPath.getHead();
-            LexemePath judgeResult = this.judge(headCell, crossPath.getPathLength());
+            LexemePath judgeResult = this.judge(crossPath);
             //输出歧义处理结果judgeResult
             context.addLexemePath(judgeResult);
         }
@@ -83,66 +122,200 @@ class IKArbitrator {
 
     /**
      * 歧义识别
-     * @param lexemeCell 歧义路径链表头
-     * @param fullTextLength 歧义路径文本长度
-     * @return
+     * 候选路径有两类：从首个词元开始贪心切分得到的首次遍历路径；
+     * 以及对首次遍历中每个冲突词元c，保留首次遍历路径中结束位置不晚于c的部分，再从c开始贪心切分得到的路径。
+     * 先从右向左递推出每个词元开始的贪心后缀的统计量，再沿首次遍历路径累计前缀的统计量，
+     * 每条候选路径的权重即可由前缀与后缀直接拼出，裁决为O(n)，过程中不复制路径，只生成最终选中的一条。
+     * 候选路径依次为首次遍历路径、冲突词元从后向前对应的路径，只有严格更优时才替换当前最优路径。
+     * @param crossPath 歧义路径
+     * @return 最优路径
      */
-    private LexemePath judge(QuickSortSet.Cell lexemeCell, int fullTextLength) {
-        //候选路径集合
-        TreeSet<LexemePath> pathOptions = new TreeSet<LexemePath>();
-        //候选结果路径
-        LexemePath option = new LexemePath();
+    LexemePath judge(LexemePath crossPath) {
+        LexemeArena arena = crossPath.arena;
+        int n = crossPath.size();
+        int pathBegin = crossPath.getPathBegin();
+        int pathLength = crossPath.getPathLength();
+        this.ensureCapacity(n, pathLength);
 
-        //对crossPath进行一次遍历,同时返回本次遍历中有冲突的Lexeme栈
-        Stack<QuickSortSet.Cell> lexemeStack = this.forwardPath(lexemeCell, option);
+        int count = 0;
+        for (int c = crossPath.getHead(); c != NONE; c = crossPath.getNext(c)) {
+            this.lexemes[count++] = crossPath.getLexeme(c);
+        }
+        //每个相对位置上或之后开始的第一个词元
+        int index = n;
+        for (int position = pathLength; position >= 0; position--) {
+            while (index > 0 && arena.getBegin(this.lexemes[index - 1]) >= pathBegin + position) {
+                index--;
+            }
+            this.positionFirsts[position] = index;
+        }
 
-        //当前词元链并非最理想的，加入候选路径集合
-        pathOptions.add(option.copy());
+        //从右向左递推每个词元开始的贪心后缀
+        for (int i = n - 1; i >= 0; i--) {
+            int length = arena.getLength(this.lexemes[i]);
+            int end = arena.getBegin(this.lexemes[i]) + length;
+            int follow = this.positionFirsts[end - pathBegin];
+            this.follows[i] = follow;
+            if (follow == n) {
+                this.suffixSizes[i] = 1;
+                this.suffixPayloads[i] = length;
+                this.suffixEnds[i] = end;
+                this.suffixXWeights[i] = length;
+                this.suffixPWeights[i] = length;
+            } else {
+                this.suffixSizes[i] = this.suffixSizes[follow] + 1;
+                this.suffixPayloads[i] = this.suffixPayloads[follow] + length;
+                this.suffixEnds[i] = this.suffixEnds[follow];
+                this.suffixXWeights[i] = this.suffixXWeights[follow] * length;
+                //接在当前词元之后，后缀中每个词元的序号加1，位置权重增加一份后缀的有效词长
+                this.suffixPWeights[i] = this.suffixPWeights[follow] + this.suffixPayloads[follow] + length;
+            }
+        }
 
-        //存在歧义词，处理
-        QuickSortSet.Cell c = null;
-        while (!lexemeStack.isEmpty()) {
-            c = lexemeStack.pop();
-            //回滚词元链
-            this.backPath(c.getLexeme(), option);
-            //从歧义词位置开始，递归，生成可选方案
-            this.forwardPath(c, option);
-            pathOptions.add(option.copy());
+        //首次遍历路径及其前缀的统计量，未进入首次遍历路径的词元均为冲突词元
+        int firstPassSize = 0;
+        this.prefixPayloads[0] = 0;
+        this.prefixXWeights[0] = 1;
+        this.prefixPWeights[0] = 0;
+        for (int i = 0; i < n; i = this.follows[i]) {
+            int length = arena.getLength(this.lexemes[i]);
+            this.firstPass[firstPassSize++] = i;
+            this.prefixPayloads[firstPassSize] = this.prefixPayloads[firstPassSize - 1] + length;
+            this.prefixXWeights[firstPassSize] = this.prefixXWeights[firstPassSize - 1] * length;
+            this.prefixPWeights[firstPassSize] = this.prefixPWeights[firstPassSize - 1] + firstPassSize * length;
         }
 
-        //返回集合中的最优方案
-        return pathOptions.first();
+        //首次遍历路径作为初始的最优路径
+        int bestPrefix = 0;
+        int bestSuffix = 0;
+        int bestSize = this.suffixSizes[0];
+        int bestPayload = this.suffixPayloads[0];
+        int bestPathLength = this.suffixEnds[0] - pathBegin;
+        int bestEnd = this.suffixEnds[0];
+        int bestXWeight = this.suffixXWeights[0];
+        int bestPWeight = this.suffixPWeights[0];
+
+        int prefix = firstPassSize;
+        int firstPassIndex = firstPassSize - 1;
+        for (int c = n - 1; c > 0; c--) {
+            if (firstPassIndex >= 0 && this.firstPass[firstPassIndex] == c) {
+                //首次遍历路径中的词元
+                firstPassIndex--;
+                continue;
+            }
+            //回滚首次遍历路径，直到不与冲突词元相交
+            int begin = arena.getBegin(this.lexemes[c]);
+            while (prefix > 0 && this.endOf(arena, this.firstPass[prefix - 1]) > begin) {
+                prefix--;
+            }
+
+            int size = prefix + this.suffixSizes[c];
+            int payload = this.prefixPayloads[prefix] + this.suffixPayloads[c];
+            int end = this.suffixEnds[c];
+            int length = end - (prefix > 0 ? pathBegin : begin);
+            int xWeight = this.prefixXWeights[prefix] * this.suffixXWeights[c];
+            int pWeight = this.prefixPWeights[prefix] + prefix * this.suffixPayloads[c] + this.suffixPWeights[c];
+            if (compare(payload, size, length, end, xWeight, pWeight,
+                    bestPayload, bestSize, bestPathLength, bestEnd, bestXWeight, bestPWeight) < 0) {
+                bestPrefix = prefix;
+                bestSuffix = c;
+                bestSize = size;
+                bestPayload = payload;
+                bestPathLength = length;
+                bestEnd = end;
+                bestXWeight = xWeight;
+                bestPWeight = pWeight;
+            }
+        }
 
+        //生成最优路径
+        LexemePath best = this.newPath(arena);
+        for (int i = 0; i < bestPrefix; i++) {
+            best.addNotCrossLexeme(this.lexemes[this.firstPass[i]]);
+        }
+        for (int i = bestSuffix; i < n; i = this.follows[i]) {
+            best.addNotCrossLexeme(this.lexemes[i]);
+        }
+        return best;
     }
 
     /**
-     * 向前遍历，添加词元，构造一个无歧义词元组合
-     * @return
+     * 取一个空路径，优先复用已回收的路径对象
      */
-    private Stack<QuickSortSet.Cell> forwardPath(QuickSortSet.Cell lexemeCell, LexemePath option) {
-        //发生冲突的Lexeme栈
-        Stack<QuickSortSet.Cell> conflictStack = new Stack<QuickSortSet.Cell>();
-        QuickSortSet.Cell c = lexemeCell;
-        //迭代遍历Lexeme链表
-        while (c != null && c.getLexeme() != null) {
-            if (!option.addNotCrossLexeme(c.getLexeme())) {
-                //词元交叉，添加失败则加入lexemeStack栈
-                conflictStack.push(c);
-            }
-            c = c.getNext();
+    private LexemePath newPath(LexemeArena arena) {
+        if (this.pathCount == this.paths.length) {
+            this.paths = Arrays.copyOf(this.paths, this.pathCount << 1);
+        }
+        LexemePath path = this.paths[this.pathCount];
+        //上下文按线程借出，换用了其他上下文时重新生成
+        if (path == null || path.arena != arena) {
+            path = new LexemePath(arena);
+            this.paths[this.pathCount] = path;
+        } else {
+            path.clear();
         }
-        return conflictStack;
+        this.pathCount++;
+        return path;
+    }
+
+    /**
+     * 词元在缓冲区中的结束位置
+     */
+    private int endOf(LexemeArena arena, int index) {
+        return arena.getBegin(this.lexemes[index]) + arena.getLength(this.lexemes[index]);
     }
 
     /**
-     * 回滚词元链，直到它能够接受指定的词元
-     * @param l
+     * 比较两条路径的权重，与LexemePath.compareTo一致
+     * @return 前一条路径更优时返回负数
      */
-    private void backPath(Lexeme l, LexemePath option) {
-        while (option.checkCross(l)) {
-            option.removeTail();
+    private static int compare(int payload, int size, int pathLength, int pathEnd, int xWeight, int pWeight,
+                               int otherPayload, int otherSize, int otherPathLength, int otherPathEnd, int otherXWeight, int otherPWeight) {
+        //有效文本长度越长越好
+        if (payload != otherPayload) {
+            return payload > otherPayload ? -1 : 1;
         }
+        //词元个数越少越好
+        if (size != otherSize) {
+            return size < otherSize ? -1 : 1;
+        }
+        //路径跨度越大越好
+        if (pathLength != otherPathLength) {
+            return pathLength > otherPathLength ? -1 : 1;
+        }
+        //位置越靠后越好
+        if (pathEnd != otherPathEnd) {
+            return pathEnd > otherPathEnd ? -1 : 1;
+        }
+        //词长越平均越好
+        if (xWeight != otherXWeight) {
+            return xWeight > otherXWeight ? -1 : 1;
+        }
+        //词元位置权重越大越好
+        if (pWeight != otherPWeight) {
+            return pWeight > otherPWeight ? -1 : 1;
+        }
+        return 0;
+    }
 
+    private void ensureCapacity(int size, int pathLength) {
+        if (size > this.lexemes.length) {
+            int capacity = Math.max(size, this.lexemes.length << 1);
+            this.lexemes = new int[capacity];
+            this.follows = new int[capacity];
+            this.suffixSizes = new int[capacity];
+            this.suffixPayloads = new int[capacity];
+            this.suffixEnds = new int[capacity];
+            this.suffixXWeights = new int[capacity];
+            this.suffixPWeights = new int[capacity];
+            this.firstPass = new int[capacity];
+            this.prefixPayloads = new int[capacity + 1];
+            this.prefixXWeights = new int[capacity + 1];
+            this.prefixPWeights = new int[capacity + 1];
+        }
+        if (pathLength >= this.positionFirsts.length) {
+            this.positionFirsts = new int[Math.max(pathLength + 1, this.positionFirsts.length << 1)];
+        }
     }
 
 }
@@ -29,8 +29,6 @@ import org.wltea.analyzer.dic.Dictionary;
 
 import java.io.IOException;
 import java.io.Reader;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * IK分词器主类
@@ -39,12 +37,16 @@ import java.util.List;
 public final class IKSegmenter {
     //字符窜reader
     private Reader input;
-    //分词器配置项
+    //分词器配置项，各分词器共享
     private Configuration cfg;
-    //分词器上下文
+    //是否使用智能分词策略
+    private boolean useSmart;
+    //分词器使用的词典
+    private Dictionary dictionary;
+    //分词器上下文，分析文本时从当前线程的上下文池借出，文本分析完毕后归还
     private AnalyzeContext context;
-    //分词处理器列表
-    private List<ISegmenter> segmenters;
+    //分词处理器，逐字遍历时按下标访问，不生成迭代器
+    private ISegmenter[] segmenters;
     //分词歧义裁决器
     private IKArbitrator arbitrator;
 
@@ -57,21 +59,41 @@ public final class IKSegmenter {
      * 智能分词： 合并数词和量词，对分词结果进行歧义判断
      */
     public IKSegmenter(Reader input, boolean useSmart) {
-        this.input = input;
-        this.cfg = DefaultConfig.getInstance();
-        this.cfg.setUseSmart(useSmart);
-        this.init();
+        this(input, DefaultConfig.getInstance(), useSmart);
     }
 
     /**
      * IK分词器构造函数
      * @param input
-     * @param cfg 使用自定义的Configuration构造分词器
+     * @param cfg 使用自定义的Configuration构造分词器，切分策略取cfg.useSmart()
      *
      */
     public IKSegmenter(Reader input, Configuration cfg) {
+        this(input, cfg, cfg.useSmart());
+    }
+
+    /**
+     * IK分词器构造函数
+     * @param input
+     * @param cfg 使用自定义的Configuration构造分词器
+     * @param useSmart 为true，使用智能分词策略
+     */
+    public IKSegmenter(Reader input, Configuration cfg, boolean useSmart) {
+        this(input, cfg, null, useSmart);
+    }
+
+    /**
+     * IK分词器构造函数
+     * @param input
+     * @param cfg 使用自定义的Configuration构造分词器
+     * @param dictionary 使用指定的词典，如Dictionary.shared返回的共享词典；为null时使用以cfg初始化的词典单例
+     * @param useSmart 为true，使用智能分词策略
+     */
+    public IKSegmenter(Reader input, Configuration cfg, Dictionary dictionary, boolean useSmart) {
         this.input = input;
         this.cfg = cfg;
+        this.dictionary = dictionary;
+        this.useSmart = useSmart;
         this.init();
     }
 
@@ -79,10 +101,10 @@ public final class IKSegmenter {
      * 初始化
      */
     private void init() {
-        //初始化词典单例
-        Dictionary.initial(this.cfg);
-        //初始化分词上下文
-        this.context = new AnalyzeContext(this.cfg);
+        //未指定词典时，初始化词典单例
+        if (this.dictionary == null) {
+            this.dictionary = Dictionary.initial(this.cfg);
+        }
         //加载子分词器
         this.segmenters = this.loadSegmenters();
         //加载歧义裁决器
@@ -92,20 +114,19 @@ public final class IKSegmenter {
 
     /**
      * 初始化词典，加载子分词器实现
-     * @return List<ISegmenter>
+     * @return ISegmenter[]
      */
-    private List<ISegmenter> loadSegmenters() {
-        List<ISegmenter> segmenters = new ArrayList<ISegmenter>(4);
-        //处理英文字母的子分词器
-        segmenters.add(new LetterSegmenter());
-        //处理英文单位的子分词器
-        segmenters.add(new EN_UnitSegmenter());
-        //处理中文词语的子分词器
-        segmenters.add(new CJKSegmenter());
-        //处理中文数量词的子分词器
-        segmenters.add(new CN_QuantifierSegmenter());
-
-        return segmenters;
+    private ISegmenter[] loadSegmenters() {
+        return new ISegmenter[]{
+                //处理英文字母的子分词器
+                new LetterSegmenter(this.dictionary),
+                //处理英文单位的子分词器
+                new EN_UnitSegmenter(this.dictionary),
+                //处理中文词语的子分词器
+                this.cfg.isEnableAhoCorasick() ? new AhoCorasickCJKSegmenter(this.dictionary) : new CJKSegmenter(this.dictionary),
+                //处理中文数量词的子分词器
+                new CN_QuantifierSegmenter(this.dictionary)
+        };
     }
 
     /**
@@ -114,46 +135,83 @@ public final class IKSegmenter {
      * @throws IOException
      */
     public synchronized Lexeme next() throws IOException {
+        if (this.context == null) {
+            this.context = AnalyzeContext.borrow(this.cfg, this.dictionary, this.useSmart);
+        }
         Lexeme l = null;
         while ((l = context.getNextLexeme()) == null) {
-            /*
-			 * 从reader中读取数据，填充buffer
-			 * 如果reader是分次读入buffer的，那么buffer要  进行移位处理
-			 * 移位处理上次读入的但未处理的数据
-			 */
-            int available = context.fillBuffer(this.input);
-            if (available <= 0) {
-                //reader已经读完
-                context.reset();
+            if (!this.analyzeNextBuffer()) {
                 return null;
+            }
+        }
+        return l;
+    }
+
+    /**
+     * 分词，将下一个词元写入调用方提供的词元对象
+     * 不生成词元文本，词元文本只在下一次调用next之前可以读取，调用方应立即通过Lexeme.getLexemeChars复制，
+     * 需要保留词元的调用方应使用next()
+     * @param lexeme 复用的词元对象
+     * @return boolean 是否取到词元，为false表示文本已经分析完
+     * @throws IOException
+     */
+    public synchronized boolean next(Lexeme lexeme) throws IOException {
+        if (this.context == null) {
+            this.context = AnalyzeContext.borrow(this.cfg, this.dictionary, this.useSmart);
+        }
+        while (!context.getNextLexeme(lexeme)) {
+            if (!this.analyzeNextBuffer()) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-            } else {
-                //初始化指针
-                context.initCursor();
-                do {
-                    //遍历子分词器
-                    for (ISegmenter segmenter : segmenters) {
-                        segmenter.analyze(context);
-                    }
-                    //字符缓冲区接近读完，需要读入新的字符
-                    if (context.needRefillBuffer()) {
-                        break;
-                    }
-                    //向前移动指针
-                } while (context.moveCursor());
-                //重置子分词器，为下轮循环进行初始化
-                for (ISegmenter segmenter : segmenters) {
-                    segmenter.reset();
+    /**
+     * 读入并分析下一段文本，分词结果放入上下文的结果集
+     * @return boolean 为false表示reader已经读完，上下文已归还
+     * @throws IOException
+     */
+    private boolean analyzeNextBuffer() throws IOException {
+        /*
+         * 从reader中读取数据，填充buffer
+         * 如果reader是分次读入buffer的，那么buffer要  进行移位处理
+         * 移位处理上次读入的但未处理的数据
+         */
+        int available = context.fillBuffer(this.input);
+        if (available <= 0) {
+            //reader已经读完，归还上下文
+            context.release();
+            this.context = null;
+            return false;
+        }
+        //初始化指针
+        context.initCursor();
+        do {
+            //遍历子分词器，跳过未锁定缓冲区、且当前字符对其不产生作用的子分词器
+            for (int i = 0; i < segmenters.length; i++) {
+                ISegmenter segmenter = segmenters[i];
+                if (context.isBufferLocked(segmenter.getLockBit()) || segmenter.needAnalyze(context)) {
+                    segmenter.analyze(context);
                 }
             }
-            //对分词进行歧义处理
-            this.arbitrator.process(context, this.cfg.useSmart());
-            //将分词结果输出到结果集，并处理未切分的单个CJK字符
-            context.outputToResult();
-            //记录本次分词的缓冲区位移
-            context.markBufferOffset();
+            //字符缓冲区接近读完，需要读入新的字符
+            if (context.needRefillBuffer()) {
+                break;
+            }
+            //向前移动指针
+        } while (context.moveCursor());
+        //重置子分词器，为下轮循环进行初始化
+        for (int i = 0; i < segmenters.length; i++) {
+            segmenters[i].reset();
         }
-        return l;
+        //对分词进行歧义处理
+        this.arbitrator.process(context, this.useSmart);
+        //将分词结果输出到结果集，并处理未切分的单个CJK字符
+        context.outputToResult();
+        //记录本次分词的缓冲区位移
+        context.markBufferOffset();
+        return true;
     }
 
     /**
@@ -162,13 +220,26 @@ public final class IKSegmenter {
      */
     public synchronized void reset(Reader input) {
         this.input = input;
-        context.reset();
-        for (ISegmenter segmenter : segmenters) {
-            segmenter.reset();
+        if (this.context != null) {
+            this.context.reset();
+        }
+        for (int i = 0; i < segmenters.length; i++) {
+            segmenters[i].resetInput();
+        }
+    }
+
+    /**
+     * 设置切分策略，只影响当前分词器
+     * @param useSmart 为true，使用智能分词策略
+     */
+    public synchronized void setUseSmart(boolean useSmart) {
+        this.useSmart = useSmart;
+        if (this.context != null) {
+            this.context.setUseSmart(useSmart);
         }
     }
 
-    public void setUseSmart(boolean useSmart) {
-        this.cfg.setUseSmart(useSmart);
+    public boolean useSmart() {
+        return this.useSmart;
     }
 }
@@ -36,10 +36,34 @@ interface ISegmenter {
      */
     void analyze(AnalyzeContext context);
 
+    /**
+     * 判断当前字符是否需要交给本子分词器处理
+     * 只在子分词器未锁定缓冲区时调用，锁定缓冲区的子分词器总是处理每个字符。
+     * 返回false时，analyze对当前字符不产生词元、不改变子分词器状态，也不锁定缓冲区，分词器可以跳过本次调用
+     * @param context 分词算法上下文
+     * @return boolean
+     */
+    boolean needAnalyze(AnalyzeContext context);
+
+    /**
+     * 子分词器锁定缓冲区时使用的锁定位
+     * 由AnalyzeContext.lockBit按子分词器名称分配，各子分词器互不相同
+     * @return 只有一位为1的int
+     */
+    int getLockBit();
+
 
     /**
      * 重置子分析器状态
      */
     void reset();
 
+    /**
+     * 开始分析新的文本前重置子分析器的全部状态
+     * reset在同一文本的缓冲区之间也会调用，跨缓冲区保留的状态只在此清除
+     */
+    default void resetInput() {
+        this.reset();
+    }
+
 }
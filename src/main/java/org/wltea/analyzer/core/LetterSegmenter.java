@@ -26,7 +26,7 @@ package org.wltea.analyzer.core;
 import org.wltea.analyzer.dic.Dictionary;
 import org.wltea.analyzer.dic.Hit;
 
-import java.util.Arrays;
+import java.util.BitSet;
 
 /**
  *
@@ -36,12 +36,29 @@ class LetterSegmenter implements ISegmenter {
 
     //子分词器标签
     static final String SEGMENTER_NAME = "LETTER_SEGMENTER";
+    //子分词器锁定位
+    static final int LOCK_BIT = AnalyzeContext.lockBit(SEGMENTER_NAME);
     //链接符号
     private static final char[] Letter_Connector = new char[]{'#', '&', '+', '-', '.', '@', '_'};
 
     //数字符号
     private static final char[] Num_Connector = new char[]{',', '.'};
 
+    //链接符号位图，以字符编码为下标
+    private static final BitSet LetterConnectorChars = new BitSet();
+
+    //数字符号位图，以字符编码为下标
+    private static final BitSet NumConnectorChars = new BitSet();
+
+    static {
+        for (char lc : Letter_Connector) {
+            LetterConnectorChars.set(lc);
+        }
+        for (char nc : Num_Connector) {
+            NumConnectorChars.set(nc);
+        }
+    }
+
     /*
      * 词元的开始位置，
      * 同时作为子分词器状态标识
@@ -74,9 +91,17 @@ class LetterSegmenter implements ISegmenter {
      */
     private int arabicEnd;
 
+    /*
+     * 英文单位词典所在的词典，为null时使用词典单例
+     */
+    private final Dictionary dictionary;
+
     public LetterSegmenter() {
-        Arrays.sort(Letter_Connector);
-        Arrays.sort(Num_Connector);
+        this(null);
+    }
+
+    LetterSegmenter(Dictionary dictionary) {
+        this.dictionary = dictionary;
         this.start = -1;
         this.end = -1;
         this.englishStart = -1;
@@ -97,13 +122,25 @@ class LetterSegmenter implements ISegmenter {
 
         //判断是否锁定缓冲区
         if (bufferLockFlag) {
-            context.lockBuffer(SEGMENTER_NAME);
+            context.lockBuffer(LOCK_BIT);
         } else {
             //对缓冲区解锁
-            context.unlockBuffer(SEGMENTER_NAME);
+            context.unlockBuffer(LOCK_BIT);
         }
     }
 
+    @Override
+    public int getLockBit() {
+        return LOCK_BIT;
+    }
+
+    @Override
+    public boolean needAnalyze(AnalyzeContext context) {
+        //未锁定缓冲区时没有处理中的词元，只有字母和数字会开始新的词元
+        int charType = context.getCurrentCharType();
+        return CharacterUtil.CHAR_ARABIC == charType || CharacterUtil.CHAR_ENGLISH == charType;
+    }
+
     @Override
     public void reset() {
         this.start = -1;
@@ -143,8 +180,7 @@ class LetterSegmenter implements ISegmenter {
             } else {
                 if (this.end >= this.start) {
                     //遇到非Letter字符，输出词元
-                    Lexeme newLexeme = new Lexeme(context.getBufferOffset(), this.start, this.end - this.start + 1, Lexeme.TYPE_LETTER);
-                    context.addLexeme(newLexeme);
+                    context.addLexeme(this.start, this.end - this.start + 1, Lexeme.TYPE_LETTER);
                 }
                 this.start = -1;
                 this.end = -1;
@@ -155,8 +191,7 @@ class LetterSegmenter implements ISegmenter {
         if (context.isBufferConsumed()) {
             if (this.start != -1 && this.end != -1) {
                 if (this.end >= this.start) {
-                    Lexeme newLexeme = new Lexeme(context.getBufferOffset(), this.start, this.end - this.start + 1, Lexeme.TYPE_LETTER);
-                    context.addLexeme(newLexeme);
+                    context.addLexeme(this.start, this.end - this.start + 1, Lexeme.TYPE_LETTER);
                 }
 
                 this.start = -1;
@@ -195,8 +230,7 @@ class LetterSegmenter implements ISegmenter {
             } else {
                 if (this.englishEnd >= this.englishStart) {
                     //遇到非English字符,输出词元
-                    Lexeme newLexeme = new Lexeme(context.getBufferOffset(), this.englishStart, this.englishEnd - this.englishStart + 1, Lexeme.TYPE_ENGLISH);
-                    context.addLexeme(newLexeme);
+                    context.addLexeme(this.englishStart, this.englishEnd - this.englishStart + 1, Lexeme.TYPE_ENGLISH);
                 }
                 this.englishStart = -1;
                 this.englishEnd = -1;
@@ -207,7 +241,8 @@ class LetterSegmenter implements ISegmenter {
         if (context.isBufferConsumed()) {
             if (this.englishStart != -1 && this.englishEnd != -1) {
                 //添加英文单词之前，先判断它是不是英文单位
-                Hit shit = Dictionary.getSingleton().matchInENUnitDict(context.getSegmentBuff(), englishStart, this.englishEnd - this.englishStart + 1);
+                Dictionary dictionary = this.dictionary != null ? this.dictionary : Dictionary.getSingleton();
+                Hit shit = dictionary.matchInENUnitDict(context.getSegmentBuff(), englishStart, this.englishEnd - this.englishStart + 1);
                 int lexemeType = 0;
                 if (shit.isMatch()) {
                     lexemeType = Lexeme.TYPE_EN_UNIT;
@@ -215,8 +250,7 @@ class LetterSegmenter implements ISegmenter {
                     lexemeType = Lexeme.TYPE_ENGLISH;
                 }
                 if (this.englishEnd >= this.englishStart) {
-                    Lexeme newLexeme = new Lexeme(context.getBufferOffset(), this.englishStart, this.englishEnd - this.englishStart + 1, lexemeType);
-                    context.addLexeme(newLexeme);
+                    context.addLexeme(this.englishStart, this.englishEnd - this.englishStart + 1, lexemeType);
                 }
                 this.englishStart = -1;
                 this.englishEnd = -1;
@@ -256,8 +290,7 @@ class LetterSegmenter implements ISegmenter {
                 if (this.arabicEnd >= this.arabicStart) {
                     //不输出数字，但不标记结束
                     //遇到非Arabic字符,输出词元
-                    Lexeme newLexeme = new Lexeme(context.getBufferOffset(), this.arabicStart, this.arabicEnd - this.arabicStart + 1, Lexeme.TYPE_ARABIC);
-                    context.addLexeme(newLexeme);
+                    context.addLexeme(this.arabicStart, this.arabicEnd - this.arabicStart + 1, Lexeme.TYPE_ARABIC);
                 }
 
                 this.arabicStart = -1;
@@ -270,8 +303,7 @@ class LetterSegmenter implements ISegmenter {
             if (this.arabicStart != -1 && this.arabicEnd != -1) {
                 if (this.arabicEnd >= this.arabicStart) {
                     //生成已切分的词元
-                    Lexeme newLexeme = new Lexeme(context.getBufferOffset(), this.arabicStart, this.arabicEnd - this.arabicStart + 1, Lexeme.TYPE_ARABIC);
-                    context.addLexeme(newLexeme);
+                    context.addLexeme(this.arabicStart, this.arabicEnd - this.arabicStart + 1, Lexeme.TYPE_ARABIC);
                 }
                 this.arabicStart = -1;
                 this.arabicEnd = -1;
@@ -294,8 +326,7 @@ class LetterSegmenter implements ISegmenter {
      * @return
      */
     private boolean isLetterConnector(char input) {
-        int index = Arrays.binarySearch(Letter_Connector, input);
-        return index >= 0;
+        return LetterConnectorChars.get(input);
     }
 
     /**
@@ -304,7 +335,6 @@ class LetterSegmenter implements ISegmenter {
      * @return
      */
     private boolean isNumConnector(char input) {
-        int index = Arrays.binarySearch(Num_Connector, input);
-        return index >= 0;
+        return NumConnectorChars.get(input);
     }
 }
@@ -72,6 +72,8 @@ public class Lexeme implements Comparable<Lexeme>, Cloneable {
     private int length;
     //词元文本
     private String lexemeText;
+    //尚未生成词元文本时，词元所在的字符缓冲区，第一次读取词元文本时生成String
+    private char[] textBuffer;
     //词元类型
     private int lexemeType;
 
@@ -208,16 +210,35 @@ public class Lexeme implements Comparable<Lexeme>, Cloneable {
 
     /**
      * 获取词元的文本内容
+     * 词元文本在第一次读取时从字符缓冲区生成
      * @return String
      */
     public String getLexemeText() {
+        if (this.textBuffer != null) {
+            this.lexemeText = String.valueOf(this.textBuffer, this.begin, this.length);
+            this.textBuffer = null;
+        }
         if (lexemeText == null) {
             return "";
         }
         return lexemeText;
     }
 
+    /**
+     * 将词元文本复制到字符数组，尚未生成词元文本时直接从字符缓冲区复制，不生成String
+     * @param dest 目标数组，从destBegin开始至少有getLength()个位置
+     * @param destBegin 目标数组的起始位置
+     */
+    public void getLexemeChars(char[] dest, int destBegin) {
+        if (this.textBuffer != null) {
+            System.arraycopy(this.textBuffer, this.begin, dest, destBegin, this.length);
+        } else if (this.lexemeText != null) {
+            this.lexemeText.getChars(0, this.lexemeText.length(), dest, destBegin);
+        }
+    }
+
     public void setLexemeText(String lexemeText) {
+        this.textBuffer = null;
         if (lexemeText == null) {
             this.lexemeText = "";
             this.length = 0;
@@ -227,6 +248,16 @@ public class Lexeme implements Comparable<Lexeme>, Cloneable {
         }
     }
 
+    /**
+     * 指定词元所在的字符缓冲区，词元文本延迟到读取时生成
+     * 调用方负责在缓冲区被改写前调用getLexemeText生成词元文本
+     * @param textBuffer 字符缓冲区，begin为词元在其中的起始位置
+     */
+    void setTextBuffer(char[] textBuffer) {
+        this.textBuffer = textBuffer;
+        this.lexemeText = null;
+    }
+
     /**
      * 获取词元类型
      * @return int
@@ -314,7 +345,7 @@ public class Lexeme implements Comparable<Lexeme>, Cloneable {
     public String toString() {
         StringBuffer strbuf = new StringBuffer();
         strbuf.append(this.getBeginPosition()).append("-").append(this.getEndPosition());
-        strbuf.append(" : ").append(this.lexemeText).append(" : \t");
+        strbuf.append(" : ").append(this.getLexemeText()).append(" : \t");
         strbuf.append(this.getLexemeTypeString());
         return strbuf.toString();
     }
@@ -326,6 +357,8 @@ public class Lexeme implements Comparable<Lexeme>, Cloneable {
      */
     @Override
     protected Lexeme clone() {
+        //克隆前生成词元文本，克隆对象不引用字符缓冲区
+        this.getLexemeText();
         Lexeme lexeme = null;
         try {
             lexeme = (Lexeme) super.clone();
@@ -0,0 +1,174 @@
+package org.wltea.analyzer.core;
+
+import java.util.Arrays;
+
+/**
+ * 词元存储区
+ * 以并列的int数组保存一轮分析中产生的全部词元，词元以数组下标(句柄)表示；
+ * QuickSortSet及LexemePath的链表单元同样以下标相互链接，存放在本存储区中。
+ * 子分词器、歧义裁决及结果输出只操作句柄，Lexeme对象只在IKSegmenter.next()输出时生成。
+ * 每轮分析开始时清空，数组保留复用。
+ */
+final class LexemeArena {
+
+    //空句柄
+    static final int NONE = -1;
+    //初始容量
+    private static final int INITIAL_CAPACITY = 256;
+
+    //词元的起始位移
+    private int[] offsets;
+    //词元的相对起始位置
+    private int[] begins;
+    //词元的长度
+    private int[] lengths;
+    //词元类型
+    private int[] types;
+    //词元数
+    private int lexemeCount;
+
+    //链表单元对应的词元
+    private int[] cellLexemes;
+    //链表单元的前一个单元
+    private int[] cellPrevs;
+    //链表单元的后一个单元
+    private int[] cellNexts;
+    //链表单元数
+    private int cellCount;
+
+    LexemeArena() {
+        this.offsets = new int[INITIAL_CAPACITY];
+        this.begins = new int[INITIAL_CAPACITY];
+        this.lengths = new int[INITIAL_CAPACITY];
+        this.types = new int[INITIAL_CAPACITY];
+        this.cellLexemes = new int[INITIAL_CAPACITY];
+        this.cellPrevs = new int[INITIAL_CAPACITY];
+        this.cellNexts = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * 清空全部词元及链表单元
+     */
+    void clear() {
+        this.lexemeCount = 0;
+        this.cellCount = 0;
+    }
+
+    /**
+     * 新建词元
+     * @return 词元句柄
+     */
+    int newLexeme(int offset, int begin, int length, int lexemeType) {
+        if (length < 0) {
+            throw new IllegalArgumentException("length < 0，offset:{" + offset + "},begin:{" + begin + "},length:{" + length + "}");
+        }
+        if (this.lexemeCount == this.offsets.length) {
+            int newCapacity = this.lexemeCount << 1;
+            this.offsets = Arrays.copyOf(this.offsets, newCapacity);
+            this.begins = Arrays.copyOf(this.begins, newCapacity);
+            this.lengths = Arrays.copyOf(this.lengths, newCapacity);
+            this.types = Arrays.copyOf(this.types, newCapacity);
+        }
+        int lexeme = this.lexemeCount++;
+        this.offsets[lexeme] = offset;
+        this.begins[lexeme] = begin;
+        this.lengths[lexeme] = length;
+        this.types[lexeme] = lexemeType;
+        return lexeme;
+    }
+
+    int getOffset(int lexeme) {
+        return this.offsets[lexeme];
+    }
+
+    int getBegin(int lexeme) {
+        return this.begins[lexeme];
+    }
+
+    int getLength(int lexeme) {
+        return this.lengths[lexeme];
+    }
+
+    int getType(int lexeme) {
+        return this.types[lexeme];
+    }
+
+    /**
+     * 词元在文本中的结束位置
+     */
+    int getEndPosition(int lexeme) {
+        return this.offsets[lexeme] + this.begins[lexeme] + this.lengths[lexeme];
+    }
+
+    /**
+     * 词元在排序集合中的比较算法，与Lexeme.compareTo一致
+     * 起始位置优先，其次词元长度优先
+     */
+    int compare(int lexeme, int other) {
+        if (this.begins[lexeme] != this.begins[other]) {
+            return this.begins[lexeme] < this.begins[other] ? -1 : 1;
+        }
+        if (this.lengths[lexeme] != this.lengths[other]) {
+            return this.lengths[lexeme] > this.lengths[other] ? -1 : 1;
+        }
+        return 0;
+    }
+
+    /**
+     * 合并两个相邻的词元，与Lexeme.append一致
+     * @return boolean 词元是否成功合并
+     */
+    boolean append(int lexeme, int other, int lexemeType) {
+        if (this.getEndPosition(lexeme) == this.offsets[other] + this.begins[other]) {
+            this.lengths[lexeme] += this.lengths[other];
+            this.types[lexeme] = lexemeType;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 生成对外输出的Lexeme对象
+     */
+    Lexeme toLexeme(int lexeme) {
+        return new Lexeme(this.offsets[lexeme], this.begins[lexeme], this.lengths[lexeme], this.types[lexeme]);
+    }
+
+    /**
+     * 新建指向词元的链表单元，前后单元均为空
+     * @return 单元句柄
+     */
+    int newCell(int lexeme) {
+        if (this.cellCount == this.cellLexemes.length) {
+            int newCapacity = this.cellCount << 1;
+            this.cellLexemes = Arrays.copyOf(this.cellLexemes, newCapacity);
+            this.cellPrevs = Arrays.copyOf(this.cellPrevs, newCapacity);
+            this.cellNexts = Arrays.copyOf(this.cellNexts, newCapacity);
+        }
+        int cell = this.cellCount++;
+        this.cellLexemes[cell] = lexeme;
+        this.cellPrevs[cell] = NONE;
+        this.cellNexts[cell] = NONE;
+        return cell;
+    }
+
+    int getCellLexeme(int cell) {
+        return this.cellLexemes[cell];
+    }
+
+    int getPrev(int cell) {
+        return this.cellPrevs[cell];
+    }
+
+    void setPrev(int cell, int prev) {
+        this.cellPrevs[cell] = prev;
+    }
+
+    int getNext(int cell) {
+        return this.cellNexts[cell];
+    }
+
+    void setNext(int cell, int next) {
+        this.cellNexts[cell] = next;
+    }
+}
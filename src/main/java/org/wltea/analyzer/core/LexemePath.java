@@ -23,6 +23,7 @@
  */
 package org.wltea.analyzer.core;
 
+import static org.wltea.analyzer.core.LexemeArena.NONE;
 
 /**
  * Lexeme链（路径）
@@ -36,7 +37,19 @@ class LexemePath extends QuickSortSet implements Comparable<LexemePath> {
     //词元链的有效字符长度
     private int payloadLength;
 
-    LexemePath() {
+    LexemePath(LexemeArena arena) {
+        super(arena);
+        this.pathBegin = -1;
+        this.pathEnd = -1;
+        this.payloadLength = 0;
+    }
+
+    /**
+     * 清空路径，供复用
+     */
+    @Override
+    void clear() {
+        super.clear();
         this.pathBegin = -1;
         this.pathEnd = -1;
         this.payloadLength = 0;
@@ -44,21 +57,23 @@ class LexemePath extends QuickSortSet implements Comparable<LexemePath> {
 
     /**
      * 向LexemePath追加相交的Lexeme
-     * @param lexeme
+     * @param lexeme 词元句柄
      * @return
      */
-    boolean addCrossLexeme(Lexeme lexeme) {
+    boolean addCrossLexeme(int lexeme) {
+        int begin = this.arena.getBegin(lexeme);
+        int length = this.arena.getLength(lexeme);
         if (this.isEmpty()) {
             this.addLexeme(lexeme);
-            this.pathBegin = lexeme.getBegin();
-            this.pathEnd = lexeme.getBegin() + lexeme.getLength();
-            this.payloadLength += lexeme.getLength();
+            this.pathBegin = begin;
+            this.pathEnd = begin + length;
+            this.payloadLength += length;
             return true;
 
         } else if (this.checkCross(lexeme)) {
             this.addLexeme(lexeme);
-            if (lexeme.getBegin() + lexeme.getLength() > this.pathEnd) {
-                this.pathEnd = lexeme.getBegin() + lexeme.getLength();
+            if (begin + length > this.pathEnd) {
+                this.pathEnd = begin + length;
             }
             this.payloadLength = this.pathEnd - this.pathBegin;
             return true;
@@ -71,15 +86,15 @@ class LexemePath extends QuickSortSet implements Comparable<LexemePath> {
 
     /**
      * 向LexemePath追加不相交的Lexeme
-     * @param lexeme
+     * @param lexeme 词元句柄
      * @return
      */
-    boolean addNotCrossLexeme(Lexeme lexeme) {
+    boolean addNotCrossLexeme(int lexeme) {
         if (this.isEmpty()) {
             this.addLexeme(lexeme);
-            this.pathBegin = lexeme.getBegin();
-            this.pathEnd = lexeme.getBegin() + lexeme.getLength();
-            this.payloadLength += lexeme.getLength();
+            this.pathBegin = this.arena.getBegin(lexeme);
+            this.pathEnd = this.arena.getBegin(lexeme) + this.arena.getLength(lexeme);
+            this.payloadLength += this.arena.getLength(lexeme);
             return true;
 
         } else if (this.checkCross(lexeme)) {
@@ -87,11 +102,11 @@ class LexemePath extends QuickSortSet implements Comparable<LexemePath> {
 
         } else {
             this.addLexeme(lexeme);
-            this.payloadLength += lexeme.getLength();
-            Lexeme head = this.peekFirst();
-            this.pathBegin = head.getBegin();
-            Lexeme tail = this.peekLast();
-            this.pathEnd = tail.getBegin() + tail.getLength();
+            this.payloadLength += this.arena.getLength(lexeme);
+            int head = this.peekFirst();
+            this.pathBegin = this.arena.getBegin(head);
+            int tail = this.peekLast();
+            this.pathEnd = this.arena.getBegin(tail) + this.arena.getLength(tail);
             return true;
 
         }
@@ -99,30 +114,32 @@ class LexemePath extends QuickSortSet implements Comparable<LexemePath> {
 
     /**
      * 移除尾部的Lexeme
-     * @return
+     * @return 词元句柄
      */
-    Lexeme removeTail() {
-        Lexeme tail = this.pollLast();
+    int removeTail() {
+        int tail = this.pollLast();
         if (this.isEmpty()) {
             this.pathBegin = -1;
             this.pathEnd = -1;
             this.payloadLength = 0;
         } else {
-            this.payloadLength -= tail.getLength();
-            Lexeme newTail = this.peekLast();
-            this.pathEnd = newTail.getBegin() + newTail.getLength();
+            this.payloadLength -= this.arena.getLength(tail);
+            int newTail = this.peekLast();
+            this.pathEnd = this.arena.getBegin(newTail) + this.arena.getLength(newTail);
         }
         return tail;
     }
 
     /**
      * 检测词元位置交叉（有歧义的切分）
-     * @param lexeme
+     * @param lexeme 词元句柄
      * @return
      */
-    boolean checkCross(Lexeme lexeme) {
-        return (lexeme.getBegin() >= this.pathBegin && lexeme.getBegin() < this.pathEnd)
-                || (this.pathBegin >= lexeme.getBegin() && this.pathBegin < lexeme.getBegin() + lexeme.getLength());
+    boolean checkCross(int lexeme) {
+        int begin = this.arena.getBegin(lexeme);
+        int end = begin + this.arena.getLength(lexeme);
+        return (begin >= this.pathBegin && begin < this.pathEnd)
+                || (this.pathBegin >= begin && this.pathBegin < end);
     }
 
     int getPathBegin() {
@@ -156,10 +173,10 @@ class LexemePath extends QuickSortSet implements Comparable<LexemePath> {
      */
     int getXWeight() {
         int product = 1;
-        Cell c = this.getHead();
-        while (c != null && c.getLexeme() != null) {
-            product *= c.getLexeme().getLength();
-            c = c.getNext();
+        int c = this.getHead();
+        while (c != NONE) {
+            product *= this.arena.getLength(this.getLexeme(c));
+            c = this.getNext(c);
         }
         return product;
     }
@@ -171,24 +188,24 @@ class LexemePath extends QuickSortSet implements Comparable<LexemePath> {
     int getPWeight() {
         int pWeight = 0;
         int p = 0;
-        Cell c = this.getHead();
-        while (c != null && c.getLexeme() != null) {
+        int c = this.getHead();
+        while (c != NONE) {
             p++;
-            pWeight += p * c.getLexeme().getLength();
-            c = c.getNext();
+            pWeight += p * this.arena.getLength(this.getLexeme(c));
+            c = this.getNext(c);
         }
         return pWeight;
     }
 
     LexemePath copy() {
-        LexemePath theCopy = new LexemePath();
+        LexemePath theCopy = new LexemePath(this.arena);
         theCopy.pathBegin = this.pathBegin;
         theCopy.pathEnd = this.pathEnd;
         theCopy.payloadLength = this.payloadLength;
-        Cell c = this.getHead();
-        while (c != null && c.getLexeme() != null) {
-            theCopy.addLexeme(c.getLexeme());
-            c = c.getNext();
+        int c = this.getHead();
+        while (c != NONE) {
+            theCopy.addLexeme(this.getLexeme(c));
+            c = this.getNext(c);
         }
         return theCopy;
     }
@@ -244,10 +261,10 @@ class LexemePath extends QuickSortSet implements Comparable<LexemePath> {
         sb.append("pathBegin  : ").append(pathBegin).append("\r\n");
         sb.append("pathEnd  : ").append(pathEnd).append("\r\n");
         sb.append("payloadLength  : ").append(payloadLength).append("\r\n");
-        Cell head = this.getHead();
-        while (head != null) {
-            sb.append("lexeme : ").append(head.getLexeme()).append("\r\n");
-            head = head.getNext();
+        int head = this.getHead();
+        while (head != NONE) {
+            sb.append("lexeme : ").append(this.arena.toLexeme(this.getLexeme(head))).append("\r\n");
+            head = this.getNext(head);
         }
         return sb.toString();
     }
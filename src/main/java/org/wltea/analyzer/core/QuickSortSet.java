@@ -23,27 +23,35 @@
  */
 package org.wltea.analyzer.core;
 
+import static org.wltea.analyzer.core.LexemeArena.NONE;
+
 /**
  * IK分词器专用的Lexem快速排序集合
+ * 集合元素为词元句柄，链表单元存放在LexemeArena中，以单元下标链接
  */
 class QuickSortSet {
+    //词元及链表单元的存储区
+    final LexemeArena arena;
     //链表头
-    private Cell head;
+    private int head;
     //链表尾
-    private Cell tail;
+    private int tail;
     //链表的实际大小
     private int size;
 
-    QuickSortSet() {
+    QuickSortSet(LexemeArena arena) {
+        this.arena = arena;
+        this.head = NONE;
+        this.tail = NONE;
         this.size = 0;
     }
 
     /**
      * 向链表集合添加词元
-     * @param lexeme
+     * @param lexeme 词元句柄
      */
-    boolean addLexeme(Lexeme lexeme) {
-        Cell newCell = new Cell(lexeme);
+    boolean addLexeme(int lexeme) {
+        int newCell = this.arena.newCell(lexeme);
         if (this.size == 0) {
             this.head = newCell;
             this.tail = newCell;
@@ -51,37 +59,38 @@ class QuickSortSet {
             return true;
 
         } else {
-            if (this.tail.compareTo(newCell) == 0) {//词元与尾部词元相同，不放入集合
+            if (this.compareCell(this.tail, newCell) == 0) {//词元与尾部词元相同，不放入集合
                 return false;
 
-            } else if (this.tail.compareTo(newCell) < 0) {//词元接入链表尾部
-                this.tail.next = newCell;
-                newCell.prev = this.tail;
+            } else if (this.compareCell(this.tail, newCell) < 0) {//词元接入链表尾部
+                this.arena.setNext(this.tail, newCell);
+                this.arena.setPrev(newCell, this.tail);
                 this.tail = newCell;
                 this.size++;
                 return true;
 
-            } else if (this.head.compareTo(newCell) > 0) {//词元接入链表头部
-                this.head.prev = newCell;
-                newCell.next = this.head;
+            } else if (this.compareCell(this.head, newCell) > 0) {//词元接入链表头部
+                this.arena.setPrev(this.head, newCell);
+                this.arena.setNext(newCell, this.head);
                 this.head = newCell;
                 this.size++;
                 return true;
 
             } else {
                 //从尾部上逆
-                Cell index = this.tail;
-                while (index != null && index.compareTo(newCell) > 0) {
-                    index = index.prev;
+                int index = this.tail;
+                while (index != NONE && this.compareCell(index, newCell) > 0) {
+                    index = this.arena.getPrev(index);
                 }
-                if (index.compareTo(newCell) == 0) {//词元与集合中的词元重复，不放入集合
+                if (this.compareCell(index, newCell) == 0) {//词元与集合中的词元重复，不放入集合
                     return false;
 
-                } else if (index.compareTo(newCell) < 0) {//词元插入链表中的某个位置
-                    newCell.prev = index;
-                    newCell.next = index.next;
-                    index.next.prev = newCell;
-                    index.next = newCell;
+                } else if (this.compareCell(index, newCell) < 0) {//词元插入链表中的某个位置
+                    int next = this.arena.getNext(index);
+                    this.arena.setPrev(newCell, index);
+                    this.arena.setNext(newCell, next);
+                    this.arena.setPrev(next, newCell);
+                    this.arena.setNext(index, newCell);
                     this.size++;
                     return true;
                 }
@@ -90,69 +99,82 @@ class QuickSortSet {
         return false;
     }
 
+    private int compareCell(int cell, int other) {
+        return this.arena.compare(this.arena.getCellLexeme(cell), this.arena.getCellLexeme(other));
+    }
+
+    /**
+     * 清空集合
+     */
+    void clear() {
+        this.head = NONE;
+        this.tail = NONE;
+        this.size = 0;
+    }
+
     /**
      * 返回链表头部元素
-     * @return
+     * @return 词元句柄，集合为空时返回NONE
      */
-    Lexeme peekFirst() {
-        if (this.head != null) {
-            return this.head.lexeme;
+    int peekFirst() {
+        if (this.head != NONE) {
+            return this.arena.getCellLexeme(this.head);
         }
-        return null;
+        return NONE;
     }
 
     /**
      * 取出链表集合的第一个元素
-     * @return Lexeme
+     * @return 词元句柄，集合为空时返回NONE
      */
-    Lexeme pollFirst() {
+    int pollFirst() {
         if (this.size == 1) {
-            Lexeme first = this.head.lexeme;
-            this.head = null;
-            this.tail = null;
+            int first = this.arena.getCellLexeme(this.head);
+            this.head = NONE;
+            this.tail = NONE;
             this.size--;
             return first;
         } else if (this.size > 1) {
-            Lexeme first = this.head.lexeme;
-            this.head = this.head.next;
+            int first = this.arena.getCellLexeme(this.head);
+            this.head = this.arena.getNext(this.head);
             this.size--;
             return first;
         } else {
-            return null;
+            return NONE;
         }
     }
 
     /**
      * 返回链表尾部元素
-     * @return
+     * @return 词元句柄，集合为空时返回NONE
      */
-    Lexeme peekLast() {
-        if (this.tail != null) {
-            return this.tail.lexeme;
+    int peekLast() {
+        if (this.tail != NONE) {
+            return this.arena.getCellLexeme(this.tail);
         }
-        return null;
+        return NONE;
     }
 
     /**
      * 取出链表集合的最后一个元素
-     * @return Lexeme
+     * @return 词元句柄，集合为空时返回NONE
      */
-    Lexeme pollLast() {
+    int pollLast() {
         if (this.size == 1) {
-            Lexeme last = this.head.lexeme;
-            this.head = null;
-            this.tail = null;
+            int last = this.arena.getCellLexeme(this.head);
+            this.head = NONE;
+            this.tail = NONE;
             this.size--;
             return last;
 
         } else if (this.size > 1) {
-            Lexeme last = this.tail.lexeme;
-            this.tail = this.tail.prev;
+            int last = this.arena.getCellLexeme(this.tail);
+            this.tail = this.arena.getPrev(this.tail);
             this.size--;
             return last;
 
         } else {
-            return null;
+            return NONE;
         }
     }
 
@@ -173,105 +195,48 @@ class QuickSortSet {
     }
 
     /**
-     * 返回lexeme链的头部
+     * 返回lexeme链的头部单元
      * @return
      */
-    Cell getHead() {
+    int getHead() {
         return this.head;
     }
 
     /**
-     * 返回lexeme链的尾部
+     * 返回lexeme链的尾部单元
      * @return
      */
-    Cell getTail() {
+    int getTail() {
         return this.tail;
     }
 
     /**
-     * 返回lexeme链中指定节点的上一个节点
+     * 返回lexeme链中指定单元的上一个单元
      * @return
      */
-    Cell getPrev(Cell current) {
-        if (null == current) {
-            return null;
+    int getPrev(int current) {
+        if (NONE == current) {
+            return NONE;
         }
-        return current.prev;
+        return this.arena.getPrev(current);
     }
 
     /**
-     *
-     * IK 中文分词  版本 5.0
-     * IK Analyzer release 5.0
-     *
-     * Licensed to the Apache Software Foundation (ASF) under one or more
-     * contributor license agreements.  See the NOTICE file distributed with
-     * this work for additional information regarding copyright ownership.
-     * The ASF licenses this file to You under the Apache License, Version 2.0
-     * (the "License"); you may not use this file except in compliance with
-     * the License.  You may obtain a copy of the License at
-     *
-     *     http://www.apache.org/licenses/LICENSE-2.0
-     *
-     * Unless required by applicable law or agreed to in writing, software
-     * distributed under the License is distributed on an "AS IS" BASIS,
-     * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
-     * See the License for the specific language governing permissions and
-     * limitations under the License.
-     *
-     * 源代码由林良益(linliangyi2005@gmail.com)提供
-     * 版权声明 2012，乌龙茶工作室
-     * provided by Linliangyi and copyright 2012 by Oolong studio
-     *
-     * QuickSortSet集合单元
-     *
+     * 返回lexeme链中指定单元的下一个单元
+     * @return
      */
-    class Cell implements Comparable<Cell> {
-        private Cell prev;
-        private Cell next;
-        private Lexeme lexeme;
-
-        Cell(Lexeme lexeme) {
-            if (lexeme == null) {
-                throw new IllegalArgumentException("lexeme must not be null");
-            }
-            this.lexeme = lexeme;
-        }
-
-        public int compareTo(Cell o) {
-            return this.lexeme.compareTo(o.lexeme);
-        }
-
-        public Cell getPrev() {
-            return this.prev;
-        }
-
-        public Cell getNext() {
-            return this.next;
-        }
-
-        public Lexeme getLexeme() {
-            return this.lexeme;
-        }
-
-        public String getLexemeText() {
-            return this.lexeme.getLexemeText();
-        }
-
-        public int getLexemeType() {
-            return this.lexeme.getLexemeType();
-        }
-
-        public String getLexemeTypeString() {
-            return this.lexeme.getLexemeTypeString();
-        }
-
-        public int getLexemeBegin() {
-            return this.lexeme.getBeginPosition();
+    int getNext(int current) {
+        if (NONE == current) {
+            return NONE;
         }
+        return this.arena.getNext(current);
+    }
 
-        public int getLexemeLength() {
-            return this.lexeme.getLength();
-        }
+    /**
+     * 返回单元中的词元句柄
+     * @return
+     */
+    int getLexeme(int cell) {
+        return this.arena.getCellLexeme(cell);
     }
 }
@@ -0,0 +1,501 @@
+package org.wltea.analyzer.core;
+
+import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.cfg.DefaultConfig;
+import org.wltea.analyzer.dic.Dictionary;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分词结果缓存
+ * 以文本及切分策略为key缓存分词结果，适用于查询词分布集中的查询期分词，重复的查询不再重新切分。
+ * 缓存分段加锁，每段为按访问顺序排列的LRU表，并各自维护一个频率草图(TinyLFU)：
+ * 缓存已满时，只有访问频率高于待淘汰结果的新结果才会被放入，偶发的长尾查询不会挤掉热门查询。
+ * 缓存同时限制条目数及估算的内存占用；每个结果记录切分时的词典版本，词典更新后旧结果自动失效。
+ * 分词结果以紧凑数组保存：规格化后的文本字符，以及每个词元的起始位置、长度、类型。
+ */
+public final class SegmentCache {
+
+    //最大分段数
+    private static final int MAX_SEGMENTS = 16;
+    //每段至少容纳的条目数
+    private static final int MIN_SEGMENT_SIZE = 32;
+    //每个缓存结果的固定开销估算(字节)：key、结果对象、数组头及LRU表节点
+    private static final int ENTRY_OVERHEAD = 160;
+    //缓存的空闲切分器数上限，同时未命中的线程更多时，多出的切分器用完即丢弃
+    private static final int MAX_IDLE_LOADERS = 16;
+
+    //分词器配置项
+    private final Configuration cfg;
+    //分词使用的词典，为null时使用词典单例
+    private final Dictionary dictionary;
+    //分段
+    private final Segment[] segments;
+    private final int segmentShift;
+    //最近一次观察到的词典版本
+    private volatile long observedVersion = -1L;
+
+    //命中、未命中、淘汰及未被接纳的次数
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder rejectionCount = new LongAdder();
+
+    //空闲的切分器，缓存未命中时借出一个在当前线程中切分文本，用完归还；不按线程保留，缓存废弃后随之回收
+    private final ArrayBlockingQueue<Loader> idleLoaders = new ArrayBlockingQueue<Loader>(MAX_IDLE_LOADERS);
+
+    /**
+     * 使用默认配置及词典单例
+     * @param maximumSize 最大条目数
+     * @param maximumWeight 最大内存占用估算(字节)
+     */
+    public SegmentCache(int maximumSize, long maximumWeight) {
+        this(DefaultConfig.getInstance(), null, maximumSize, maximumWeight);
+    }
+
+    /**
+     * @param cfg 分词器配置项
+     * @param dictionary 分词使用的词典，如Dictionary.shared返回的共享词典；为null时使用以cfg初始化的词典单例
+     * @param maximumSize 最大条目数
+     * @param maximumWeight 最大内存占用估算(字节)
+     */
+    public SegmentCache(Configuration cfg, Dictionary dictionary, int maximumSize, long maximumWeight) {
+        if (maximumSize <= 0 || maximumWeight <= 0) {
+            throw new IllegalArgumentException("maximumSize、maximumWeight必须大于0，maximumSize:{" + maximumSize
+                    + "},maximumWeight:{" + maximumWeight + "}");
+        }
+        this.cfg = cfg;
+        this.dictionary = dictionary;
+        int segmentCount = 1;
+        while (segmentCount < MAX_SEGMENTS && segmentCount * MIN_SEGMENT_SIZE * 2 <= maximumSize) {
+            segmentCount <<= 1;
+        }
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+        this.segments = new Segment[segmentCount];
+        //余数分给前几段，各段上限之和等于总上限
+        for (int i = 0; i < segmentCount; i++) {
+            int size = maximumSize / segmentCount + (i < maximumSize % segmentCount ? 1 : 0);
+            long weight = maximumWeight / segmentCount + (i < maximumWeight % segmentCount ? 1 : 0);
+            this.segments[i] = new Segment(size, weight);
+        }
+    }
+
+    /**
+     * 取文本的分词结果，未缓存时切分文本并放入缓存
+     * @param text 文本
+     * @param useSmart 为true，使用智能分词策略
+     * @return 分词结果
+     * @throws IOException
+     */
+    public Tokens get(String text, boolean useSmart) throws IOException {
+        long version = this.getDictionary().getVersion();
+        if (version != this.observedVersion) {
+            this.onVersionChanged(version);
+        }
+        Key key = new Key(text, useSmart);
+        Segment segment = this.segmentFor(key.hash);
+        Tokens tokens = segment.get(key, version);
+        if (tokens != null) {
+            this.hitCount.increment();
+            return tokens;
+        }
+        this.missCount.increment();
+        Loader loader = this.idleLoaders.poll();
+        if (loader == null) {
+            loader = new Loader();
+        }
+        //切分出错时异常直接抛出，状态不确定的切分器不再归还
+        tokens = loader.load(text, useSmart, version);
+        this.idleLoaders.offer(loader);
+        segment.put(key, tokens);
+        return tokens;
+    }
+
+    /**
+     * 清空缓存，统计计数不清零
+     */
+    public void clear() {
+        for (Segment segment : this.segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * 命中次数
+     */
+    public long getHitCount() {
+        return this.hitCount.sum();
+    }
+
+    /**
+     * 未命中次数
+     */
+    public long getMissCount() {
+        return this.missCount.sum();
+    }
+
+    /**
+     * 命中率，没有请求时为0
+     */
+    public double getHitRate() {
+        long hits = this.hitCount.sum();
+        long requests = hits + this.missCount.sum();
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+
+    /**
+     * 因容量不足被淘汰的条目数
+     */
+    public long getEvictionCount() {
+        return this.evictionCount.sum();
+    }
+
+    /**
+     * 访问频率不足、未被放入缓存的结果数
+     */
+    public long getRejectionCount() {
+        return this.rejectionCount.sum();
+    }
+
+    /**
+     * 当前条目数
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : this.segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * 当前内存占用估算(字节)
+     */
+    public long weight() {
+        long weight = 0;
+        for (Segment segment : this.segments) {
+            weight += segment.weight();
+        }
+        return weight;
+    }
+
+    @Override
+    public String toString() {
+        return "SegmentCache{size=" + this.size() + ", weight=" + this.weight() + ", hits=" + this.getHitCount()
+                + ", misses=" + this.getMissCount() + ", evictions=" + this.getEvictionCount()
+                + ", rejections=" + this.getRejectionCount() + "}";
+    }
+
+    private Dictionary getDictionary() {
+        return this.dictionary != null ? this.dictionary : Dictionary.initial(this.cfg);
+    }
+
+    /**
+     * 词典版本变化后清空缓存，尽快释放旧结果；清空期间放入的旧版本结果在读取时按版本号过滤
+     */
+    private synchronized void onVersionChanged(long version) {
+        if (version != this.observedVersion) {
+            this.observedVersion = version;
+            this.clear();
+        }
+    }
+
+    private Segment segmentFor(int hash) {
+        return this.segmentShift == 32 ? this.segments[0] : this.segments[hash >>> this.segmentShift];
+    }
+
+    /**
+     * 分词结果
+     * 保存规格化后的文本字符，以及每个词元的起始位置、长度及类型，不可修改，可在线程间共享
+     */
+    public static final class Tokens {
+
+        //规格化后的文本字符，词元覆盖的位置与分词器输出的词元文本一致
+        private final char[] chars;
+        //每个词元依次占3个元素：起始位置、长度、类型
+        private final int[] lexemes;
+        //切分时的词典版本
+        private final long version;
+
+        private Tokens(char[] chars, int[] lexemes, long version) {
+            this.chars = chars;
+            this.lexemes = lexemes;
+            this.version = version;
+        }
+
+        /**
+         * 词元数
+         */
+        public int size() {
+            return this.lexemes.length / 3;
+        }
+
+        public int getBeginPosition(int index) {
+            return this.lexemes[index * 3];
+        }
+
+        public int getEndPosition(int index) {
+            return this.lexemes[index * 3] + this.lexemes[index * 3 + 1];
+        }
+
+        public int getLength(int index) {
+            return this.lexemes[index * 3 + 1];
+        }
+
+        public int getLexemeType(int index) {
+            return this.lexemes[index * 3 + 2];
+        }
+
+        /**
+         * 将第index个词元写入调用方提供的词元对象，词元文本直接从结果中复制，不生成String
+         * @param index 词元序号
+         * @param lexeme 复用的词元对象
+         */
+        public void fill(int index, Lexeme lexeme) {
+            int i = index * 3;
+            lexeme.setOffset(0);
+            lexeme.setBegin(this.lexemes[i]);
+            lexeme.setLength(this.lexemes[i + 1]);
+            lexeme.setLexemeType(this.lexemes[i + 2]);
+            lexeme.setTextBuffer(this.chars);
+        }
+
+        /**
+         * 生成第index个词元
+         * @param index 词元序号
+         * @return 新的词元对象
+         */
+        public Lexeme getLexeme(int index) {
+            Lexeme lexeme = new Lexeme(0, 0, 0, Lexeme.TYPE_UNKNOWN);
+            this.fill(index, lexeme);
+            return lexeme;
+        }
+
+        /**
+         * 内存占用估算(字节)，不含key
+         */
+        private int weight() {
+            return (this.chars.length << 1) + (this.lexemes.length << 2);
+        }
+    }
+
+    /**
+     * 缓存key：文本及切分策略
+     */
+    private static final class Key {
+        private final String text;
+        private final boolean useSmart;
+        private final int hash;
+
+        private Key(String text, boolean useSmart) {
+            this.text = text;
+            this.useSmart = useSmart;
+            int h = text.hashCode() * 31 + (useSmart ? 1 : 0);
+            //扰动，使分段及频率草图使用的高位、低位都分布均匀
+            h *= 0x9E3779B9;
+            this.hash = h ^ (h >>> 16);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return this.useSmart == other.useSmart && this.text.equals(other.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        private int weight() {
+            return this.text.length() << 1;
+        }
+    }
+
+    /**
+     * 缓存分段：按访问顺序排列的LRU表及频率草图，所有操作在段锁内完成
+     */
+    private final class Segment {
+        private final int maximumSize;
+        private final long maximumWeight;
+        private final LinkedHashMap<Key, Tokens> map;
+        private final FrequencySketch sketch;
+        private long weight;
+
+        private Segment(int maximumSize, long maximumWeight) {
+            this.maximumSize = maximumSize;
+            this.maximumWeight = maximumWeight;
+            this.map = new LinkedHashMap<Key, Tokens>(16, 0.75f, true);
+            this.sketch = new FrequencySketch(maximumSize);
+        }
+
+        private synchronized Tokens get(Key key, long version) {
+            this.sketch.increment(key.hash);
+            Tokens tokens = this.map.get(key);
+            if (tokens != null && tokens.version != version) {
+                //词典已经更新，旧结果失效
+                this.map.remove(key);
+                this.weight -= weightOf(key, tokens);
+                return null;
+            }
+            return tokens;
+        }
+
+        /**
+         * 放入结果，超出容量时从最久未访问的条目开始淘汰；
+         * 新结果的访问频率不高于待淘汰条目时，不放入新结果
+         */
+        private synchronized void put(Key key, Tokens tokens) {
+            long entryWeight = weightOf(key, tokens);
+            if (entryWeight > this.maximumWeight) {
+                rejectionCount.increment();
+                return;
+            }
+            Tokens old = this.map.remove(key);
+            if (old != null) {
+                this.weight -= weightOf(key, old);
+            }
+            Iterator<Map.Entry<Key, Tokens>> iterator = this.map.entrySet().iterator();
+            while (this.map.size() >= this.maximumSize || this.weight + entryWeight > this.maximumWeight) {
+                Map.Entry<Key, Tokens> victim = iterator.next();
+                if (this.sketch.frequency(key.hash) <= this.sketch.frequency(victim.getKey().hash)) {
+                    rejectionCount.increment();
+                    return;
+                }
+                iterator.remove();
+                this.weight -= weightOf(victim.getKey(), victim.getValue());
+                evictionCount.increment();
+            }
+            this.map.put(key, tokens);
+            this.weight += entryWeight;
+        }
+
+        private synchronized void clear() {
+            this.map.clear();
+            this.weight = 0;
+        }
+
+        private synchronized int size() {
+            return this.map.size();
+        }
+
+        private synchronized long weight() {
+            return this.weight;
+        }
+    }
+
+    private static long weightOf(Key key, Tokens tokens) {
+        return ENTRY_OVERHEAD + key.weight() + tokens.weight();
+    }
+
+    /**
+     * 频率草图(Count-Min Sketch)
+     * 每个long存放16个4位计数器，每个key对应4个计数器，频率取其中的最小值；
+     * 累计增加次数达到条目数的10倍时，所有计数器减半，使频率反映近期的访问
+     */
+    private static final class FrequencySketch {
+        private static final int[] SEEDS = {0x97CB3127, 0xB0F3F5A9, 0x85EBCA6B, 0xC2B2AE35};
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        private FrequencySketch(int maximumSize) {
+            int length = Integer.highestOneBit(Math.max(maximumSize, 8) - 1) << 1;
+            this.table = new long[length];
+            this.mask = length - 1;
+            this.sampleSize = 10 * Math.max(maximumSize, 8);
+        }
+
+        private void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int h = rehash(hash, i);
+                int index = h & this.mask;
+                int shift = (h >>> 28) << 2;
+                if (((this.table[index] >>> shift) & 0xFL) < 15L) {
+                    this.table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++this.additions >= this.sampleSize) {
+                for (int i = 0; i < this.table.length; i++) {
+                    this.table[i] = (this.table[i] >>> 1) & RESET_MASK;
+                }
+                this.additions >>>= 1;
+            }
+        }
+
+        private int frequency(int hash) {
+            int frequency = 15;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int h = rehash(hash, i);
+                int count = (int) ((this.table[h & this.mask] >>> ((h >>> 28) << 2)) & 0xFL);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        private static int rehash(int hash, int i) {
+            int h = (hash ^ SEEDS[i]) * 0x9E3779B9;
+            return h ^ (h >>> 15);
+        }
+    }
+
+    /**
+     * 切分器：每种切分策略复用一个分词器，以及切分时使用的缓冲区，同一时刻只由一个线程使用
+     */
+    private final class Loader {
+        private final Lexeme lexeme = new Lexeme(0, 0, 0, Lexeme.TYPE_UNKNOWN);
+        private int[] lexemes = new int[48];
+        private IKSegmenter segmenter;
+        private IKSegmenter smartSegmenter;
+
+        private Tokens load(String text, boolean useSmart, long version) throws IOException {
+            //分词器以reset开始新的文本时清除全部子分词器状态，切分结果只取决于文本本身，与切分顺序无关
+            IKSegmenter segmenter = this.segmenter(useSmart);
+            segmenter.reset(new StringReader(text));
+            //词元文本均为文本中的连续片段，按位置写回即得到规格化后的文本
+            char[] chars = text.toCharArray();
+            int count = 0;
+            while (segmenter.next(this.lexeme)) {
+                if (count + 3 > this.lexemes.length) {
+                    this.lexemes = Arrays.copyOf(this.lexemes, this.lexemes.length << 1);
+                }
+                this.lexeme.getLexemeChars(chars, this.lexeme.getBeginPosition());
+                this.lexemes[count++] = this.lexeme.getBeginPosition();
+                this.lexemes[count++] = this.lexeme.getLength();
+                this.lexemes[count++] = this.lexeme.getLexemeType();
+            }
+            return new Tokens(chars, Arrays.copyOf(this.lexemes, count), version);
+        }
+
+        private IKSegmenter segmenter(boolean useSmart) {
+            if (useSmart) {
+                if (this.smartSegmenter == null) {
+                    this.smartSegmenter = new IKSegmenter(null, cfg, dictionary, true);
+                }
+                return this.smartSegmenter;
+            }
+            if (this.segmenter == null) {
+                this.segmenter = new IKSegmenter(null, cfg, dictionary, false);
+            }
+            return this.segmenter;
+        }
+    }
+}
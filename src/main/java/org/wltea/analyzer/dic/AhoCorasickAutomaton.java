@@ -0,0 +1,174 @@
+package org.wltea.analyzer.dic;
+
+import java.util.Arrays;
+
+/**
+ * 基于主词典Trie构建的Aho-Corasick自动机
+ * 在Trie的节点上增加失败链接，逐字扫描文本时只需维护一个状态，
+ * 即可通过输出链接得到以当前字符结尾的所有词。
+ *
+ * 状态为Trie的节点下标，ROOT为初始状态，0表示不存在的节点。
+ * 自动机构建后只读，可被多个线程共享。
+ */
+public final class AhoCorasickAutomaton {
+
+    //初始状态
+    public static final int ROOT = DictTrie.ROOT;
+    //不存在的节点
+    public static final int NONE = 0;
+
+    //构建自动机的主词典Trie
+    private final DictTrie source;
+    //可按下标遍历的Trie，自动机在其节点上运行
+    private final IndexedDictTrie trie;
+    //失败链接：当前节点所表示字串的最长真后缀节点
+    private final int[] fail;
+    //输出链接：失败链上(含自身)最近的成词节点
+    private final int[] wordLink;
+    //前缀链接：失败链上(含自身)最近的有子节点的节点
+    private final int[] prefixLink;
+    //节点深度，即节点所表示字串的长度
+    private final char[] depth;
+
+    private AhoCorasickAutomaton(DictTrie source) {
+        this.source = source;
+        this.trie = source.toIndexedTrie();
+        int size = this.trie.capacity();
+        this.fail = new int[size];
+        this.wordLink = new int[size];
+        this.prefixLink = new int[size];
+        this.depth = new char[size];
+        this.build();
+    }
+
+    /**
+     * 由Trie构建自动机
+     * @param trie 主词典Trie
+     * @return AhoCorasickAutomaton
+     */
+    static AhoCorasickAutomaton build(DictTrie trie) {
+        return new AhoCorasickAutomaton(trie);
+    }
+
+    DictTrie getTrie() {
+        return this.source;
+    }
+
+    /**
+     * 从状态state读入字符c，沿失败链接转移到下一个状态
+     * @param state 当前状态
+     * @param c 输入字符
+     * @return 下一个状态，没有任何后缀成为Trie节点时返回ROOT
+     */
+    public int next(int state, char c) {
+        while (true) {
+            int t = this.trie.transition(state, c);
+            if (t >= 0) {
+                return t;
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = this.fail[state];
+        }
+    }
+
+    /**
+     * 在Trie上从节点state读入字符c，不沿失败链接回退
+     * @return 子节点，不存在时返回NONE
+     */
+    public int transition(int state, char c) {
+        int t = this.trie.transition(state, c);
+        return t < 0 ? NONE : t;
+    }
+
+    /**
+     * 节点state失败链上(含自身)最近的成词节点
+     * @return 成词节点，不存在时返回NONE
+     */
+    public int wordSuffix(int state) {
+        return this.wordLink[state];
+    }
+
+    /**
+     * 节点state失败链上(含自身)最近的有子节点的节点
+     * @return 词前缀节点，不存在时返回NONE
+     */
+    public int prefixSuffix(int state) {
+        return this.prefixLink[state];
+    }
+
+    /**
+     * 节点state的失败链接
+     */
+    public int fail(int state) {
+        return this.fail[state];
+    }
+
+    /**
+     * 节点state所表示字串的长度
+     */
+    public int depth(int state) {
+        return this.depth[state];
+    }
+
+    /**
+     * 节点state是否成词
+     */
+    public boolean isWord(int state) {
+        return state != NONE && this.trie.isWord(state);
+    }
+
+    private void build() {
+        int size = this.trie.capacity();
+        //字母表编码 -> 字符
+        char[] codeChars = new char[Character.MAX_VALUE + 2];
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            int code = this.trie.codeOf((char) c);
+            if (code != 0) {
+                codeChars[code] = (char) c;
+            }
+        }
+        //按父节点归集子节点
+        int[] childStart = new int[size + 1];
+        for (int index = ROOT + 1; index < size; index++) {
+            int parent = this.trie.parentOf(index);
+            if (parent >= ROOT) {
+                childStart[parent + 1]++;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            childStart[i + 1] += childStart[i];
+        }
+        int[] children = new int[childStart[size]];
+        int[] fill = Arrays.copyOf(childStart, size);
+        for (int index = ROOT + 1; index < size; index++) {
+            int parent = this.trie.parentOf(index);
+            if (parent >= ROOT) {
+                children[fill[parent]++] = index;
+            }
+        }
+
+        //广度优先计算失败链接，保证父节点及更浅节点先于子节点处理
+        int[] queue = new int[children.length + 1];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = ROOT;
+        this.fail[ROOT] = ROOT;
+        this.wordLink[ROOT] = NONE;
+        this.prefixLink[ROOT] = NONE;
+        while (head < tail) {
+            int node = queue[head++];
+            for (int i = childStart[node]; i < childStart[node + 1]; i++) {
+                int child = children[i];
+                char c = codeChars[this.trie.codeOf(child)];
+                this.depth[child] = (char) (this.depth[node] + 1);
+                int failNode = node == ROOT ? ROOT : this.next(this.fail[node], c);
+                this.fail[child] = failNode;
+                this.wordLink[child] = this.trie.isWord(child) ? child : this.wordLink[failNode];
+                this.prefixLink[child] = this.trie.isPrefix(child) ? child : this.prefixLink[failNode];
+                queue[tail++] = child;
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.wltea.analyzer.dic;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 词典匹配游标
+ * 以int打包的状态代替Hit对象描述匹配结果，匹配过程不创建任何对象。
+ * 状态的高位为Trie节点下标，低两位为MATCH/PREFIX标志，UNMATCH为0。
+ *
+ * 游标固定引用某一时刻的词典Trie，词典更新后，调用方应在没有未完成的前缀状态时调用refresh切换到新词典，
+ * 避免前缀状态中的节点下标与新词典不一致。
+ * 游标不是线程安全的，每个分词器持有自己的游标。
+ */
+public final class DictCursor {
+
+    //不匹配
+    public static final int UNMATCH = 0;
+    //完全匹配
+    public static final int MATCH = 0x01;
+    //前缀匹配
+    public static final int PREFIX = 0x02;
+
+    //节点下标在状态中的位移
+    private static final int NODE_SHIFT = 2;
+
+    //游标所属词典的引用
+    private final AtomicReference<DictTrie> trieReference;
+    //当前使用的词典Trie
+    private DictTrie trie;
+    //当前词典Trie的首字位图
+    private long[] firstChars;
+
+    DictCursor(AtomicReference<DictTrie> trieReference) {
+        this.trieReference = trieReference;
+        this.refresh();
+    }
+
+    /**
+     * 切换到词典的最新版本
+     */
+    public void refresh() {
+        DictTrie latest = this.trieReference.get();
+        if (latest != null && latest != this.trie) {
+            this.trie = latest;
+            this.firstChars = latest.firstChars();
+        }
+    }
+
+    /**
+     * 判断是否存在以字符c开头的词条
+     * 不存在时first(c)必然返回UNMATCH，调用方可以跳过检索
+     * @param c 字符
+     * @return boolean
+     */
+    public boolean isFirstChar(char c) {
+        return DictTrie.isFirstChar(this.firstChars, c);
+    }
+
+    /**
+     * 以单个字符开始匹配
+     * @param c 字符
+     * @return 匹配状态
+     */
+    public int first(char c) {
+        return this.stateOf(this.trie.transition(DictTrie.ROOT, c));
+    }
+
+    /**
+     * 在前缀状态的基础上继续匹配一个字符
+     * @param state 前缀状态，必须满足isPrefix(state)
+     * @param c 字符
+     * @return 匹配状态
+     */
+    public int next(int state, char c) {
+        return this.stateOf(this.trie.transition(state >>> NODE_SHIFT, c));
+    }
+
+    /**
+     * 从根节点开始匹配词段
+     * @param charArray
+     * @param begin
+     * @param length
+     * @return 匹配状态
+     */
+    public int match(char[] charArray, int begin, int length) {
+        int node = DictTrie.ROOT;
+        for (int i = begin, end = begin + length; i < end && node >= 0; i++) {
+            node = this.trie.transition(node, charArray[i]);
+        }
+        return length > 0 ? this.stateOf(node) : UNMATCH;
+    }
+
+    private int stateOf(int node) {
+        if (node < 0) {
+            return UNMATCH;
+        }
+        int flags = (this.trie.isWord(node) ? MATCH : 0) | (this.trie.isPrefix(node) ? PREFIX : 0);
+        return flags == UNMATCH ? UNMATCH : (node << NODE_SHIFT) | flags;
+    }
+
+    /**
+     * 判断是否完全匹配
+     */
+    public static boolean isMatch(int state) {
+        return (state & MATCH) != 0;
+    }
+
+    /**
+     * 判断是否是词的前缀
+     */
+    public static boolean isPrefix(int state) {
+        return (state & PREFIX) != 0;
+    }
+
+    /**
+     * 判断是否是不匹配
+     */
+    public static boolean isUnmatch(int state) {
+        return state == UNMATCH;
+    }
+}
@@ -24,43 +24,35 @@
 package org.wltea.analyzer.dic;
 
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * 词典树分段，表示词典树的一个分枝
  */
 class DictSegment implements Comparable<DictSegment> {
 
-    //公用字典表，存储汉字
-    private static final Map<Character, Character> charMap = new HashMap<Character, Character>(16, 0.95f);
-    //数组大小上限
+    //数组大小上限，子节点数不超过该值时按精确长度分配数组并顺序查找
     private static final int ARRAY_LENGTH_LIMIT = 3;
 
 
-    //Map存储结构
-    private Map<Character, DictSegment> childrenMap;
-    //数组方式存储结构
+    //按字符排序的子节点数组，容量可能大于storeSize
     private DictSegment[] childrenArray;
+    //子节点数超过ARRAY_LENGTH_LIMIT时，与childrenArray一一对应的字符数组，用于二分查找
+    private char[] childrenChars;
 
 
     //当前节点上存储的字符
-    private Character nodeChar;
+    private char nodeChar;
     //当前节点存储的Segment数目
-    //storeSize <=ARRAY_LENGTH_LIMIT ，使用数组存储， storeSize >ARRAY_LENGTH_LIMIT ,则使用Map存储
     private int storeSize = 0;
     //当前DictSegment状态 ,默认 0 , 1表示从根节点到当前节点的路径表示一个词
     private int nodeState = 0;
 
 
-    DictSegment(Character nodeChar) {
-        if (nodeChar == null) {
-            throw new IllegalArgumentException("参数为空异常，字符不能为空");
-        }
+    DictSegment(char nodeChar) {
         this.nodeChar = nodeChar;
     }
 
-    Character getNodeChar() {
+    char getNodeChar() {
         return nodeChar;
     }
 
@@ -71,6 +63,25 @@ class DictSegment implements Comparable<DictSegment> {
         return this.storeSize > 0;
     }
 
+    /**
+     * 获取节点状态，1表示从根节点到当前节点的路径表示一个词
+     * @return int
+     */
+    int getNodeState() {
+        return this.nodeState;
+    }
+
+    /**
+     * 获取按字符排序的子节点
+     * @return DictSegment[]
+     */
+    DictSegment[] getChildren() {
+        if (this.childrenArray == null) {
+            return new DictSegment[0];
+        }
+        return Arrays.copyOf(this.childrenArray, this.storeSize);
+    }
+
     /**
      * 匹配词段
      * @param charArray
@@ -112,25 +123,11 @@ class DictSegment implements Comparable<DictSegment> {
         //设置hit的当前处理位置
         searchHit.setEnd(begin);
 
-        Character keyChar = new Character(charArray[begin]);
-        DictSegment ds = null;
-
-        //引用实例变量为本地变量，避免查询时遇到更新的同步问题
-        DictSegment[] segmentArray = this.childrenArray;
-        Map<Character, DictSegment> segmentMap = this.childrenMap;
-
         //STEP1 在节点中查找keyChar对应的DictSegment
-        if (segmentArray != null) {
-            //在数组中查找
-            DictSegment keySegment = new DictSegment(keyChar);
-            int position = Arrays.binarySearch(segmentArray, 0, this.storeSize, keySegment);
-            if (position >= 0) {
-                ds = segmentArray[position];
-            }
-
-        } else if (segmentMap != null) {
-            //在map中查找
-            ds = (DictSegment) segmentMap.get(keyChar);
+        DictSegment ds = null;
+        int position = this.indexOf(charArray[begin]);
+        if (position >= 0) {
+            ds = this.childrenArray[position];
         }
 
         //STEP2 找到DictSegment，判断词的匹配状态，是否继续递归，还是返回结果
@@ -183,17 +180,8 @@ class DictSegment implements Comparable<DictSegment> {
      * @param enabled
      */
     private synchronized void fillSegment(char[] charArray, int begin, int length, int enabled) {
-        //获取字典表中的汉字对象
-        Character beginChar = new Character(charArray[begin]);
-        Character keyChar = charMap.get(beginChar);
-        //字典中没有该字，则将其添加入字典
-        if (keyChar == null) {
-            charMap.put(beginChar, beginChar);
-            keyChar = beginChar;
-        }
-
         //搜索当前节点的存储，查询对应keyChar的keyChar，如果没有则创建
-        DictSegment ds = lookforSegment(keyChar, enabled);
+        DictSegment ds = lookforSegment(charArray[begin], enabled);
         if (ds != null) {
             //处理keyChar对应的segment
             if (length > 1) {
@@ -209,109 +197,79 @@ class DictSegment implements Comparable<DictSegment> {
     }
 
     /**
-     * 查找本节点下对应的keyChar的segment	 *
+     * 查找本节点下对应的keyChar的segment
      * @param keyChar
      * @param create  =1如果没有找到，则创建新的segment ; =0如果没有找到，不创建，返回null
      * @return
      */
-    private DictSegment lookforSegment(Character keyChar, int create) {
-
-        DictSegment ds = null;
-
-        if (this.storeSize <= ARRAY_LENGTH_LIMIT) {
-            //获取数组容器，如果数组未创建则创建数组
-            DictSegment[] segmentArray = getChildrenArray();
-            //搜寻数组
-            DictSegment keySegment = new DictSegment(keyChar);
-            int position = Arrays.binarySearch(segmentArray, 0, this.storeSize, keySegment);
-            if (position >= 0) {
-                ds = segmentArray[position];
-            }
-
-            //遍历数组后没有找到对应的segment
-            if (ds == null && create == 1) {
-                ds = keySegment;
-                if (this.storeSize < ARRAY_LENGTH_LIMIT) {
-                    //数组容量未满，使用数组存储
-                    segmentArray[this.storeSize] = ds;
-                    //segment数目+1
-                    this.storeSize++;
-                    Arrays.sort(segmentArray, 0, this.storeSize);
-
-                } else {
-                    //数组容量已满，切换Map存储
-                    //获取Map容器，如果Map未创建,则创建Map
-                    Map<Character, DictSegment> segmentMap = getChildrenMap();
-                    //将数组中的segment迁移到Map中
-                    migrate(segmentArray, segmentMap);
-                    //存储新的segment
-                    segmentMap.put(keyChar, ds);
-                    //segment数目+1 ，  必须在释放数组前执行storeSize++ ， 确保极端情况下，不会取到空的数组
-                    this.storeSize++;
-                    //释放当前的数组引用
-                    this.childrenArray = null;
-                }
-
-            }
-
-        } else {
-            //获取Map容器，如果Map未创建,则创建Map
-            Map<Character, DictSegment> segmentMap = getChildrenMap();
-            //搜索Map
-            ds = (DictSegment) segmentMap.get(keyChar);
-            if (ds == null && create == 1) {
-                //构造新的segment
-                ds = new DictSegment(keyChar);
-                segmentMap.put(keyChar, ds);
-                //当前节点存储segment数目+1
-                this.storeSize++;
-            }
+    private DictSegment lookforSegment(char keyChar, int create) {
+        int position = this.indexOf(keyChar);
+        if (position >= 0) {
+            return this.childrenArray[position];
         }
-
+        if (create != 1) {
+            return null;
+        }
+        //没有找到对应的segment，在插入点创建
+        DictSegment ds = new DictSegment(keyChar);
+        this.insert(-(position + 1), ds);
         return ds;
     }
 
-
     /**
-     * 获取数组容器
-     * 线程同步方法
+     * 查找keyChar对应子节点在childrenArray中的位置
+     * @param keyChar
+     * @return 找到时返回下标，否则返回 -(插入点) - 1
      */
-    private DictSegment[] getChildrenArray() {
-        if (this.childrenArray == null) {
-            synchronized (this) {
-                if (this.childrenArray == null) {
-                    this.childrenArray = new DictSegment[ARRAY_LENGTH_LIMIT];
-                }
+    private int indexOf(char keyChar) {
+        if (this.childrenChars != null) {
+            //子节点较多，在字符数组中二分查找
+            return Arrays.binarySearch(this.childrenChars, 0, this.storeSize, keyChar);
+        }
+        //子节点较少，顺序查找
+        int i = 0;
+        for (; i < this.storeSize; i++) {
+            char c = this.childrenArray[i].nodeChar;
+            if (c == keyChar) {
+                return i;
+            }
+            if (c > keyChar) {
+                break;
             }
         }
-        return this.childrenArray;
+        return -(i + 1);
     }
 
     /**
-     * 获取Map容器
-     * 线程同步方法
+     * 在position处插入子节点，保持按字符有序
+     * @param position
+     * @param ds
      */
-    private Map<Character, DictSegment> getChildrenMap() {
-        if (this.childrenMap == null) {
-            synchronized (this) {
-                if (this.childrenMap == null) {
-                    this.childrenMap = new HashMap<Character, DictSegment>(ARRAY_LENGTH_LIMIT * 2, 0.8f);
-                }
+    private void insert(int position, DictSegment ds) {
+        int size = this.storeSize;
+        if (this.childrenArray == null) {
+            this.childrenArray = new DictSegment[1];
+        } else if (size == this.childrenArray.length) {
+            //子节点较少时按精确长度扩容，较多时按1.5倍扩容
+            int capacity = size < ARRAY_LENGTH_LIMIT ? size + 1 : size + (size >> 1);
+            this.childrenArray = Arrays.copyOf(this.childrenArray, capacity);
+            if (this.childrenChars != null) {
+                this.childrenChars = Arrays.copyOf(this.childrenChars, capacity);
             }
         }
-        return this.childrenMap;
-    }
-
-    /**
-     * 将数组中的segment迁移到Map中
-     * @param segmentArray
-     */
-    private void migrate(DictSegment[] segmentArray, Map<Character, DictSegment> segmentMap) {
-        for (DictSegment segment : segmentArray) {
-            if (segment != null) {
-                segmentMap.put(segment.nodeChar, segment);
+        System.arraycopy(this.childrenArray, position, this.childrenArray, position + 1, size - position);
+        this.childrenArray[position] = ds;
+        if (this.childrenChars != null) {
+            System.arraycopy(this.childrenChars, position, this.childrenChars, position + 1, size - position);
+            this.childrenChars[position] = ds.nodeChar;
+        } else if (size + 1 > ARRAY_LENGTH_LIMIT) {
+            //子节点数超过上限，建立字符数组
+            this.childrenChars = new char[this.childrenArray.length];
+            for (int i = 0; i <= size; i++) {
+                this.childrenChars[i] = this.childrenArray[i].nodeChar;
             }
         }
+        this.storeSize++;
     }
 
     /**
@@ -321,7 +279,7 @@ class DictSegment implements Comparable<DictSegment> {
      */
     public int compareTo(DictSegment o) {
         //对当前节点存储的char进行比较
-        return this.nodeChar.compareTo(o.nodeChar);
+        return Character.compare(this.nodeChar, o.nodeChar);
     }
 
 }
@@ -0,0 +1,194 @@
+package org.wltea.analyzer.dic;
+
+import java.util.List;
+
+/**
+ * 只读词典Trie
+ * 分词时的词典检索统一通过该抽象进行，具体存储可以是堆内数组、内存映射文件或FST。
+ * 节点以int状态表示，ROOT为根节点，-1表示不存在的节点；需要按节点下标遍历时通过toIndexedTrie取得IndexedDictTrie。
+ */
+abstract class DictTrie {
+
+    //根节点下标
+    static final int ROOT = 1;
+    //节点状态：从根节点到当前节点的路径表示一个词
+    static final byte STATE_WORD = 0x01;
+    //节点状态：当前节点存在子节点，即为词前缀
+    static final byte STATE_PREFIX = 0x02;
+
+    //词条首字位图，共64K位，第c位为1表示存在以字符c开头的词条；首次使用时生成
+    private volatile long[] firstChars;
+
+    /**
+     * 从状态state出发，沿字符c转移
+     * @param state 当前节点下标
+     * @param c 输入字符
+     * @return 转移后的节点下标，不存在则返回-1
+     */
+    abstract int transition(int state, char c);
+
+    /**
+     * 判断从根节点到state的路径是否为一个词
+     */
+    abstract boolean isWord(int state);
+
+    /**
+     * 判断state是否存在子节点
+     */
+    abstract boolean isPrefix(int state);
+
+    /**
+     * 获取堆内的双数组Trie，供写时复制编辑使用
+     * 内存映射的Trie将数组复制到堆内
+     */
+    abstract DoubleArrayTrie toHeapTrie();
+
+    /**
+     * 获取可按节点下标遍历的Trie
+     * 双数组Trie即为自身，其他存储形式转换为堆内的双数组Trie
+     */
+    abstract IndexedDictTrie toIndexedTrie();
+
+    /**
+     * 写时复制地应用一批增删，原Trie保持不变
+     * @param addedWords 新增词条
+     * @param disabledWords 屏蔽词条
+     * @return 修改后的新Trie，没有任何修改时返回null
+     */
+    DictTrie withChanges(List<char[]> addedWords, List<char[]> disabledWords) {
+        DoubleArrayTrieEditor editor = new DoubleArrayTrieEditor(this.toHeapTrie());
+        for (char[] word : addedWords) {
+            editor.addWord(word);
+        }
+        for (char[] word : disabledWords) {
+            editor.disableWord(word);
+        }
+        return editor.isModified() ? editor.build() : null;
+    }
+
+    /**
+     * 获取词条首字位图
+     * Trie不可变，位图与Trie一一对应，词典更新发布新Trie时随之更新
+     * @return 64K位的位图
+     */
+    long[] firstChars() {
+        long[] bitmap = this.firstChars;
+        if (bitmap == null) {
+            bitmap = new long[(Character.MAX_VALUE + 1) >>> 6];
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                if (this.transition(ROOT, (char) c) >= 0) {
+                    bitmap[c >>> 6] |= 1L << c;
+                }
+            }
+            this.firstChars = bitmap;
+        }
+        return bitmap;
+    }
+
+    /**
+     * 由修改前Trie的首字位图推导本Trie的位图，免去逐字探测
+     * 屏蔽词条后首字仍保留在位图中，多余的位只会多一次检索，不影响结果
+     * @param previous 修改前的Trie
+     * @param addedWords 新增词条
+     */
+    void deriveFirstChars(DictTrie previous, List<char[]> addedWords) {
+        long[] previousBitmap = previous.firstChars;
+        if (previousBitmap == null) {
+            return;
+        }
+        long[] bitmap = previousBitmap.clone();
+        for (char[] word : addedWords) {
+            if (word.length > 0) {
+                bitmap[word[0] >>> 6] |= 1L << word[0];
+            }
+        }
+        this.firstChars = bitmap;
+    }
+
+    /**
+     * 判断位图中字符c对应的位是否为1
+     */
+    static boolean isFirstChar(long[] firstChars, char c) {
+        return (firstChars[c >>> 6] & (1L << c)) != 0;
+    }
+
+    /**
+     * 判断指定的字串是否为词典中的词
+     * 不创建Hit对象
+     * @param charArray
+     * @param begin
+     * @param length
+     * @return boolean
+     */
+    boolean contains(char[] charArray, int begin, int length) {
+        if (length <= 0 || !isFirstChar(this.firstChars(), charArray[begin])) {
+            return false;
+        }
+        int state = ROOT;
+        for (int i = begin, end = begin + length; i < end; i++) {
+            state = this.transition(state, charArray[i]);
+            if (state < 0) {
+                return false;
+            }
+        }
+        return length > 0 && this.isWord(state);
+    }
+
+    /**
+     * 从根节点开始匹配词段
+     * @param charArray
+     * @param begin
+     * @param length
+     * @return Hit
+     */
+    Hit match(char[] charArray, int begin, int length) {
+        Hit searchHit = new Hit();
+        searchHit.setBegin(begin);
+        return this.match(charArray, begin, length, ROOT, searchHit);
+    }
+
+    /**
+     * 从已匹配的Hit所记录的节点继续向下匹配
+     * @param charArray
+     * @param currentIndex
+     * @param matchedHit
+     * @return Hit
+     */
+    Hit matchWithHit(char[] charArray, int currentIndex, Hit matchedHit) {
+        int state = matchedHit.getMatchedState();
+        //将HIT状态重置
+        matchedHit.setUnmatch();
+        return this.match(charArray, currentIndex, 1, state, matchedHit);
+    }
+
+    private Hit match(char[] charArray, int begin, int length, int state, Hit searchHit) {
+        for (int i = begin, end = begin + length; i < end; i++) {
+            //设置hit的当前处理位置
+            searchHit.setEnd(i);
+            state = this.transition(state, charArray[i]);
+            if (state < 0) {
+                //没有找到对应的节点，HIT为不匹配
+                return searchHit;
+            }
+        }
+        if (length > 0) {
+            if (this.isWord(state)) {
+                searchHit.setMatch();
+            }
+            if (this.isPrefix(state)) {
+                searchHit.setPrefix();
+                //记录当前位置的节点
+                searchHit.setMatchedTrie(this, state);
+            }
+        }
+        return searchHit;
+    }
+
+    /**
+     * 将Trie中的词还原到词典树中
+     * 用于在只读Trie(如内存映射词典)之上追加或屏蔽词条
+     * @param root 词典树根节点
+     * @return 还原的词条数
+     */
+    abstract int decompile(DictSegment root);
+}
@@ -25,17 +25,36 @@ package org.wltea.analyzer.dic;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.lucene.util.ResourceLoader;
 import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.cfg.DefaultConfig;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.Executors;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -44,25 +63,36 @@ import java.util.concurrent.atomic.AtomicReference;
 public class Dictionary {
     private static final Logger log = LogManager.getLogger(Dictionary.class);
 
-    /**定时更新IK词库的线程池*/
-    private static ScheduledExecutorService threadPool = Executors.newScheduledThreadPool(6);
+    /**定时更新IK词库的线程池，取消的监控任务立即从队列中移除*/
+    private static ScheduledExecutorService threadPool = newMonitorThreadPool();
 
     private static final int BUFFER_SIZE = 2048;
 
     private static final String DEFAULT_CHARSET = "UTF-8";
 
+    /**主词典按首字分区并行编译，每个线程对应的分区数*/
+    private static final int PARTITIONS_PER_THREAD = 2;
+    /**分区数上限，分区越多拼接后的双数组越稀疏*/
+    private static final int MAX_PARTITIONS = 16;
+
     /*
      * 词典单子实例
      */
     private static volatile Dictionary singleton;
 
     /*
-     * 主词典对象
+     * 通过资源加载器加载的共享词典实例，key为配置项及各词典文件内容的摘要，
+     * 引用相同词典文件的分词器共用同一个编译好的词典；引用计数归零时移除
+     */
+    private static final ConcurrentHashMap<String, SharedDictionary> sharedDictionaries = new ConcurrentHashMap<>();
+
+    /*
+     * 主词典对象，由主词典Trie还原的快照，需要时才还原
      */
     private AtomicReference<DictSegment> _MainDictAtomicReference;
 
     /*
-     * 停止词词典
+     * 停止词词典，由停用词Trie还原的快照，需要时才还原
      */
     private AtomicReference<DictSegment> _StopWordDictAtomicReference;
     /*
@@ -73,35 +103,233 @@ public class Dictionary {
     //英文单位词典
     private AtomicReference<DictSegment> _EnUnitDictAtomicReference;
 
+    /*
+     * 由以上词典编译而来(或从二进制词典文件映射)的只读Trie，分词时只检索这些结构
+     */
+    private AtomicReference<DictTrie> _MainTrieAtomicReference;
+    private AtomicReference<DictTrie> _StopWordTrieAtomicReference;
+    private AtomicReference<DictTrie> _QuantifierTrieAtomicReference;
+    private AtomicReference<DictTrie> _EnUnitTrieAtomicReference;
+
+    /*
+     * 由主词典Trie构建的Aho-Corasick自动机，首次使用时构建
+     */
+    private AtomicReference<AhoCorasickAutomaton> _MainAutomatonAtomicReference;
+
+    /*
+     * 词典版本号，每发布一次新的词典Trie递增一次
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /*
+     * 重新加载词典的锁，同一时刻只进行一次加载
+     */
+    private final Object reloadLock = new Object();
+
+    /*
+     * 词典文件的加载次数，远程词典的监控据此判断词典是否重新加载过
+     */
+    private final AtomicLong reloadCount = new AtomicLong();
+
+    /*
+     * 为本词典建立的远程词典监控
+     */
+    private final List<Monitor> monitors = new CopyOnWriteArrayList<Monitor>();
+
+    /*
+     * 远程词典监控的定时任务，共享词典释放时取消
+     */
+    private final List<ScheduledFuture<?>> monitorFutures = new CopyOnWriteArrayList<ScheduledFuture<?>>();
+
+    /*
+     * 以下两项由batchLock保护：正在应用的词条修改批次；
+     * 重新加载期间各Trie需要在新加载的Trie上重做的批次，不在加载期间时为空
+     */
+    private final Object batchLock = new Object();
+    private final List<WordBatch> activeBatches = new ArrayList<WordBatch>();
+    private final Map<AtomicReference<DictTrie>, List<WordBatch>> pendingBatches =
+            new IdentityHashMap<AtomicReference<DictTrie>, List<WordBatch>>();
+
     /**
      * 配置对象
      */
     private Configuration cfg;
 
+    /**
+     * 词典文件的资源加载器，为null时从类加载器读取
+     */
+    private final ResourceLoader resourceLoader;
+
+    /*
+     * 共享词典在sharedDictionaries中的key，词典单例为null
+     */
+    private volatile String sharedKey;
+
     private Dictionary(Configuration cfg) {
+        this(cfg, null);
+    }
+
+    private Dictionary(Configuration cfg, ResourceLoader resourceLoader) {
         //初始化字典有关的原子变量
         _MainDictAtomicReference = new AtomicReference<>();
         _StopWordDictAtomicReference = new AtomicReference<>();
         _QuantifierDictAtomicReference = new AtomicReference<>();
         _EnUnitDictAtomicReference = new AtomicReference<>();
+        _MainTrieAtomicReference = new AtomicReference<>();
+        _StopWordTrieAtomicReference = new AtomicReference<>();
+        _QuantifierTrieAtomicReference = new AtomicReference<>();
+        _EnUnitTrieAtomicReference = new AtomicReference<>();
+        _MainAutomatonAtomicReference = new AtomicReference<>();
         this.cfg = cfg;
+        this.resourceLoader = resourceLoader;
         loadAllDicts(this);
     }
 
     /**
      * 加载IK分词器的所有词典文件
+     * 各词典文件在ForkJoinPool中并行读取，主词典按首字分区并行编译
      */
     private void loadAllDicts(Dictionary dictionary) {
+        synchronized (this.reloadLock) {
+            this.beginReload();
+            try {
+                this.doLoadAllDicts(dictionary);
+            } finally {
+                this.endReload();
+            }
+        }
+    }
+
+    private void doLoadAllDicts(Dictionary dictionary) {
+        long begin = System.currentTimeMillis();
+        ForkJoinPool pool = ForkJoinPool.commonPool();
         //加载主扩展词库词典文件
-        dictionary.loadMainDict();
+        CompletableFuture<DictTrie> mainTrie = CompletableFuture.supplyAsync(() -> dictionary.loadMainDict(pool), pool);
         //加载停用词词典文件
-        dictionary.loadStopWordDict();
-        _MainDictAtomicReference.set(dictionary._MainDictAtomicReference.get());
-        this._StopWordDictAtomicReference.set(dictionary.getStopWordDict());
+        CompletableFuture<DictSegment> stopWordDict = CompletableFuture.supplyAsync(dictionary::loadStopWordDict, pool);
         //加载英文单位词典文件
-        this._EnUnitDictAtomicReference.set(dictionary.loadCustomDict(dictionary.cfg.getEnglishUnitDicionary(), dictionary.getEnUnitDict()));
+        CompletableFuture<DictSegment> enUnitDict = CompletableFuture.supplyAsync(
+                () -> dictionary.loadCustomDict(dictionary.cfg.getEnglishUnitDicionary(), null), pool);
         //加载中文量词词典文件
-        this._QuantifierDictAtomicReference.set(dictionary.loadCustomDict(dictionary.cfg.getQuantifierDicionary(), dictionary.getQuantifierDict()));
+        CompletableFuture<DictSegment> quantifierDict = CompletableFuture.supplyAsync(
+                () -> dictionary.loadCustomDict(dictionary.cfg.getQuantifierDicionary(), null), pool);
+        //小词典在各自的任务中编译为双数组Trie
+        CompletableFuture<DoubleArrayTrie> stopWordTrie = stopWordDict.thenApplyAsync(DoubleArrayTrie::compile, pool);
+        CompletableFuture<DoubleArrayTrie> enUnitTrie = enUnitDict.thenApplyAsync(DoubleArrayTrie::compile, pool);
+        CompletableFuture<DoubleArrayTrie> quantifierTrie = quantifierDict.thenApplyAsync(DoubleArrayTrie::compile, pool);
+        try {
+            this._EnUnitDictAtomicReference.set(enUnitDict.join());
+            this._QuantifierDictAtomicReference.set(quantifierDict.join());
+            this._EnUnitTrieAtomicReference.set(withFirstChars(enUnitTrie.join()));
+            this._QuantifierTrieAtomicReference.set(withFirstChars(quantifierTrie.join()));
+            //主词典及停用词可在运行中增删，加载期间发布的修改在新Trie上重做后再发布
+            this.publishTrie(this._MainTrieAtomicReference, withFirstChars(mainTrie.join()));
+            this.publishTrie(this._StopWordTrieAtomicReference, withFirstChars(stopWordTrie.join()));
+            //词典树编译后即释放，之后的增删直接在Trie的副本上进行，需要词典树时再从Trie还原
+            this.invalidateSnapshot(this._MainDictAtomicReference);
+            this.invalidateSnapshot(this._StopWordDictAtomicReference);
+        } catch (CompletionException e) {
+            //词典文件缺失等异常按原样抛出
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        this.version.incrementAndGet();
+        this.reloadCount.incrementAndGet();
+        this.refreshMainDictAutomaton();
+        log.info("加载全部词典完成，并行度：" + pool.getParallelism() + "，耗时：" + (System.currentTimeMillis() - begin) + "ms");
+    }
+
+    /**
+     * 开始加载词典：登记正在应用的修改批次，此后发布的批次也一并记录，加载完成后重做
+     */
+    private void beginReload() {
+        synchronized (this.batchLock) {
+            for (AtomicReference<DictTrie> trieReference : this.updatableTries()) {
+                List<WordBatch> batches = new ArrayList<WordBatch>();
+                for (WordBatch batch : this.activeBatches) {
+                    if (batch.trieReference == trieReference) {
+                        batches.add(batch);
+                    }
+                }
+                this.pendingBatches.put(trieReference, batches);
+            }
+        }
+    }
+
+    private void endReload() {
+        synchronized (this.batchLock) {
+            this.pendingBatches.clear();
+        }
+    }
+
+    private List<AtomicReference<DictTrie>> updatableTries() {
+        return Arrays.asList(this._MainTrieAtomicReference, this._StopWordTrieAtomicReference);
+    }
+
+    /**
+     * 发布新加载的Trie
+     * 在其上重做加载期间的修改批次后比较并替换，期间若有其他线程发布了修改，则连同新登记的批次重做。
+     * 批次重做后仍在应用中的线程会在新Trie上再应用一次，增删词条是幂等的，结果不变
+     */
+    private void publishTrie(AtomicReference<DictTrie> trieReference, DictTrie loaded) {
+        while (true) {
+            DictTrie current = trieReference.get();
+            List<WordBatch> batches;
+            synchronized (this.batchLock) {
+                batches = new ArrayList<WordBatch>(this.pendingBatches.get(trieReference));
+            }
+            DictTrie target = replay(loaded, batches);
+            if (trieReference.compareAndSet(current, target)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 在Trie上按顺序重做多个批次
+     * 先按批次顺序合并出每个词条最终的增删，再经Trie自身的withChanges一次应用，
+     * 只复制一次Trie，且重做后的Trie与原Trie的存储形式(双数组、FST)一致
+     * @return 重做后的Trie，没有任何修改时返回原Trie
+     */
+    private static DictTrie replay(DictTrie trie, List<WordBatch> batches) {
+        if (batches.isEmpty()) {
+            return trie;
+        }
+        //词条 ---> 是否新增，后面批次的修改覆盖前面的；同一批次内先新增后屏蔽，与withChanges一致
+        Map<String, Boolean> changes = new LinkedHashMap<String, Boolean>();
+        for (WordBatch batch : batches) {
+            for (char[] word : batch.added) {
+                changes.put(new String(word), Boolean.TRUE);
+            }
+            for (char[] word : batch.disabled) {
+                changes.put(new String(word), Boolean.FALSE);
+            }
+        }
+        List<char[]> added = new ArrayList<char[]>();
+        List<char[]> disabled = new ArrayList<char[]>();
+        for (Map.Entry<String, Boolean> change : changes.entrySet()) {
+            if (change.getValue()) {
+                added.add(change.getKey().toCharArray());
+            } else {
+                disabled.add(change.getKey().toCharArray());
+            }
+        }
+        DictTrie replayed = trie.withChanges(added, disabled);
+        if (replayed == null) {
+            return trie;
+        }
+        replayed.deriveFirstChars(trie, added);
+        return replayed;
+    }
+
+    /**
+     * 发布前生成Trie的首字位图，避免分词线程首次使用时生成
+     */
+    private static DictTrie withFirstChars(DictTrie trie) {
+        trie.firstChars();
+        return trie;
     }
 
     /**
@@ -117,24 +345,7 @@ public class Dictionary {
             synchronized (Dictionary.class) {
                 if (singleton == null) {
                     singleton = new Dictionary(cfg);
-                    if(cfg.enableRemoteDict()) {
-                        long remoteExtDictRefreshInterval = cfg.getRemoteExtDictRefreshInterval();
-                        // 建立监控线程
-                        for (String location : cfg.getRemoteExtDictionarys()) {
-                            if(null == location || "".equalsIgnoreCase(location)) {
-                                continue;
-                            }
-                            threadPool.scheduleAtFixedRate(new Monitor(location, remoteExtDictRefreshInterval),
-                                    10, remoteExtDictRefreshInterval, TimeUnit.SECONDS);
-                        }
-                        for (String location : cfg.getRemoteExtStopWordDictionarys()) {
-                            if(null == location || "".equalsIgnoreCase(location)) {
-                                continue;
-                            }
-                            threadPool.scheduleAtFixedRate(new Monitor(location, remoteExtDictRefreshInterval),
-                                    10, remoteExtDictRefreshInterval, TimeUnit.SECONDS);
-                        }
-                    }
+                    scheduleRemoteDicts(singleton, cfg);
                     return singleton;
                 }
             }
@@ -142,6 +353,207 @@ public class Dictionary {
         return singleton;
     }
 
+    /**
+     * 通过资源加载器(如Solr的SolrResourceLoader)加载词典，与单例相互独立
+     * 配置项及各词典文件内容相同的调用共用同一个词典实例，词典只编译一次，远程词典也只建立一组监控线程，
+     * 多个Solr core、collection引用相同的词典文件时不会重复占用内存。
+     * 共享词典按引用计数管理，不再使用时须调用release，最后一个引用释放后词典才能被回收
+     * @param cfg 配置对象，其中的词典路径由资源加载器解析
+     * @param resourceLoader 资源加载器
+     * @return 共享的词典实例
+     * @throws IOException 读取词典文件异常
+     */
+    public static Dictionary shared(Configuration cfg, ResourceLoader resourceLoader) throws IOException {
+        String key = digest(cfg, resourceLoader);
+        //只在登记引用时持有map的锁，词典在锁外加载，其他调用方等待同一个Future
+        SharedDictionary created = new SharedDictionary();
+        SharedDictionary entry = sharedDictionaries.compute(key, (k, existing) -> {
+            if (existing == null) {
+                return created;
+            }
+            existing.references++;
+            return existing;
+        });
+        if (entry == created) {
+            try {
+                Dictionary dictionary = new Dictionary(cfg, resourceLoader);
+                dictionary.sharedKey = key;
+                scheduleRemoteDicts(dictionary, cfg);
+                entry.future.complete(dictionary);
+            } catch (RuntimeException | Error e) {
+                //加载失败不留在共享词典中，之后的调用重新加载
+                sharedDictionaries.remove(key, entry);
+                entry.future.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return entry.future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 释放一次由shared取得的共享词典
+     * 每次shared调用对应一次release；最后一个引用释放后，词典从共享词典中移除，其远程词典监控停止，
+     * 之后以相同的词典文件调用shared会重新加载。对词典单例调用时不做操作
+     * @param dictionary shared返回的词典
+     */
+    public static void release(Dictionary dictionary) {
+        String key = dictionary.sharedKey;
+        if (key == null) {
+            return;
+        }
+        boolean[] removed = new boolean[1];
+        sharedDictionaries.computeIfPresent(key, (k, entry) -> {
+            if (entry.future.getNow(null) != dictionary) {
+                return entry;
+            }
+            if (--entry.references > 0) {
+                return entry;
+            }
+            removed[0] = true;
+            return null;
+        });
+        if (removed[0]) {
+            for (ScheduledFuture<?> future : dictionary.monitorFutures) {
+                future.cancel(false);
+            }
+            dictionary.monitorFutures.clear();
+            dictionary.monitors.clear();
+            log.info("共享词典已释放：" + key);
+        }
+    }
+
+    /**
+     * 共享词典的引用计数，references由sharedDictionaries的compute系列方法在锁内修改
+     */
+    private static final class SharedDictionary {
+        private final CompletableFuture<Dictionary> future = new CompletableFuture<Dictionary>();
+        private int references = 1;
+    }
+
+    /**
+     * 计算配置项及各词典文件内容的摘要，作为共享词典的key
+     */
+    private static String digest(Configuration cfg, ResourceLoader resourceLoader) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digestString(md, cfg.getMainDictionaryFormat());
+        digestString(md, cfg.getMainDictionaryBinary());
+        digestString(md, String.valueOf(cfg.enableRemoteDict()));
+        digestString(md, String.valueOf(cfg.getRemoteExtDictRefreshInterval()));
+        digestFile(md, resourceLoader, cfg.getMainDictionary());
+        digestFile(md, resourceLoader, cfg.getQuantifierDicionary());
+        digestFile(md, resourceLoader, cfg.getEnglishUnitDicionary());
+        digestString(md, "ext_dict");
+        for (String path : cfg.getExtDictionarys()) {
+            digestFile(md, resourceLoader, path);
+        }
+        digestString(md, "ext_stopwords");
+        for (String path : cfg.getExtStopWordDictionarys()) {
+            digestFile(md, resourceLoader, path);
+        }
+        digestString(md, "remote_ext_dict");
+        for (String location : cfg.getRemoteExtDictionarys()) {
+            digestString(md, location);
+        }
+        digestString(md, "remote_ext_stopwords");
+        for (String location : cfg.getRemoteExtStopWordDictionarys()) {
+            digestString(md, location);
+        }
+        StringBuilder key = new StringBuilder(64);
+        for (byte b : md.digest()) {
+            key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return key.toString();
+    }
+
+    private static void digestString(MessageDigest md, String value) {
+        if (value != null) {
+            md.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        md.update((byte) 0);
+    }
+
+    private static void digestFile(MessageDigest md, ResourceLoader resourceLoader, String path) throws IOException {
+        digestString(md, path);
+        InputStream inputStream = openResource(resourceLoader, path);
+        if (inputStream == null) {
+            return;
+        }
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE * 4];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                md.update(buffer, 0, read);
+            }
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * 为远程扩展词典及远程扩展停用词词典建立监控线程，远程词条应用到指定的词典实例
+     */
+    private static void scheduleRemoteDicts(Dictionary dictionary, Configuration cfg) {
+        if (!cfg.enableRemoteDict()) {
+            return;
+        }
+        long remoteExtDictRefreshInterval = cfg.getRemoteExtDictRefreshInterval();
+        // 建立监控线程
+        for (String location : cfg.getRemoteExtDictionarys()) {
+            if(null == location || "".equalsIgnoreCase(location)) {
+                continue;
+            }
+            Monitor monitor = new Monitor(dictionary, location, remoteExtDictRefreshInterval, false);
+            dictionary.monitors.add(monitor);
+            dictionary.monitorFutures.add(
+                    threadPool.scheduleAtFixedRate(monitor, 10, remoteExtDictRefreshInterval, TimeUnit.SECONDS));
+        }
+        for (String location : cfg.getRemoteExtStopWordDictionarys()) {
+            if(null == location || "".equalsIgnoreCase(location)) {
+                continue;
+            }
+            Monitor monitor = new Monitor(dictionary, location, remoteExtDictRefreshInterval, true);
+            dictionary.monitors.add(monitor);
+            dictionary.monitorFutures.add(
+                    threadPool.scheduleAtFixedRate(monitor, 10, remoteExtDictRefreshInterval, TimeUnit.SECONDS));
+        }
+    }
+
+    private static ScheduledExecutorService newMonitorThreadPool() {
+        //后台线程不阻止应用退出
+        ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(6, runnable -> {
+            Thread thread = new Thread(runnable, "ik-dict-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.setRemoveOnCancelPolicy(true);
+        return pool;
+    }
+
+    /**
+     * 在后台线程中初始化词典
+     * 服务启动时可以先继续其他初始化工作，需要分词前再等待返回的Future完成；
+     * 加载期间创建的IKSegmenter会等待词典加载完成
+     * @return 词典加载完成时完成的Future
+     */
+    public static CompletableFuture<Dictionary> initialAsync(Configuration cfg) {
+        return CompletableFuture.supplyAsync(() -> initial(cfg), threadPool);
+    }
+
     /**
      * 获取词典单子实例
      * @return Dictionary 单例对象
@@ -158,14 +570,7 @@ public class Dictionary {
      * @param words Collection<String>词条列表
      */
     public void addWords(Collection<String> words) {
-        if (words != null) {
-            for (String word : words) {
-                if (word != null) {
-                    //批量加载词条到主内存词典中
-                    singleton.getMainDict().fillSegment(word.trim().toLowerCase().toCharArray());
-                }
-            }
-        }
+        this.updateWords(words, null);
     }
 
     /**
@@ -173,14 +578,116 @@ public class Dictionary {
      * @param words
      */
     public void disableWords(Collection<String> words) {
+        this.updateWords(null, words);
+    }
+
+    /**
+     * 批量加载及屏蔽主词典词条
+     * 在当前主词典Trie的副本上完成整批修改后，以一次原子替换发布，
+     * 分词线程始终读取某一个完整版本的Trie，不会被阻塞。
+     * 同一词条同时出现在两个列表中时，以屏蔽为准。
+     * @param addedWords 新增词条，可以为null
+     * @param disabledWords 屏蔽词条，可以为null
+     */
+    public void updateWords(Collection<String> addedWords, Collection<String> disabledWords) {
+        if (this.updateTrie(this._MainTrieAtomicReference, addedWords, disabledWords)) {
+            this.invalidateSnapshot(this._MainDictAtomicReference);
+            this.refreshMainDictAutomaton();
+        }
+    }
+
+    /**
+     * 批量加载及屏蔽停用词
+     * @param addedWords 新增停用词，可以为null
+     * @param disabledWords 屏蔽停用词，可以为null
+     */
+    public void updateStopWords(Collection<String> addedWords, Collection<String> disabledWords) {
+        if (this.updateTrie(this._StopWordTrieAtomicReference, addedWords, disabledWords)) {
+            this.invalidateSnapshot(this._StopWordDictAtomicReference);
+        }
+    }
+
+    /**
+     * 写时复制更新词典Trie
+     * 发布时比较并替换，若期间有其他线程发布了新版本，则在新版本上重做整批修改，写线程之间也无需加锁。
+     * 批次在应用期间登记在activeBatches中，与之重叠的词典重新加载会在新加载的Trie上重做该批次
+     * @return 是否发布了新版本
+     */
+    private boolean updateTrie(AtomicReference<DictTrie> trieReference, Collection<String> addedWords, Collection<String> disabledWords) {
+        List<char[]> added = normalizeWords(addedWords);
+        List<char[]> disabled = normalizeWords(disabledWords);
+        if (added.isEmpty() && disabled.isEmpty()) {
+            return false;
+        }
+        WordBatch batch = new WordBatch(trieReference, added, disabled);
+        synchronized (this.batchLock) {
+            this.activeBatches.add(batch);
+            List<WordBatch> pending = this.pendingBatches.get(trieReference);
+            if (pending != null) {
+                pending.add(batch);
+            }
+        }
+        try {
+            while (true) {
+                DictTrie current = trieReference.get();
+                DictTrie updated = current.withChanges(added, disabled);
+                if (updated == null) {
+                    return false;
+                }
+                updated.deriveFirstChars(current, added);
+                if (trieReference.compareAndSet(current, updated)) {
+                    this.version.incrementAndGet();
+                    return true;
+                }
+            }
+        } finally {
+            synchronized (this.batchLock) {
+                this.activeBatches.remove(batch);
+            }
+        }
+    }
+
+    /**
+     * 一批词条修改
+     */
+    private static final class WordBatch {
+        private final AtomicReference<DictTrie> trieReference;
+        private final List<char[]> added;
+        private final List<char[]> disabled;
+
+        private WordBatch(AtomicReference<DictTrie> trieReference, List<char[]> added, List<char[]> disabled) {
+            this.trieReference = trieReference;
+            this.added = added;
+            this.disabled = disabled;
+        }
+    }
+
+    private static List<char[]> normalizeWords(Collection<String> words) {
+        List<char[]> normalized = new ArrayList<char[]>();
         if (words != null) {
             for (String word : words) {
                 if (word != null) {
-                    //批量屏蔽词条
-                    singleton.getMainDict().disableSegment(word.trim().toLowerCase().toCharArray());
+                    normalized.add(word.trim().toLowerCase().toCharArray());
                 }
             }
         }
+        return normalized;
+    }
+
+    /**
+     * 词典版本号
+     * 主词典、停用词等任一词典发布新版本后递增，可用于判断依赖词典的缓存是否过期
+     * @return 版本号
+     */
+    public long getVersion() {
+        return this.version.get();
+    }
+
+    /**
+     * 词典文件的加载次数
+     */
+    long getReloadCount() {
+        return this.reloadCount.get();
     }
 
     /**
@@ -189,7 +696,7 @@ public class Dictionary {
      * @return Hit 匹配结果描述
      */
     public Hit matchInMainDict(char[] charArray) {
-        return singleton.getMainDict().match(charArray);
+        return this.getMainTrie().match(charArray, 0, charArray.length);
     }
 
     /**
@@ -200,7 +707,7 @@ public class Dictionary {
      * @return Hit 匹配结果描述
      */
     public Hit matchInMainDict(char[] charArray, int begin, int length) {
-        return singleton.getMainDict().match(charArray, begin, length);
+        return this.getMainTrie().match(charArray, begin, length);
     }
 
     /**
@@ -211,7 +718,7 @@ public class Dictionary {
      * @return Hit 匹配结果描述
      */
     public Hit matchInQuantifierDict(char[] charArray, int begin, int length) {
-        return singleton.getQuantifierDict().match(charArray, begin, length);
+        return this.getQuantifierTrie().match(charArray, begin, length);
     }
 
     /**
@@ -222,7 +729,7 @@ public class Dictionary {
      * @return Hit 匹配结果描述
      */
     public Hit matchInENUnitDict(char[] charArray, int begin, int length) {
-        return singleton.getEnUnitDict().match(charArray, begin, length);
+        return this.getEnUnitTrie().match(charArray, begin, length);
     }
 
     /**
@@ -233,10 +740,66 @@ public class Dictionary {
      * @return Hit
      */
     public Hit matchWithHit(char[] charArray, int currentIndex, Hit matchedHit) {
-        DictSegment dictSegment = matchedHit.getMatchedDictSegment();
-        return dictSegment.match(charArray, currentIndex, 1, matchedHit);
+        DictTrie trie = matchedHit.getMatchedTrie();
+        return trie.matchWithHit(charArray, currentIndex, matchedHit);
+    }
+
+
+    /**
+     * 创建主词典匹配游标
+     * @return DictCursor
+     */
+    public DictCursor newMainDictCursor() {
+        return new DictCursor(this._MainTrieAtomicReference);
+    }
+
+    /**
+     * 创建量词词典匹配游标
+     * @return DictCursor
+     */
+    public DictCursor newQuantifierDictCursor() {
+        return new DictCursor(this._QuantifierTrieAtomicReference);
+    }
+
+    /**
+     * 创建英文单位词典匹配游标
+     * @return DictCursor
+     */
+    public DictCursor newENUnitDictCursor() {
+        return new DictCursor(this._EnUnitTrieAtomicReference);
+    }
+
+    /**
+     * 获取主词典的Aho-Corasick自动机
+     * 首次获取时构建；主词典更新后由更新线程重新构建，构建完成前返回的是基于上一版本主词典的完整自动机
+     * @return AhoCorasickAutomaton
+     */
+    public AhoCorasickAutomaton getMainDictAutomaton() {
+        AhoCorasickAutomaton automaton = this._MainAutomatonAtomicReference.get();
+        if (automaton == null) {
+            automaton = this.buildMainDictAutomaton(false);
+        }
+        return automaton;
+    }
+
+    /**
+     * 主词典更新后，若自动机已被使用，则按新的主词典重新构建
+     */
+    private void refreshMainDictAutomaton() {
+        if (this._MainAutomatonAtomicReference.get() != null) {
+            this.buildMainDictAutomaton(true);
+        }
     }
 
+    private synchronized AhoCorasickAutomaton buildMainDictAutomaton(boolean refresh) {
+        DictTrie mainTrie = this.getMainTrie();
+        AhoCorasickAutomaton automaton = this._MainAutomatonAtomicReference.get();
+        if (automaton == null || (refresh && automaton.getTrie() != mainTrie)) {
+            automaton = AhoCorasickAutomaton.build(mainTrie);
+            this._MainAutomatonAtomicReference.set(automaton);
+        }
+        return automaton;
+    }
 
     /**
      * 判断是否为计量单位
@@ -246,7 +809,7 @@ public class Dictionary {
      * @return boolean
      */
     public boolean isCNUnitWord(char[] charArray, int begin, int length) {
-        return singleton.getQuantifierDict().match(charArray, begin, length).isMatch();
+        return this.getQuantifierTrie().contains(charArray, begin, length);
     }
 
     /**
@@ -257,55 +820,117 @@ public class Dictionary {
      * @return
      */
     public boolean isStopWord(char[] charArray, int begin, int length) {
-        return singleton.getStopWordDict().match(charArray, begin, length).isMatch();
+        return this.getStopWordTrie().contains(charArray, begin, length);
     }
 
     /**
      * 加载主词典及扩展词典
+     * 各词典文件并行读取，词条按首字分区后并行建立词典树并编译为双数组Trie
+     * @param pool 线程池
+     * @return 主词典Trie
      */
-    private void loadMainDict() {
-        //建立一个主词典实例
-        this._MainDictAtomicReference.set(new DictSegment((char) 0));
+    private DictTrie loadMainDict(ForkJoinPool pool) {
+        //优先映射预编译的二进制词典文件，其中已包含扩展词典
+        DictTrie binaryTrie = this.loadMainDictBinary();
+        if (binaryTrie != null) {
+            return binaryTrie;
+        }
         //读取主词典文件
         String mainDictPath = this.cfg.getMainDictionary();
-        InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream(mainDictPath);
+        InputStream inputStream = this.openDictionary(mainDictPath);
         String mainDictName = getDicFileName(mainDictPath);
 
         if (inputStream == null) {
             throw new RuntimeException("Main Dictionary:{" + mainDictName + "} not found!!!");
         }
-        readDict(inputStream, this.getMainDict(), "主词典", mainDictName);
+        List<ForkJoinTask<List<char[]>>> readTasks = new ArrayList<ForkJoinTask<List<char[]>>>();
+        readTasks.add(pool.submit(() -> readWords(inputStream, "主词典", mainDictName)));
         //加载扩展词典
-        this.loadExtDict();
-    }
-
-    /**
-     * 加载用户配置的扩展词典到主词库表
-     */
-    private void loadExtDict() {
-        //加载扩展词典配置
         List<String> extDictFiles = this.cfg.getExtDictionarys();
         if (extDictFiles != null) {
-            InputStream inputStream = null;
             for (String extDictName : extDictFiles) {
                 //读取扩展词典文件
                 log.info("加载扩展词典:" + extDictName);
-                inputStream = this.getClass().getClassLoader().getResourceAsStream(extDictName);
+                InputStream extInputStream = this.openDictionary(extDictName);
                 //如果找不到扩展的字典，则忽略
-                if (inputStream == null) {
+                if (extInputStream == null) {
                     continue;
                 }
-                readDict(inputStream, this.getMainDict(), "扩展词典", extDictName);
+                readTasks.add(pool.submit(() -> readWords(extInputStream, "扩展词典", extDictName)));
+            }
+        }
+        List<List<char[]>> dictWords = new ArrayList<List<char[]>>();
+        for (ForkJoinTask<List<char[]>> readTask : readTasks) {
+            dictWords.add(readTask.join());
+        }
+        if (this.isFstFormat()) {
+            List<char[]> allWords = new ArrayList<char[]>();
+            for (List<char[]> words : dictWords) {
+                allWords.addAll(words);
+            }
+            FstDictTrie fstTrie = FstDictTrie.compile(allWords);
+            log.info("主词典编译为FST，占用内存：" + fstTrie.ramBytesUsed() + "字节");
+            return fstTrie;
+        }
+
+        //按首字分区，各分区并行建立词典树
+        int partitionCount = Math.min(MAX_PARTITIONS, Math.max(1, pool.getParallelism()) * PARTITIONS_PER_THREAD);
+        List<ForkJoinTask<DictSegment>> fillTasks = new ArrayList<ForkJoinTask<DictSegment>>();
+        for (int i = 0; i < partitionCount; i++) {
+            int partition = i;
+            fillTasks.add(pool.submit(() -> {
+                DictSegment root = new DictSegment((char) 0);
+                for (List<char[]> words : dictWords) {
+                    for (char[] word : words) {
+                        if (word[0] % partitionCount == partition) {
+                            root.fillSegment(word);
+                        }
+                    }
+                }
+                return root;
+            }));
+        }
+        DictSegment[] partitions = new DictSegment[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = fillTasks.get(i).join();
+        }
+        return DoubleArrayTrie.compile(partitions, pool);
+    }
+
+    /**
+     * 映射预编译的二进制主词典文件
+     * @return 主词典Trie，未配置或映射失败时返回null，回退到加载文本词典
+     */
+    private DictTrie loadMainDictBinary() {
+        String mainDictBinary = this.cfg.getMainDictionaryBinary();
+        if (null == mainDictBinary || "".equals(mainDictBinary)) {
+            return null;
+        }
+        try {
+            if (this.isFstFormat()) {
+                FstDictTrie fstTrie = FstDictTrie.open(Paths.get(mainDictBinary));
+                log.info("读取FST主词典：" + mainDictBinary + "，占用内存：" + fstTrie.ramBytesUsed() + "字节");
+                return fstTrie;
             }
+            MappedDoubleArrayTrie trie = MappedDoubleArrayTrie.open(Paths.get(mainDictBinary));
+            log.info("映射二进制主词典：" + mainDictBinary + "，词条数：" + trie.getWords());
+            return trie;
+        } catch (IOException e) {
+            log.error("Mapping binary dictionary [" + mainDictBinary + "] occur exception, fall back to text dictionary.", e);
+            return null;
         }
     }
 
+    private boolean isFstFormat() {
+        return DefaultConfig.MAIN_DICT_FORMAT_FST.equals(this.cfg.getMainDictionaryFormat());
+    }
+
     /**
      * 加载用户扩展的停止词词典
      */
-    private void loadStopWordDict() {
+    private DictSegment loadStopWordDict() {
         //建立一个主词典实例
-        this._StopWordDictAtomicReference.set(new DictSegment((char) 0));
+        DictSegment stopWordDict = new DictSegment((char) 0);
         //加载扩展停止词典
         List<String> extStopWordDictFiles = this.cfg.getExtStopWordDictionarys();
         if (extStopWordDictFiles != null) {
@@ -313,14 +938,15 @@ public class Dictionary {
             for (String extStopWordDictName : extStopWordDictFiles) {
                 log.info("加载扩展停用词词典：" + extStopWordDictName);
                 //读取扩展词典文件
-                inputStream = this.getClass().getClassLoader().getResourceAsStream(extStopWordDictName);
+                inputStream = this.openDictionary(extStopWordDictName);
                 //如果找不到扩展的字典，则忽略
                 if (inputStream == null) {
                     continue;
                 }
-                readDict(inputStream, this.getStopWordDict(), "扩展停用词词典", extStopWordDictName);
+                readDict(inputStream, stopWordDict, "扩展停用词词典", extStopWordDictName);
             }
         }
+        return stopWordDict;
     }
 
     /**
@@ -333,7 +959,7 @@ public class Dictionary {
         }
 
         //读取量词词典文件
-        InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream(dicPath);
+        InputStream inputStream = this.openDictionary(dicPath);
         String dicFileName = getDicFileName(dicPath);
         if (inputStream == null) {
             throw new RuntimeException("自定义词典:{" + dicFileName + "} not found!!!");
@@ -342,11 +968,18 @@ public class Dictionary {
         return dictSegment;
     }
 
+    /**
+     * 从词典文件重新加载全部词典
+     * 加载期间通过updateWords等发布的修改会在新词典上重做；远程词典监控加入的词条随后由各监控补回，
+     * 其他在加载开始前通过updateWords等加入的词条不再保留
+     */
     public void reLoadMainDict() {
         log.info("start to reload ik dict.");
-        // 新开一个实例加载词典，减少加载过程对当前词典使用的影响
-        Dictionary newDict = new Dictionary(this.cfg);
-        this.loadAllDicts(newDict);
+        // 词典在后台任务中加载完成后才替换，加载过程不影响当前词典的使用
+        this.loadAllDicts(this);
+        for (Monitor monitor : this.monitors) {
+            monitor.reapplyIfReloaded();
+        }
         log.info("reload ik dict finished.");
     }
 
@@ -375,6 +1008,57 @@ public class Dictionary {
         }
     }
 
+    /**
+     * 读取词典文件中的词条，规则与readDict一致
+     * @return 词条列表
+     */
+    private List<char[]> readWords(InputStream inputStream, String dictFileName, String dictNameCN) {
+        List<char[]> words = new ArrayList<char[]>();
+        try {
+            BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream, DEFAULT_CHARSET), BUFFER_SIZE);
+            log.info("加载" + dictNameCN + "：" + dictFileName);
+            String theWord = null;
+            do {
+                theWord = bufferedReader.readLine();
+                if (theWord != null && !"".equals(theWord.trim())) {
+                    words.add(theWord.trim().toLowerCase().toCharArray());
+                }
+            } while (theWord != null);
+        } catch (Exception e) {
+            log.error("Loading [" + dictFileName + "] occur exception.");
+        } finally {
+            closeInputStream(inputStream);
+        }
+        return words;
+    }
+
+    /**
+     * 打开词典文件，找不到时返回null
+     */
+    private InputStream openDictionary(String dicPath) {
+        try {
+            return openResource(this.resourceLoader, dicPath);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static InputStream openResource(ResourceLoader resourceLoader, String path) throws IOException {
+        if (path == null) {
+            return null;
+        }
+        if (resourceLoader == null) {
+            return Dictionary.class.getClassLoader().getResourceAsStream(path);
+        }
+        try {
+            return resourceLoader.openResource(path);
+        } catch (IOException e) {
+            //资源加载器找不到文件时抛出异常，与类加载器一致按找不到处理
+            log.debug("Resource [{}] not found: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
     private void closeInputStream(InputStream inputStream) {
         try {
             if (inputStream != null) {
@@ -398,19 +1082,93 @@ public class Dictionary {
         return dicPath.substring(index + 1);
     }
 
+    /**
+     * 获取主词典的词典树
+     * 分词只检索编译后的Trie，返回的词典树是由当前Trie还原出的快照：主词典更新后需重新获取，
+     * 对其调用fillSegment等修改不会影响分词，增删词条请使用updateWords
+     * @deprecated 词典树只是快照，请使用matchInMainDict检索、updateWords修改
+     */
+    @Deprecated
     public DictSegment getMainDict() {
-        return this._MainDictAtomicReference.get();
+        return this.getSnapshot(this._MainDictAtomicReference, this._MainTrieAtomicReference);
     }
 
+    /**
+     * 获取停用词词典树
+     * 与getMainDict相同，返回由当前停用词Trie还原出的快照，修改快照不会影响分词
+     * @deprecated 词典树只是快照，请使用isStopWord检索、updateStopWords修改
+     */
+    @Deprecated
     public DictSegment getStopWordDict() {
-        return this._StopWordDictAtomicReference.get();
+        return this.getSnapshot(this._StopWordDictAtomicReference, this._StopWordTrieAtomicReference);
     }
 
+    /**
+     * 获取量词词典树
+     * 返回加载词典时读入的词典树，分词检索的是由其编译的Trie，修改词典树不会影响分词
+     * @deprecated 词典树只是快照，请使用matchInQuantifierDict检索
+     */
+    @Deprecated
     public DictSegment getQuantifierDict() {
         return this._QuantifierDictAtomicReference.get();
     }
 
+    /**
+     * 获取英文单位词典树
+     * 返回加载词典时读入的词典树，分词检索的是由其编译的Trie，修改词典树不会影响分词
+     * @deprecated 词典树只是快照，请使用matchInENUnitDict检索
+     */
+    @Deprecated
     public DictSegment getEnUnitDict() {
         return this._EnUnitDictAtomicReference.get();
     }
+
+    /**
+     * 取由Trie还原的词典树快照，未还原或已过期时由当前Trie重新还原
+     */
+    private DictSegment getSnapshot(AtomicReference<DictSegment> snapshotReference, AtomicReference<DictTrie> trieReference) {
+        DictSegment snapshot = snapshotReference.get();
+        if (snapshot == null) {
+            snapshot = this.decompile(snapshotReference, trieReference);
+        }
+        return snapshot;
+    }
+
+    private synchronized DictSegment decompile(AtomicReference<DictSegment> snapshotReference, AtomicReference<DictTrie> trieReference) {
+        DictSegment snapshot = snapshotReference.get();
+        if (snapshot == null) {
+            DictTrie trie = trieReference.get();
+            snapshot = new DictSegment((char) 0);
+            int words = trie.decompile(snapshot);
+            log.info("由词典Trie还原词典树，词条数：" + words);
+            //还原期间词典已更新时不缓存，下次重新还原
+            if (trieReference.get() == trie) {
+                snapshotReference.set(snapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * 词典更新后，已还原的词典树过期，需要时重新还原
+     */
+    private synchronized void invalidateSnapshot(AtomicReference<DictSegment> snapshotReference) {
+        snapshotReference.set(null);
+    }
+
+    DictTrie getMainTrie() {
+        return this._MainTrieAtomicReference.get();
+    }
+
+    DictTrie getStopWordTrie() {
+        return this._StopWordTrieAtomicReference.get();
+    }
+
+    DictTrie getQuantifierTrie() {
+        return this._QuantifierTrieAtomicReference.get();
+    }
+
+    DictTrie getEnUnitTrie() {
+        return this._EnUnitTrieAtomicReference.get();
+    }
 }
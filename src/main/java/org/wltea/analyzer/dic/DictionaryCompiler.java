@@ -0,0 +1,120 @@
+package org.wltea.analyzer.dic;
+
+import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.cfg.DefaultConfig;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 二进制词典离线编译工具
+ * 将文本词典编译为双数组Trie并写出为二进制词典文件，供IKAnalyzer.cfg.xml中的main_dict_binary引用。
+ *
+ * 用法：java org.wltea.analyzer.dic.DictionaryCompiler [-fst] 输出文件 [词典文件...]
+ * 不指定词典文件时，编译IKAnalyzer.cfg.xml中配置的主词典及扩展词典。
+ * 指定-fst时输出Lucene FST格式，供main_dict_format为fst时使用。
+ * 词典文件优先按文件系统路径查找，找不到时按类加载器路径查找。
+ */
+public class DictionaryCompiler {
+
+    public static void main(String[] args) throws IOException {
+        boolean fst = args.length > 0 && "-fst".equals(args[0]);
+        int outputIndex = fst ? 1 : 0;
+        if (args.length <= outputIndex) {
+            System.err.println("Usage: DictionaryCompiler [-fst] <output> [dict ...]");
+            System.exit(1);
+        }
+        List<String> dictPaths = new ArrayList<String>();
+        for (int i = outputIndex + 1; i < args.length; i++) {
+            dictPaths.add(args[i]);
+        }
+        if (dictPaths.isEmpty()) {
+            Configuration cfg = DefaultConfig.getInstance();
+            dictPaths.add(cfg.getMainDictionary());
+            dictPaths.addAll(cfg.getExtDictionarys());
+        }
+        long begin = System.currentTimeMillis();
+        String output = args[outputIndex];
+        int words = fst ? compileFst(dictPaths, Paths.get(output)) : compile(dictPaths, Paths.get(output));
+        System.out.println("编译完成：" + output + "，词条数：" + words + "，耗时：" + (System.currentTimeMillis() - begin) + "ms");
+    }
+
+    /**
+     * 编译文本词典为二进制词典文件
+     * @param dictPaths 文本词典路径
+     * @param output 输出文件路径
+     * @return 词条数
+     * @throws IOException 词典文件不存在或读写异常
+     */
+    public static int compile(List<String> dictPaths, Path output) throws IOException {
+        DictSegment root = new DictSegment((char) 0);
+        for (char[] word : readDicts(dictPaths)) {
+            root.fillSegment(word);
+        }
+        DoubleArrayTrie trie = DoubleArrayTrie.compile(root);
+        int words = 0;
+        for (int index = DictTrie.ROOT + 1, size = trie.capacity(); index < size; index++) {
+            if (trie.parentOf(index) >= DictTrie.ROOT && trie.isWord(index)) {
+                words++;
+            }
+        }
+        MappedDoubleArrayTrie.write(trie, words, output);
+        return words;
+    }
+
+    /**
+     * 编译文本词典为Lucene FST格式的词典文件
+     * @param dictPaths 文本词典路径
+     * @param output 输出文件路径
+     * @return 词条数
+     * @throws IOException 词典文件不存在或读写异常
+     */
+    public static int compileFst(List<String> dictPaths, Path output) throws IOException {
+        FstDictTrie trie = FstDictTrie.compile(readDicts(dictPaths));
+        trie.save(output);
+        return trie.countWords();
+    }
+
+    private static List<char[]> readDicts(List<String> dictPaths) throws IOException {
+        List<char[]> words = new ArrayList<char[]>();
+        for (String dictPath : dictPaths) {
+            try (InputStream inputStream = openDict(dictPath)) {
+                readDict(inputStream, words);
+            }
+        }
+        return words;
+    }
+
+    private static InputStream openDict(String dictPath) throws IOException {
+        Path path = Paths.get(dictPath);
+        if (Files.isRegularFile(path)) {
+            return Files.newInputStream(path);
+        }
+        InputStream inputStream = DictionaryCompiler.class.getClassLoader().getResourceAsStream(dictPath);
+        if (inputStream == null) {
+            throw new IOException("Dictionary:{" + dictPath + "} not found!!!");
+        }
+        return inputStream;
+    }
+
+    /**
+     * 读取词典文件中的词条，与Dictionary加载文本词典的规则一致
+     */
+    private static void readDict(InputStream inputStream, List<char[]> words) throws IOException {
+        BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        String theWord;
+        while ((theWord = bufferedReader.readLine()) != null) {
+            if (!"".equals(theWord.trim())) {
+                words.add(theWord.trim().toLowerCase().toCharArray());
+            }
+        }
+    }
+}
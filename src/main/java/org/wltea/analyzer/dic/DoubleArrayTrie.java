@@ -0,0 +1,432 @@
+package org.wltea.analyzer.dic;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * 双数组Trie树(base/check)
+ * 由DictSegment词典树编译而来，供分词时只读检索使用。
+ * 数组可通过MappedDoubleArrayTrie写出为二进制词典文件。
+ * 检索过程只访问int/char/byte数组，不装箱，不创建临时对象。
+ */
+final class DoubleArrayTrie extends IndexedDictTrie {
+
+    //空闲位置对应的check值
+    private static final int CHECK_FREE = 0;
+    //被占用但不属于任何父节点的位置(0号位和根节点)
+    private static final int CHECK_RESERVED = -1;
+
+    //字符 -> 字母表编码，0表示该字符不在词典中出现
+    private final char[] charCodes;
+    //base数组
+    private final int[] base;
+    //check数组，check[t] == s 表示t是s的子节点
+    private final int[] check;
+    //节点状态数组
+    private final byte[] states;
+
+    DoubleArrayTrie(char[] charCodes, int[] base, int[] check, byte[] states) {
+        this.charCodes = charCodes;
+        this.base = base;
+        this.check = check;
+        this.states = states;
+    }
+
+    @Override
+    int transition(int state, char c) {
+        int code = this.charCodes[c];
+        if (code == 0) {
+            return -1;
+        }
+        int t = this.base[state] + code;
+        //base可能为负值，t需要落在数组范围内
+        if (t > 0 && t < this.check.length && this.check[t] == state) {
+            return t;
+        }
+        return -1;
+    }
+
+    @Override
+    boolean isWord(int state) {
+        return (this.states[state] & STATE_WORD) != 0;
+    }
+
+    @Override
+    boolean isPrefix(int state) {
+        return (this.states[state] & STATE_PREFIX) != 0;
+    }
+
+    @Override
+    int capacity() {
+        return this.check.length;
+    }
+
+    @Override
+    int parentOf(int index) {
+        return this.check[index];
+    }
+
+    @Override
+    int codeOf(int index) {
+        return index - this.base[this.check[index]];
+    }
+
+    @Override
+    int codeOf(char c) {
+        return this.charCodes[c];
+    }
+
+    @Override
+    DoubleArrayTrie toHeapTrie() {
+        return this;
+    }
+
+    char[] getCharCodes() {
+        return this.charCodes;
+    }
+
+    int[] getBase() {
+        return this.base;
+    }
+
+    int[] getCheck() {
+        return this.check;
+    }
+
+    byte[] getStates() {
+        return this.states;
+    }
+
+    /**
+     * 将DictSegment词典树编译为双数组Trie
+     * @param root 词典树根节点
+     * @return DoubleArrayTrie
+     */
+    static DoubleArrayTrie compile(DictSegment root) {
+        int[] frequency = new int[Character.MAX_VALUE + 1];
+        countChars(root, frequency);
+        return new Builder(root, assignCharCodes(frequency), false).build();
+    }
+
+    /**
+     * 并行编译按首字分区的词典树
+     * 各分区的首字互不相同，分别在线程池中编译为双数组片段，再拼接为完整的双数组Trie：
+     * 首字节点按字母表编码固定放在根节点之后，各片段的其余节点依次平移到数组末尾。
+     * @param partitions 分区词典树的根节点
+     * @param pool 线程池
+     * @return DoubleArrayTrie
+     */
+    static DoubleArrayTrie compile(DictSegment[] partitions, ForkJoinPool pool) {
+        //各分区并行统计字符频率，合并后统一分配字母表编码
+        List<ForkJoinTask<int[]>> countTasks = new ArrayList<ForkJoinTask<int[]>>();
+        for (DictSegment partition : partitions) {
+            countTasks.add(pool.submit(() -> {
+                int[] partitionFrequency = new int[Character.MAX_VALUE + 1];
+                countChars(partition, partitionFrequency);
+                return partitionFrequency;
+            }));
+        }
+        int[] frequency = new int[Character.MAX_VALUE + 1];
+        for (ForkJoinTask<int[]> countTask : countTasks) {
+            int[] partitionFrequency = countTask.join();
+            for (int c = 0; c < frequency.length; c++) {
+                frequency[c] += partitionFrequency[c];
+            }
+        }
+        char[] charCodes = assignCharCodes(frequency);
+
+        List<ForkJoinTask<DoubleArrayTrie>> buildTasks = new ArrayList<ForkJoinTask<DoubleArrayTrie>>();
+        for (DictSegment partition : partitions) {
+            buildTasks.add(pool.submit(() -> new Builder(partition, charCodes, true).build()));
+        }
+        DoubleArrayTrie[] fragments = new DoubleArrayTrie[partitions.length];
+        for (int i = 0; i < fragments.length; i++) {
+            fragments[i] = buildTasks.get(i).join();
+        }
+        return merge(partitions, fragments, charCodes);
+    }
+
+    /**
+     * 拼接双数组片段
+     * 片段中1..k号位置为分区的k个首字节点，拼接后放在ROOT + 首字编码处；其余节点整体平移
+     */
+    private static DoubleArrayTrie merge(DictSegment[] partitions, DoubleArrayTrie[] fragments, char[] charCodes) {
+        int alphabetSize = 0;
+        for (char code : charCodes) {
+            alphabetSize = Math.max(alphabetSize, code);
+        }
+        //根节点的base为ROOT，首字节点占据ROOT + 1 .. ROOT + alphabetSize
+        int rootRegion = ROOT + alphabetSize + 1;
+        int size = rootRegion;
+        for (int p = 0; p < partitions.length; p++) {
+            size += fragments[p].capacity() - (partitions[p].getChildren().length + 1);
+        }
+        int[] base = new int[size];
+        int[] check = new int[size];
+        byte[] states = new byte[size];
+        check[0] = CHECK_RESERVED;
+        check[ROOT] = CHECK_RESERVED;
+        base[ROOT] = ROOT;
+
+        int offset = rootRegion;
+        for (int p = 0; p < partitions.length; p++) {
+            DictSegment[] firstChars = partitions[p].getChildren();
+            int k = firstChars.length;
+            int[] fragmentBase = fragments[p].getBase();
+            int[] fragmentCheck = fragments[p].getCheck();
+            byte[] fragmentStates = fragments[p].getStates();
+            //片段下标 -> 拼接后下标
+            int shift = offset - (k + 1);
+            int[] firstCharIndex = new int[k + 1];
+            for (int i = 1; i <= k; i++) {
+                int index = ROOT + charCodes[firstChars[i - 1].getNodeChar()];
+                firstCharIndex[i] = index;
+                check[index] = ROOT;
+                states[index] = fragmentStates[i];
+                if ((fragmentStates[i] & STATE_PREFIX) != 0) {
+                    base[index] = fragmentBase[i] + shift;
+                }
+                states[ROOT] |= STATE_PREFIX;
+            }
+            for (int i = k + 1; i < fragmentCheck.length; i++) {
+                int parent = fragmentCheck[i];
+                if (parent == CHECK_FREE) {
+                    continue;
+                }
+                int index = i + shift;
+                check[index] = parent <= k ? firstCharIndex[parent] : parent + shift;
+                states[index] = fragmentStates[i];
+                if ((fragmentStates[i] & STATE_PREFIX) != 0) {
+                    base[index] = fragmentBase[i] + shift;
+                }
+            }
+            offset += fragmentCheck.length - (k + 1);
+        }
+        return new DoubleArrayTrie(charCodes, base, check, states);
+    }
+
+    /**
+     * 双数组构建器
+     */
+    private static final class Builder {
+        //多子节点查找base时，只回溯尝试最近冲突的若干个空闲位置
+        private static final int MAX_TRIALS = 64;
+        private final DictSegment root;
+        //片段模式：根节点的子节点依次预先放在1..k号位置，由merge拼接到最终位置
+        private final boolean fragment;
+        private final char[] charCodes;
+        private int[] base;
+        private int[] check;
+        private byte[] states;
+        //空闲位置双向链表，查找base时跳过已占用的位置
+        private int[] nextFree;
+        private int[] prevFree;
+        private int freeHead;
+        private int freeTail;
+        //多子节点查找base的起始空闲位置，其之前的空闲位置只留给单子节点使用
+        private int multiHead;
+        //已占用的最大下标
+        private int maxIndex;
+
+        Builder(DictSegment root, char[] charCodes, boolean fragment) {
+            this.root = root;
+            this.charCodes = charCodes;
+            this.fragment = fragment;
+        }
+
+        DoubleArrayTrie build() {
+            this.base = new int[0];
+            this.check = new int[0];
+            this.states = new byte[0];
+            this.nextFree = new int[0];
+            this.prevFree = new int[0];
+            this.freeHead = -1;
+            this.freeTail = -1;
+            this.multiHead = -1;
+            this.ensureCapacity(1 << 16);
+            this.occupy(0, CHECK_RESERVED);
+            this.maxIndex = 0;
+
+            //广度优先放置各节点的子节点
+            ArrayDeque<DictSegment> segmentQueue = new ArrayDeque<DictSegment>();
+            ArrayDeque<Integer> indexQueue = new ArrayDeque<Integer>();
+            if (this.fragment) {
+                DictSegment[] firstChars = this.root.getChildren();
+                for (int i = 0; i < firstChars.length; i++) {
+                    this.occupy(i + 1, CHECK_RESERVED);
+                    segmentQueue.add(firstChars[i]);
+                    indexQueue.add(i + 1);
+                }
+            } else {
+                this.occupy(ROOT, CHECK_RESERVED);
+                segmentQueue.add(this.root);
+                indexQueue.add(ROOT);
+            }
+            while (!segmentQueue.isEmpty()) {
+                DictSegment segment = segmentQueue.poll();
+                int index = indexQueue.poll();
+                if (segment.getNodeState() == 1) {
+                    this.states[index] |= STATE_WORD;
+                }
+                DictSegment[] children = segment.getChildren();
+                if (children.length == 0) {
+                    continue;
+                }
+                this.states[index] |= STATE_PREFIX;
+                int[] codes = new int[children.length];
+                for (int i = 0; i < children.length; i++) {
+                    codes[i] = this.charCodes[children[i].getNodeChar()];
+                }
+                int b = this.findBase(codes);
+                this.base[index] = b;
+                for (int i = 0; i < children.length; i++) {
+                    int t = b + codes[i];
+                    this.occupy(t, index);
+                    segmentQueue.add(children[i]);
+                    indexQueue.add(t);
+                }
+            }
+            int size = this.maxIndex + 1;
+            return new DoubleArrayTrie(this.charCodes, Arrays.copyOf(this.base, size),
+                    Arrays.copyOf(this.check, size), Arrays.copyOf(this.states, size));
+        }
+
+        /**
+         * 为一组子节点编码寻找可用的base值
+         * @param codes 子节点编码
+         */
+        private int findBase(int[] codes) {
+            int minCode = codes[0];
+            int maxCode = codes[0];
+            for (int code : codes) {
+                minCode = Math.min(minCode, code);
+                maxCode = Math.max(maxCode, code);
+            }
+            //单子节点任意空闲位置均可放置，多子节点跳过反复冲突的空闲位置
+            boolean multi = codes.length > 1;
+            int pos = multi ? this.multiHead : this.freeHead;
+            //滞后于pos MAX_TRIALS个空闲位置的指针
+            int lag = pos;
+            int trials = 0;
+            while (true) {
+                if (pos == -1) {
+                    //空闲位置用尽，扩容后从新增的位置继续查找
+                    int oldLength = this.check.length;
+                    this.ensureCapacity(oldLength + maxCode + 1);
+                    pos = oldLength;
+                }
+                //最小编码的子节点放在pos上，base允许为负值
+                int b = pos - minCode;
+                this.ensureCapacity(b + maxCode + 1);
+                boolean conflict = false;
+                for (int code : codes) {
+                    if (this.check[b + code] != CHECK_FREE) {
+                        conflict = true;
+                        break;
+                    }
+                }
+                if (!conflict) {
+                    if (multi && trials > MAX_TRIALS) {
+                        //只保留最近冲突的MAX_TRIALS个空闲位置供后续多子节点尝试
+                        this.multiHead = lag;
+                    }
+                    return b;
+                }
+                if (++trials > MAX_TRIALS) {
+                    lag = this.nextFree[lag];
+                }
+                pos = this.nextFree[pos];
+            }
+        }
+
+        /**
+         * 占用位置t，并将其移出空闲链表
+         */
+        private void occupy(int t, int parent) {
+            this.check[t] = parent;
+            int prev = this.prevFree[t];
+            int next = this.nextFree[t];
+            if (t == this.multiHead) {
+                this.multiHead = next;
+            }
+            if (prev == -1) {
+                this.freeHead = next;
+            } else {
+                this.nextFree[prev] = next;
+            }
+            if (next == -1) {
+                this.freeTail = prev;
+            } else {
+                this.prevFree[next] = prev;
+            }
+            if (t > this.maxIndex) {
+                this.maxIndex = t;
+            }
+        }
+
+        private void ensureCapacity(int size) {
+            int oldLength = this.check.length;
+            if (size <= oldLength) {
+                return;
+            }
+            int newSize = Math.max(size, oldLength + (oldLength >> 1));
+            this.base = Arrays.copyOf(this.base, newSize);
+            this.check = Arrays.copyOf(this.check, newSize);
+            this.states = Arrays.copyOf(this.states, newSize);
+            this.nextFree = Arrays.copyOf(this.nextFree, newSize);
+            this.prevFree = Arrays.copyOf(this.prevFree, newSize);
+            //新增位置追加到空闲链表尾部
+            for (int i = oldLength; i < newSize; i++) {
+                this.prevFree[i] = this.freeTail;
+                this.nextFree[i] = -1;
+                if (this.freeTail == -1) {
+                    this.freeHead = i;
+                } else {
+                    this.nextFree[this.freeTail] = i;
+                }
+                if (this.multiHead == -1) {
+                    this.multiHead = i;
+                }
+                this.freeTail = i;
+            }
+        }
+
+    }
+
+    /**
+     * 统计词典树中各字符出现的节点数
+     */
+    private static void countChars(DictSegment root, int[] frequency) {
+        ArrayDeque<DictSegment> stack = new ArrayDeque<DictSegment>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            for (DictSegment child : stack.pop().getChildren()) {
+                frequency[child.getNodeChar()]++;
+                stack.push(child);
+            }
+        }
+    }
+
+    /**
+     * 按字符出现频率分配字母表编码，高频字符编码越小，数组越紧凑
+     */
+    private static char[] assignCharCodes(int[] frequency) {
+        Integer[] chars = new Integer[frequency.length];
+        int alphabetSize = 0;
+        for (int c = 0; c < frequency.length; c++) {
+            if (frequency[c] > 0) {
+                chars[alphabetSize++] = c;
+            }
+        }
+        Arrays.sort(chars, 0, alphabetSize, (a, b) -> frequency[b] != frequency[a] ? frequency[b] - frequency[a] : a - b);
+        char[] charCodes = new char[Character.MAX_VALUE + 1];
+        for (int i = 0; i < alphabetSize; i++) {
+            charCodes[chars[i]] = (char) (i + 1);
+        }
+        return charCodes;
+    }
+}
@@ -0,0 +1,306 @@
+package org.wltea.analyzer.dic;
+
+import java.util.Arrays;
+
+/**
+ * 双数组Trie的写时复制编辑器
+ * 在原Trie数组的副本上追加或屏蔽词条，原Trie保持不变；编辑完成后生成新的DoubleArrayTrie，
+ * 由调用方以一次原子引用替换发布。正在检索原Trie的线程不受影响，也不会看到迁移到一半的节点。
+ *
+ * 追加词条时，若新子节点的位置已被占用，则在父节点与占用者的父节点中选择子节点较少的一方，
+ * 重新寻找base并整体迁移其子节点。
+ * 编辑器不是线程安全的，只能由一个写线程使用。
+ */
+final class DoubleArrayTrieEditor {
+
+    //空闲位置对应的check值
+    private static final int CHECK_FREE = 0;
+    //多子节点查找base时，只回溯尝试最近冲突的若干个空闲位置
+    private static final int MAX_TRIALS = 64;
+
+    //字符 -> 字母表编码，出现新字符时才复制
+    private char[] charCodes;
+    private boolean charCodesCopied;
+    //已分配的最大字母表编码
+    private int alphabetSize;
+    private int[] base;
+    private int[] check;
+    private byte[] states;
+    //已占用的最大下标
+    private int maxIndex;
+    //查找空闲位置的起点，其之前的位置均已占用
+    private int freeHint;
+    //多子节点查找base的起点，其之前的空闲位置只留给单子节点使用
+    private int multiHint;
+    //是否发生过修改
+    private boolean modified;
+
+    DoubleArrayTrieEditor(DoubleArrayTrie trie) {
+        this.charCodes = trie.getCharCodes();
+        for (char code : this.charCodes) {
+            if (code > this.alphabetSize) {
+                this.alphabetSize = code;
+            }
+        }
+        int length = trie.capacity();
+        //预留少量空间，避免追加少量词条时反复扩容
+        int capacity = length + (length >> 6) + Character.MAX_VALUE;
+        this.base = Arrays.copyOf(trie.getBase(), capacity);
+        this.check = Arrays.copyOf(trie.getCheck(), capacity);
+        this.states = Arrays.copyOf(trie.getStates(), capacity);
+        this.maxIndex = length - 1;
+        this.freeHint = DictTrie.ROOT + 1;
+    }
+
+    /**
+     * 追加词条，词条已存在时不做修改
+     * @param word 词条
+     * @return 是否追加了新词条
+     */
+    boolean addWord(char[] word) {
+        if (word.length == 0) {
+            return false;
+        }
+        int state = DictTrie.ROOT;
+        for (char c : word) {
+            int code = this.codeOf(c);
+            int t = this.base[state] + code;
+            if (!this.isChild(t, state)) {
+                t = this.insertChild(state, code);
+            }
+            state = t;
+        }
+        if ((this.states[state] & DictTrie.STATE_WORD) != 0) {
+            return false;
+        }
+        this.states[state] |= DictTrie.STATE_WORD;
+        this.modified = true;
+        return true;
+    }
+
+    /**
+     * 屏蔽词条，只清除成词标志，保留节点以免影响以其为前缀的词
+     * @param word 词条
+     * @return 是否屏蔽了已存在的词条
+     */
+    boolean disableWord(char[] word) {
+        if (word.length == 0) {
+            return false;
+        }
+        int state = DictTrie.ROOT;
+        for (char c : word) {
+            int code = this.charCodes[c];
+            int t = this.base[state] + code;
+            if (code == 0 || !this.isChild(t, state)) {
+                return false;
+            }
+            state = t;
+        }
+        if ((this.states[state] & DictTrie.STATE_WORD) == 0) {
+            return false;
+        }
+        this.states[state] &= ~DictTrie.STATE_WORD;
+        this.modified = true;
+        return true;
+    }
+
+    boolean isModified() {
+        return this.modified;
+    }
+
+    /**
+     * 生成编辑后的双数组Trie
+     */
+    DoubleArrayTrie build() {
+        int size = this.maxIndex + 1;
+        return new DoubleArrayTrie(this.charCodes, Arrays.copyOf(this.base, size),
+                Arrays.copyOf(this.check, size), Arrays.copyOf(this.states, size));
+    }
+
+    private boolean isChild(int t, int parent) {
+        return t > DictTrie.ROOT && t < this.check.length && this.check[t] == parent;
+    }
+
+    /**
+     * 获取字符的字母表编码，新字符分配新的编码
+     */
+    private int codeOf(char c) {
+        int code = this.charCodes[c];
+        if (code == 0) {
+            if (!this.charCodesCopied) {
+                this.charCodes = this.charCodes.clone();
+                this.charCodesCopied = true;
+            }
+            code = ++this.alphabetSize;
+            this.charCodes[c] = (char) code;
+        }
+        return code;
+    }
+
+    /**
+     * 为节点state增加编码为code的子节点
+     * @return 子节点下标
+     */
+    private int insertChild(int state, int code) {
+        if ((this.states[state] & DictTrie.STATE_PREFIX) == 0) {
+            //原来没有子节点，任意空闲位置均可放置
+            int b = this.findBase(new int[]{code});
+            this.base[state] = b;
+            this.states[state] |= DictTrie.STATE_PREFIX;
+            return this.occupy(b + code, state);
+        }
+        int t = this.base[state] + code;
+        if (t > DictTrie.ROOT) {
+            this.ensureCapacity(t + 1);
+            if (this.check[t] == CHECK_FREE) {
+                return this.occupy(t, state);
+            }
+        }
+        int[] childCodes = this.childCodes(state);
+        int occupant = t > DictTrie.ROOT ? this.check[t] : -1;
+        if (occupant > 0) {
+            //迁移占用者父节点的子节点更省时，则腾出位置t
+            int[] occupantCodes = this.childCodes(occupant);
+            if (occupantCodes.length <= childCodes.length) {
+                int moved = this.relocate(occupant, occupantCodes, this.findBase(occupantCodes), state);
+                if (moved != state) {
+                    //state本身是被迁移的子节点
+                    state = moved;
+                    t = this.base[state] + code;
+                }
+                return this.occupy(t, state);
+            }
+        }
+        //为state重新寻找base并迁移已有的子节点
+        int[] codes = Arrays.copyOf(childCodes, childCodes.length + 1);
+        codes[childCodes.length] = code;
+        int newBase = this.findBase(codes);
+        this.relocate(state, childCodes, newBase, -1);
+        return this.occupy(newBase + code, state);
+    }
+
+    /**
+     * 将节点的子节点整体迁移到新的base下
+     * @param state 父节点
+     * @param childCodes 子节点编码
+     * @param newBase 新的base值
+     * @param tracked 需要跟踪新下标的节点
+     * @return tracked迁移后的下标，未被迁移时原样返回
+     */
+    private int relocate(int state, int[] childCodes, int newBase, int tracked) {
+        int oldBase = this.base[state];
+        for (int childCode : childCodes) {
+            int from = oldBase + childCode;
+            int to = this.occupy(newBase + childCode, state);
+            this.base[to] = this.base[from];
+            this.states[to] = this.states[from];
+            //孙节点改为挂在新位置下
+            if ((this.states[from] & DictTrie.STATE_PREFIX) != 0) {
+                for (int grandChildCode : this.childCodes(from)) {
+                    this.check[this.base[from] + grandChildCode] = to;
+                }
+            }
+            this.release(from);
+            if (from == tracked) {
+                tracked = to;
+            }
+        }
+        this.base[state] = newBase;
+        return tracked;
+    }
+
+    /**
+     * 列出节点的所有子节点编码
+     */
+    private int[] childCodes(int state) {
+        int[] codes = new int[4];
+        int count = 0;
+        int b = this.base[state];
+        for (int code = 1; code <= this.alphabetSize; code++) {
+            if (this.isChild(b + code, state)) {
+                if (count == codes.length) {
+                    codes = Arrays.copyOf(codes, count << 1);
+                }
+                codes[count++] = code;
+            }
+        }
+        return Arrays.copyOf(codes, count);
+    }
+
+    /**
+     * 为一组子节点编码寻找可用的base值
+     */
+    private int findBase(int[] codes) {
+        int minCode = codes[0];
+        int maxCode = codes[0];
+        for (int code : codes) {
+            minCode = Math.min(minCode, code);
+            maxCode = Math.max(maxCode, code);
+        }
+        //单子节点任意空闲位置均可放置，多子节点跳过反复冲突的空闲位置
+        boolean multi = codes.length > 1;
+        int pos = multi ? Math.max(this.multiHint, this.freeHint) : this.freeHint;
+        //滞后于pos MAX_TRIALS个空闲位置的指针
+        int lag = pos;
+        int trials = 0;
+        for (; ; pos++) {
+            this.ensureCapacity(pos + 1);
+            if (this.check[pos] != CHECK_FREE) {
+                if (pos == this.freeHint) {
+                    this.freeHint++;
+                }
+                continue;
+            }
+            //最小编码的子节点放在pos上，base允许为负值
+            int b = pos - minCode;
+            this.ensureCapacity(b + maxCode + 1);
+            boolean conflict = false;
+            for (int code : codes) {
+                if (this.check[b + code] != CHECK_FREE) {
+                    conflict = true;
+                    break;
+                }
+            }
+            if (!conflict) {
+                if (multi && trials > MAX_TRIALS) {
+                    //只保留最近冲突的MAX_TRIALS个空闲位置供后续多子节点尝试
+                    this.multiHint = lag;
+                }
+                return b;
+            }
+            if (++trials > MAX_TRIALS) {
+                do {
+                    lag++;
+                } while (this.check[lag] != CHECK_FREE);
+            }
+        }
+    }
+
+    private int occupy(int t, int parent) {
+        this.check[t] = parent;
+        if (t > this.maxIndex) {
+            this.maxIndex = t;
+        }
+        return t;
+    }
+
+    private void release(int t) {
+        this.check[t] = CHECK_FREE;
+        this.base[t] = 0;
+        this.states[t] = 0;
+        if (t < this.freeHint) {
+            this.freeHint = t;
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        int oldLength = this.check.length;
+        if (size <= oldLength) {
+            return;
+        }
+        int newSize = Math.max(size, oldLength + (oldLength >> 1));
+        this.base = Arrays.copyOf(this.base, newSize);
+        this.check = Arrays.copyOf(this.check, newSize);
+        this.states = Arrays.copyOf(this.states, newSize);
+    }
+}
@@ -0,0 +1,494 @@
+package org.wltea.analyzer.dic;
+
+import org.apache.lucene.util.IntsRef;
+import org.apache.lucene.util.IntsRefBuilder;
+import org.apache.lucene.util.fst.FST;
+import org.apache.lucene.util.fst.FSTCompiler;
+import org.apache.lucene.util.fst.IntsRefFSTEnum;
+import org.apache.lucene.util.fst.NoOutputs;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基于Lucene FST的词典Trie
+ * FST合并了词的公共后缀，字节紧凑，适合在内存受限时承载主词典；代价是每次转移需要解码节点的弧。
+ * 起始节点的出弧预先展开为数组，其余节点借助线程私有的弧缓存查找。
+ * 可由文本词典编译，也可读取DictionaryCompiler -fst生成的序列化文件。
+ *
+ * 状态编码：ROOT表示FST的起始节点，其余状态为 ((节点地址 + 2) << 1) | 成词标志，
+ * FST中节点的成词标志记录在指向该节点的弧上，因此需要随状态一起保存。
+ * FST的节点被多个父节点共享，没有父节点下标，需要按下标遍历的场合(如Aho-Corasick自动机)通过toIndexedTrie转换为双数组Trie。
+ *
+ * FST不可修改，运行期增删的词条记录在一棵小的双数组覆盖Trie中，不必每批修改都重新编译整个FST：
+ * 检索先沿覆盖Trie转移，覆盖Trie中没有的字符再回到对应的FST节点继续；覆盖Trie的状态带有OVERLAY标志。
+ * 覆盖的词条超过MAX_OVERLAY_WORDS时才把修改合并进FST重新编译。
+ */
+final class FstDictTrie extends DictTrie {
+
+    //状态中节点地址允许的最大值，保证DictCursor打包状态时不溢出
+    private static final long MAX_ADDRESS = (1L << 27) - 2;
+    //覆盖Trie状态的标志位，FST状态均小于该值
+    private static final int OVERLAY = 1 << 28;
+    //覆盖Trie中的词条数上限，超过时合并进FST重新编译
+    static final int MAX_OVERLAY_WORDS = 10000;
+    //覆盖Trie节点的成词标志：新增的词
+    private static final byte OVERLAY_ADDED = 1;
+    //覆盖Trie节点的成词标志：屏蔽的词
+    private static final byte OVERLAY_DISABLED = 2;
+
+    private final FST<Object> fst;
+    //起始节点的地址
+    private final long rootAddress;
+    //起始节点出弧的最小标签
+    private final int rootFirstLabel;
+    //起始节点出弧的目标状态，下标为标签减去rootFirstLabel，0表示没有该出弧
+    private final int[] rootStates;
+    //每个线程复用的弧和字节读取器，检索过程不创建对象
+    private final ThreadLocal<Scratch> scratch;
+
+    //相对FST增删的词条 ---> true为新增，false为屏蔽
+    private final Map<String, Boolean> changes;
+    //由changes中的词条构成的覆盖Trie，没有修改时为null
+    private final DoubleArrayTrie overlay;
+    //覆盖Trie节点对应的FST状态，-1表示FST中没有该路径
+    private final int[] overlayBase;
+    //覆盖Trie节点的成词标志，0表示以FST为准
+    private final byte[] overlayWords;
+
+    private FstDictTrie(FST<Object> fst) throws IOException {
+        this.fst = fst;
+        this.rootAddress = fst.getFirstArc(new FST.Arc<Object>()).target();
+        if (fst.ramBytesUsed() > MAX_ADDRESS) {
+            throw new IOException("FST词典过大：" + fst.ramBytesUsed() + "字节");
+        }
+        //起始节点出弧多达数万条，逐次解码代价过高，预先展开为数组
+        FST.BytesReader in = fst.getBytesReader();
+        FST.Arc<Object> arc = fst.readFirstRealTargetArc(this.rootAddress, new FST.Arc<Object>(), in);
+        List<FST.Arc<Object>> rootArcs = new ArrayList<FST.Arc<Object>>();
+        while (true) {
+            rootArcs.add(new FST.Arc<Object>().copyFrom(arc));
+            if (arc.isLast()) {
+                break;
+            }
+            fst.readNextRealArc(arc, in);
+        }
+        this.rootFirstLabel = rootArcs.get(0).label();
+        this.rootStates = new int[rootArcs.get(rootArcs.size() - 1).label() - this.rootFirstLabel + 1];
+        for (FST.Arc<Object> rootArc : rootArcs) {
+            this.rootStates[rootArc.label() - this.rootFirstLabel] = stateOf(rootArc);
+        }
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(fst));
+        this.changes = Collections.emptyMap();
+        this.overlay = null;
+        this.overlayBase = null;
+        this.overlayWords = null;
+    }
+
+    /**
+     * 在base的FST之上覆盖一组修改，FST及其检索现场与base共用
+     * @param base 提供FST的Trie
+     * @param changes 相对FST增删的词条
+     */
+    private FstDictTrie(FstDictTrie base, Map<String, Boolean> changes) {
+        this.fst = base.fst;
+        this.rootAddress = base.rootAddress;
+        this.rootFirstLabel = base.rootFirstLabel;
+        this.rootStates = base.rootStates;
+        this.scratch = base.scratch;
+        this.changes = changes;
+        if (changes.isEmpty()) {
+            //修改全部撤销，直接使用FST
+            this.overlay = null;
+            this.overlayBase = null;
+            this.overlayWords = null;
+            return;
+        }
+        DictSegment root = new DictSegment((char) 0);
+        for (String word : changes.keySet()) {
+            root.fillSegment(word.toCharArray());
+        }
+        this.overlay = DoubleArrayTrie.compile(root);
+        this.overlayBase = new int[this.overlay.capacity()];
+        this.overlayWords = new byte[this.overlay.capacity()];
+        Arrays.fill(this.overlayBase, -1);
+        this.overlayBase[ROOT] = ROOT;
+        for (Map.Entry<String, Boolean> change : changes.entrySet()) {
+            String word = change.getKey();
+            int node = ROOT;
+            int state = ROOT;
+            for (int i = 0; i < word.length(); i++) {
+                node = this.overlay.transition(node, word.charAt(i));
+                state = state < 0 ? -1 : this.transitionBase(state, word.charAt(i));
+                this.overlayBase[node] = state;
+            }
+            this.overlayWords[node] = change.getValue() ? OVERLAY_ADDED : OVERLAY_DISABLED;
+        }
+    }
+
+    /**
+     * 将词条编译为FST
+     * @param words 词条，不要求有序，重复的词条只保留一个
+     * @return FstDictTrie
+     */
+    static FstDictTrie compile(Collection<char[]> words) {
+        List<String> wordList = new ArrayList<String>(words.size());
+        for (char[] word : words) {
+            if (word.length > 0) {
+                wordList.add(new String(word));
+            }
+        }
+        return compileWords(wordList);
+    }
+
+    private static FstDictTrie compileWords(List<String> sortedWords) {
+        //String按UTF-16码元排序，与FST要求的输入顺序一致
+        Collections.sort(sortedWords);
+        try {
+            FSTCompiler<Object> compiler = new FSTCompiler.Builder<Object>(FST.INPUT_TYPE.BYTE2, NoOutputs.getSingleton())
+                    //不使用直接寻址，定长弧节点均可二分查找，起始节点另行展开为数组
+                    .directAddressingMaxOversizingFactor(-1f)
+                    .build();
+            IntsRefBuilder scratchInts = new IntsRefBuilder();
+            String previous = null;
+            for (String word : sortedWords) {
+                if (!word.equals(previous)) {
+                    compiler.add(toIntsRef(word, scratchInts), NoOutputs.getSingleton().getNoOutput());
+                    previous = word;
+                }
+            }
+            return new FstDictTrie(compiler.compile());
+        } catch (IOException e) {
+            //FST在堆内构建，不会发生IO异常
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 读取序列化的FST词典文件
+     * @param path 文件路径
+     * @return FstDictTrie
+     * @throws IOException 文件不存在或格式不正确
+     */
+    static FstDictTrie open(Path path) throws IOException {
+        return new FstDictTrie(FST.read(path, NoOutputs.getSingleton()));
+    }
+
+    /**
+     * 写出为序列化的FST词典文件，覆盖的修改先合并进FST
+     */
+    void save(Path path) throws IOException {
+        FstDictTrie compiled = this.changes.isEmpty() ? this : compileWords(this.listWords());
+        compiled.fst.save(path);
+    }
+
+    /**
+     * 词条数
+     */
+    int countWords() {
+        return this.listWords().size();
+    }
+
+    /**
+     * FST占用的堆内存字节数
+     */
+    long ramBytesUsed() {
+        return this.fst.ramBytesUsed();
+    }
+
+    @Override
+    int transition(int state, char c) {
+        if (this.overlay != null && (state == ROOT || (state & OVERLAY) != 0)) {
+            int node = state & ~OVERLAY;
+            int child = this.overlay.transition(node, c);
+            if (child >= 0) {
+                return child | OVERLAY;
+            }
+            //覆盖Trie中没有该字符，回到对应的FST节点继续
+            state = this.overlayBase[node];
+            if (state < 0) {
+                return -1;
+            }
+        }
+        return this.transitionBase(state, c);
+    }
+
+    /**
+     * 在FST上转移，不考虑覆盖的修改
+     */
+    private int transitionBase(int state, char c) {
+        if (state == ROOT) {
+            int index = c - this.rootFirstLabel;
+            int target = index >= 0 && index < this.rootStates.length ? this.rootStates[index] : 0;
+            return target == 0 ? -1 : target;
+        }
+        long address = (state >>> 1) - 2;
+        if (address <= 0) {
+            //没有出弧的节点
+            return -1;
+        }
+        Scratch s = this.scratch.get();
+        try {
+            FST.Arc<Object> follow = s.followArc(address);
+            if (follow != null) {
+                //findTargetArc对直接寻址、二分查找及变长弧节点均采用最快的查找方式
+                FST.Arc<Object> arc = this.fst.findTargetArc(c, follow, s.arc, s.in);
+                return arc == null ? -1 : s.remember(arc);
+            }
+            //未缓存指向该节点的弧，定长弧二分查找，变长弧按标签升序逐个读取
+            FST.Arc<Object> arc = this.fst.readFirstRealTargetArc(address, s.arc, s.in);
+            if (arc.bytesPerArc() != 0 && arc.nodeFlags() == FST.ARCS_FOR_BINARY_SEARCH) {
+                int low = 0;
+                int high = arc.numArcs() - 1;
+                while (low <= high) {
+                    int mid = (low + high) >>> 1;
+                    int label = this.fst.readArcByIndex(arc, s.in, mid).label();
+                    if (label < c) {
+                        low = mid + 1;
+                    } else if (label > c) {
+                        high = mid - 1;
+                    } else {
+                        return s.remember(arc);
+                    }
+                }
+                return -1;
+            }
+            while (true) {
+                if (arc.label() == c) {
+                    return s.remember(arc);
+                }
+                if (arc.label() > c || arc.isLast()) {
+                    return -1;
+                }
+                this.fst.readNextRealArc(arc, s.in);
+            }
+        } catch (IOException e) {
+            //FST位于堆内存，不会发生IO异常
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int stateOf(FST.Arc<Object> arc) {
+        return (int) ((arc.target() + 2) << 1) | (arc.isFinal() ? 1 : 0);
+    }
+
+    @Override
+    boolean isWord(int state) {
+        if (this.overlay != null && (state & OVERLAY) != 0) {
+            int node = state & ~OVERLAY;
+            if (this.overlayWords[node] != 0) {
+                return this.overlayWords[node] == OVERLAY_ADDED;
+            }
+            state = this.overlayBase[node];
+            if (state < 0) {
+                return false;
+            }
+        }
+        return state != ROOT && (state & 1) != 0;
+    }
+
+    @Override
+    boolean isPrefix(int state) {
+        if (this.overlay != null && (state & OVERLAY) != 0) {
+            int node = state & ~OVERLAY;
+            if (this.overlay.isPrefix(node)) {
+                return true;
+            }
+            state = this.overlayBase[node];
+            if (state < 0) {
+                return false;
+            }
+        }
+        return state == ROOT || (state >>> 1) - 2 > 0;
+    }
+
+    @Override
+    int decompile(DictSegment root) {
+        List<String> words = this.listWords();
+        for (String word : words) {
+            root.fillSegment(word.toCharArray());
+        }
+        return words.size();
+    }
+
+    @Override
+    DoubleArrayTrie toHeapTrie() {
+        DictSegment root = new DictSegment((char) 0);
+        this.decompile(root);
+        return DoubleArrayTrie.compile(root);
+    }
+
+    @Override
+    IndexedDictTrie toIndexedTrie() {
+        return this.toHeapTrie();
+    }
+
+    /**
+     * 写时复制地应用一批增删
+     * 修改与已有的覆盖修改合并后重建覆盖Trie，代价与覆盖的词条数成正比；
+     * 覆盖的词条超过MAX_OVERLAY_WORDS时合并进FST重新编译，代价与词典大小成正比
+     */
+    @Override
+    DictTrie withChanges(List<char[]> addedWords, List<char[]> disabledWords) {
+        Map<String, Boolean> merged = new HashMap<String, Boolean>(this.changes);
+        boolean modified = false;
+        for (char[] word : addedWords) {
+            modified |= word.length > 0 && this.change(merged, new String(word), true);
+        }
+        for (char[] word : disabledWords) {
+            modified |= word.length > 0 && this.change(merged, new String(word), false);
+        }
+        if (!modified) {
+            return null;
+        }
+        if (merged.size() > MAX_OVERLAY_WORDS) {
+            return compileWords(this.listWords(merged));
+        }
+        return new FstDictTrie(this, merged);
+    }
+
+    /**
+     * 在修改集合中记录一个词条的增删
+     * @param changes 相对FST增删的词条
+     * @param word 词条
+     * @param present true为新增，false为屏蔽
+     * @return 词条的状态是否改变
+     */
+    private boolean change(Map<String, Boolean> changes, String word, boolean present) {
+        boolean inBase = this.containsBase(word);
+        Boolean changed = changes.get(word);
+        if ((changed != null ? changed : inBase) == present) {
+            return false;
+        }
+        if (present == inBase) {
+            //恢复为FST中的状态，不再需要覆盖
+            changes.remove(word);
+        } else {
+            changes.put(word, present);
+        }
+        return true;
+    }
+
+    /**
+     * 判断FST中是否有该词条，不考虑覆盖的修改
+     */
+    private boolean containsBase(String word) {
+        int state = ROOT;
+        for (int i = 0; i < word.length() && state >= 0; i++) {
+            state = this.transitionBase(state, word.charAt(i));
+        }
+        return state > ROOT && (state & 1) != 0;
+    }
+
+    /**
+     * 按字典序列出全部词条，含覆盖的修改
+     */
+    private List<String> listWords() {
+        return this.listWords(this.changes);
+    }
+
+    /**
+     * 按字典序列出FST中的词条应用changes后的结果
+     */
+    private List<String> listWords(Map<String, Boolean> changes) {
+        List<String> words = this.listBaseWords();
+        if (!changes.isEmpty()) {
+            words.removeIf(word -> Boolean.FALSE.equals(changes.get(word)));
+            for (Map.Entry<String, Boolean> change : changes.entrySet()) {
+                if (change.getValue()) {
+                    words.add(change.getKey());
+                }
+            }
+            Collections.sort(words);
+        }
+        return words;
+    }
+
+    /**
+     * 按字典序列出FST中的全部词条
+     */
+    private List<String> listBaseWords() {
+        List<String> words = new ArrayList<String>();
+        try {
+            IntsRefFSTEnum<Object> fstEnum = new IntsRefFSTEnum<Object>(this.fst);
+            IntsRefFSTEnum.InputOutput<Object> entry;
+            StringBuilder word = new StringBuilder();
+            while ((entry = fstEnum.next()) != null) {
+                IntsRef input = entry.input;
+                word.setLength(0);
+                for (int i = 0; i < input.length; i++) {
+                    word.append((char) input.ints[input.offset + i]);
+                }
+                words.add(word.toString());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return words;
+    }
+
+    private static IntsRef toIntsRef(String word, IntsRefBuilder scratchInts) {
+        scratchInts.clear();
+        for (int i = 0; i < word.length(); i++) {
+            scratchInts.append(word.charAt(i));
+        }
+        return scratchInts.get();
+    }
+
+    /**
+     * 线程私有的检索现场
+     * 按节点地址缓存最近经过的弧，作为下一次转移的起点；
+     * 分词时同时推进的前缀不多，直接映射的小缓存即可覆盖绝大多数转移。
+     */
+    private static final class Scratch {
+        //缓存槽位数，须为2的幂
+        private static final int CACHE_SIZE = 64;
+
+        private final FST.Arc<Object> arc = new FST.Arc<Object>();
+        private final FST.BytesReader in;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private final FST.Arc<Object>[] followArcs = new FST.Arc[CACHE_SIZE];
+
+        Scratch(FST<Object> fst) {
+            this.in = fst.getBytesReader();
+        }
+
+        /**
+         * 查找目标为address的缓存弧
+         * @return 缓存弧，未缓存时返回null
+         */
+        FST.Arc<Object> followArc(long address) {
+            FST.Arc<Object> follow = this.followArcs[slotOf(address)];
+            return follow != null && follow.target() == address ? follow : null;
+        }
+
+        /**
+         * 缓存经过的弧
+         * @return 弧的目标状态
+         */
+        int remember(FST.Arc<Object> arc) {
+            if (FST.targetHasArcs(arc)) {
+                int slot = slotOf(arc.target());
+                FST.Arc<Object> follow = this.followArcs[slot];
+                if (follow == null) {
+                    follow = new FST.Arc<Object>();
+                    this.followArcs[slot] = follow;
+                }
+                follow.copyFrom(arc);
+            }
+            return stateOf(arc);
+        }
+
+        private static int slotOf(long address) {
+            return (int) (address ^ (address >>> 7)) & (CACHE_SIZE - 1);
+        }
+    }
+}
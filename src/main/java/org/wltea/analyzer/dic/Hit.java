@@ -40,6 +40,10 @@ public class Hit {
 
     //记录词典匹配过程中，当前匹配到的词典分支节点
     private DictSegment matchedDictSegment;
+
+    //记录词典匹配过程中，当前匹配到的Trie及其节点下标
+    private DictTrie matchedTrie;
+    private int matchedState;
     /*
      * 词段开始位置
      */
@@ -100,6 +104,19 @@ public class Hit {
         this.matchedDictSegment = matchedDictSegment;
     }
 
+    DictTrie getMatchedTrie() {
+        return matchedTrie;
+    }
+
+    int getMatchedState() {
+        return matchedState;
+    }
+
+    void setMatchedTrie(DictTrie matchedTrie, int matchedState) {
+        this.matchedTrie = matchedTrie;
+        this.matchedState = matchedState;
+    }
+
     public int getBegin() {
         return begin;
     }
@@ -0,0 +1,61 @@
+package org.wltea.analyzer.dic;
+
+/**
+ * 可按节点下标遍历的词典Trie
+ * 节点下标连续分布在[0, capacity)内，每个节点记录父节点下标及字母表编码，
+ * 可以不经检索直接枚举全部节点，供Aho-Corasick自动机及词条还原使用。
+ */
+abstract class IndexedDictTrie extends DictTrie {
+
+    /**
+     * 节点总数(含空闲位置)
+     */
+    abstract int capacity();
+
+    /**
+     * 获取节点index的父节点下标，空闲或保留位置返回值小于ROOT
+     */
+    abstract int parentOf(int index);
+
+    /**
+     * 获取节点index对应的字母表编码
+     */
+    abstract int codeOf(int index);
+
+    /**
+     * 获取字符c的字母表编码，0表示该字符不在词典中出现
+     */
+    abstract int codeOf(char c);
+
+    @Override
+    IndexedDictTrie toIndexedTrie() {
+        return this;
+    }
+
+    @Override
+    int decompile(DictSegment root) {
+        //字母表编码 -> 字符
+        char[] codeChars = new char[Character.MAX_VALUE + 2];
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            int code = this.codeOf((char) c);
+            if (code != 0) {
+                codeChars[code] = (char) c;
+            }
+        }
+        int words = 0;
+        StringBuilder word = new StringBuilder();
+        for (int index = ROOT + 1, size = this.capacity(); index < size; index++) {
+            if (this.parentOf(index) < ROOT || !this.isWord(index)) {
+                continue;
+            }
+            //沿父节点回溯到根节点，得到逆序的词
+            word.setLength(0);
+            for (int node = index; node != ROOT; node = this.parentOf(node)) {
+                word.append(codeChars[this.codeOf(node)]);
+            }
+            root.fillSegment(word.reverse().toString().toCharArray());
+            words++;
+        }
+        return words;
+    }
+}
@@ -0,0 +1,201 @@
+package org.wltea.analyzer.dic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 基于内存映射文件的双数组Trie
+ * 二进制词典文件由DictionaryCompiler离线生成，加载时只做一次FileChannel.map，
+ * 检索直接读取映射区，同一台机器上的多个JVM共享操作系统的页缓存。
+ *
+ * 文件格式(小端字节序)：
+ * <pre>
+ * int    magic      固定为MAGIC
+ * int    version    格式版本，必须等于FORMAT_VERSION
+ * int    size       base/check/states数组长度
+ * int    words      词条数
+ * char[65536]       字符 -> 字母表编码
+ * int[size]         base数组
+ * int[size]         check数组
+ * byte[size]        节点状态数组
+ * </pre>
+ */
+final class MappedDoubleArrayTrie extends IndexedDictTrie {
+
+    //文件魔数 "IKDT"
+    static final int MAGIC = 0x494B4454;
+    //当前文件格式版本，格式变化时递增
+    static final int FORMAT_VERSION = 1;
+    //文件头长度
+    private static final int HEADER_SIZE = 16;
+    //字母表编码表长度
+    private static final int CHAR_TABLE_SIZE = Character.MAX_VALUE + 1;
+
+    //字符 -> 字母表编码
+    private final CharBuffer charCodes;
+    //base数组
+    private final IntBuffer base;
+    //check数组
+    private final IntBuffer check;
+    //节点状态数组
+    private final ByteBuffer states;
+    //数组长度
+    private final int size;
+    //词条数
+    private final int words;
+
+    private MappedDoubleArrayTrie(ByteBuffer buffer) throws IOException {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("不是IK二进制词典文件");
+        }
+        int version = buffer.getInt(4);
+        if (version != FORMAT_VERSION) {
+            throw new IOException("二进制词典版本不匹配，文件版本：" + version + "，当前支持版本：" + FORMAT_VERSION);
+        }
+        this.size = buffer.getInt(8);
+        this.words = buffer.getInt(12);
+        if (this.size <= ROOT || buffer.limit() != fileSize(this.size)) {
+            throw new IOException("二进制词典文件长度不正确");
+        }
+        int offset = HEADER_SIZE;
+        this.charCodes = slice(buffer, offset, CHAR_TABLE_SIZE * 2).asCharBuffer();
+        offset += CHAR_TABLE_SIZE * 2;
+        this.base = slice(buffer, offset, this.size * 4).asIntBuffer();
+        offset += this.size * 4;
+        this.check = slice(buffer, offset, this.size * 4).asIntBuffer();
+        offset += this.size * 4;
+        this.states = slice(buffer, offset, this.size);
+    }
+
+    @Override
+    int transition(int state, char c) {
+        int code = this.charCodes.get(c);
+        if (code == 0) {
+            return -1;
+        }
+        int t = this.base.get(state) + code;
+        //base可能为负值，t需要落在数组范围内
+        if (t > 0 && t < this.size && this.check.get(t) == state) {
+            return t;
+        }
+        return -1;
+    }
+
+    @Override
+    boolean isWord(int state) {
+        return (this.states.get(state) & STATE_WORD) != 0;
+    }
+
+    @Override
+    boolean isPrefix(int state) {
+        return (this.states.get(state) & STATE_PREFIX) != 0;
+    }
+
+    @Override
+    int capacity() {
+        return this.size;
+    }
+
+    @Override
+    int parentOf(int index) {
+        return this.check.get(index);
+    }
+
+    @Override
+    int codeOf(int index) {
+        return index - this.base.get(this.check.get(index));
+    }
+
+    @Override
+    int codeOf(char c) {
+        return this.charCodes.get(c);
+    }
+
+    @Override
+    DoubleArrayTrie toHeapTrie() {
+        char[] heapCharCodes = new char[CHAR_TABLE_SIZE];
+        int[] heapBase = new int[this.size];
+        int[] heapCheck = new int[this.size];
+        byte[] heapStates = new byte[this.size];
+        //使用duplicate读取，不改变共享缓冲区的位置
+        this.charCodes.duplicate().get(heapCharCodes);
+        this.base.duplicate().get(heapBase);
+        this.check.duplicate().get(heapCheck);
+        this.states.duplicate().get(heapStates);
+        return new DoubleArrayTrie(heapCharCodes, heapBase, heapCheck, heapStates);
+    }
+
+    /**
+     * 词条数
+     */
+    int getWords() {
+        return this.words;
+    }
+
+    /**
+     * 以只读方式映射二进制词典文件
+     * @param path 二进制词典文件路径
+     * @return MappedDoubleArrayTrie
+     * @throws IOException 文件不存在、格式或版本不匹配
+     */
+    static MappedDoubleArrayTrie open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            //映射建立后即可关闭通道，映射区在被回收前一直有效
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedDoubleArrayTrie(buffer);
+        }
+    }
+
+    /**
+     * 将双数组Trie写出为二进制词典文件
+     * 先写临时文件再改名，避免正在映射该文件的进程读到不完整的内容
+     * @param trie 双数组Trie
+     * @param words 词条数
+     * @param path 输出文件路径
+     * @throws IOException 写文件异常
+     */
+    static void write(DoubleArrayTrie trie, int words, Path path) throws IOException {
+        int size = trie.capacity();
+        ByteBuffer buffer = ByteBuffer.allocate((int) fileSize(size)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(size).putInt(words);
+        buffer.asCharBuffer().put(trie.getCharCodes());
+        buffer.position(HEADER_SIZE + CHAR_TABLE_SIZE * 2);
+        buffer.asIntBuffer().put(trie.getBase());
+        buffer.position(buffer.position() + size * 4);
+        buffer.asIntBuffer().put(trie.getCheck());
+        buffer.position(buffer.position() + size * 4);
+        buffer.put(trie.getStates());
+        buffer.flip();
+
+        Path absolutePath = path.toAbsolutePath();
+        Path tmpPath = absolutePath.resolveSibling(absolutePath.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmpPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tmpPath, absolutePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static long fileSize(int size) {
+        return HEADER_SIZE + CHAR_TABLE_SIZE * 2L + size * 9L;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset).limit(offset + length);
+        return duplicate.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
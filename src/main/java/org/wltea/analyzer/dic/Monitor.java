@@ -1,17 +1,30 @@
 package org.wltea.analyzer.dic;
 
+import org.apache.http.HttpEntity;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.ContentType;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.wltea.analyzer.cfg.DefaultConfig;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 public class Monitor implements Runnable {
 	private static final Logger log = LogManager.getLogger(Monitor.class);
@@ -35,11 +48,46 @@ public class Monitor implements Runnable {
 	/**远程扩展词典自动刷新时间间隔，单位：秒*/
 	private long remoteExtDictRefreshInterval;
 
-	public Monitor(String location, long remoteExtDictRefreshInterval) {
+	/**是否为远程扩展停用词词典*/
+	private boolean stopWordDict;
+
+	/**远程词条应用到的词典，为null时应用到词典单例*/
+	private final Dictionary dictionary;
+
+	/*
+	 * 上次成功应用的远程词条集合，用于计算增量
+	 */
+	private Set<String> appliedWords;
+	/*
+	 * 由本监控新增的词条，远程词库删除词条时只屏蔽这些词，不影响本地词典中原有的词
+	 */
+	private Set<String> ownedWords;
+	/*
+	 * 上次应用词条时词典的重新加载次数，尚未应用过词条时为-1
+	 */
+	private long reloadCount;
+
+	public Monitor(String location, long remoteExtDictRefreshInterval, boolean stopWordDict) {
+		this(null, location, remoteExtDictRefreshInterval, stopWordDict);
+	}
+
+	/**
+	 * @param dictionary 远程词条应用到的词典，为null时应用到词典单例
+	 */
+	public Monitor(Dictionary dictionary, String location, long remoteExtDictRefreshInterval, boolean stopWordDict) {
+		this.dictionary = dictionary;
 		this.location = location;
 		this.last_modified = null;
 		this.eTags = null;
 		this.remoteExtDictRefreshInterval = remoteExtDictRefreshInterval;
+		this.stopWordDict = stopWordDict;
+		this.appliedWords = Collections.emptySet();
+		this.ownedWords = new HashSet<String>();
+		this.reloadCount = -1;
+	}
+
+	public Monitor(String location, long remoteExtDictRefreshInterval) {
+		this(location, remoteExtDictRefreshInterval, false);
 	}
 
 	public Monitor(String location) {
@@ -55,45 +103,51 @@ public class Monitor implements Runnable {
 
 	/**
 	 * 监控流程：
-	 *  ①向词库服务器发送Head请求
-	 *  ②从响应中获取Last-Modify、ETags字段值，判断是否变化
-	 *  ③如果未变化，休眠1min，返回第①步
-	 * 	④如果有变化，重新加载词典
-	 *  ⑤休眠1min，返回第①步
+	 *  ①向词库服务器发送带If-Modified-Since、If-None-Match的条件GET请求
+	 *  ②返回304或Last-Modify、ETags字段值未变化，不做操作
+	 *  ③如果有变化，流式读取词条列表，与上次应用的词条集合比较
+	 * 	④只将新增、删除的词条增量应用到词典
+	 *  ⑤等待下一个刷新周期，返回第①步
 	 */
 
-	public void runUnprivileged() {
+	public synchronized void runUnprivileged() {
 		log.info("Begin to load remote ext-dict:[{}] with the fixed refreshInterval:[{}]", location, remoteExtDictRefreshInterval);
+		//词典重新加载过时，远程词库即使未变化(304)也要补回丢失的词条
+		this.reapplyIfReloaded();
 		//超时设置
 		RequestConfig requestConfig = RequestConfig.custom().setConnectionRequestTimeout(10*1000)
 				.setConnectTimeout(10*1000).setSocketTimeout(30*1000).build();
-		HttpHead head = new HttpHead(location);
-		head.setConfig(requestConfig);
+		HttpGet get = new HttpGet(location);
+		get.setConfig(requestConfig);
 
 		//设置请求头
 		if (last_modified != null) {
-			head.setHeader("If-Modified-Since", last_modified);
+			get.setHeader("If-Modified-Since", last_modified);
 		}
 		if (eTags != null) {
-			head.setHeader("If-None-Match", eTags);
+			get.setHeader("If-None-Match", eTags);
 		}
 
 		CloseableHttpResponse response = null;
 		try {
-			response = httpclient.execute(head);
+			response = httpclient.execute(get);
 			//返回200 才做操作
 			if(response.getStatusLine().getStatusCode() == 200){
-				if (((response.getLastHeader("Last-Modified")!=null) && !response.getLastHeader("Last-Modified").getValue().equalsIgnoreCase(last_modified))
-						||((response.getLastHeader("ETag")!=null) && !response.getLastHeader("ETag").getValue().equalsIgnoreCase(eTags))) {
-					// 远程词库有更新,需要重新加载词典，并修改last_modified,eTags
-					Dictionary.getSingleton().reLoadMainDict();
-					last_modified = response.getLastHeader("Last-Modified")==null?null:response.getLastHeader("Last-Modified").getValue();
-					eTags = response.getLastHeader("ETag")==null?null:response.getLastHeader("ETag").getValue();
+				String newLastModified = response.getLastHeader("Last-Modified")==null?null:response.getLastHeader("Last-Modified").getValue();
+				String newETags = response.getLastHeader("ETag")==null?null:response.getLastHeader("ETag").getValue();
+				boolean unchanged = (last_modified != null || eTags != null)
+						&& (newLastModified == null || newLastModified.equalsIgnoreCase(last_modified))
+						&& (newETags == null || newETags.equalsIgnoreCase(eTags));
+				if (!unchanged) {
+					// 远程词库有更新,增量应用词条，并修改last_modified,eTags
+					this.applyWords(this.readWords(response.getEntity()));
+					last_modified = newLastModified;
+					eTags = newETags;
 					log.info("The remote ext-dict:[{}] had been loaded with the fixed refreshInterval:[{}] successfully.", location, remoteExtDictRefreshInterval);
 				}
 			} else if (response.getStatusLine().getStatusCode() == 304) {
 				//没有修改，不做操作
-				log.info("The remote dictionary:[{}] had been modified.", location);
+				log.info("The remote dictionary:[{}] had not been modified.", location);
 			} else{
 				log.info("remote_ext_dict: {} return bad code {}" , location , response.getStatusLine().getStatusCode() );
 			}
@@ -102,6 +156,8 @@ public class Monitor implements Runnable {
 		} finally{
 			try {
 				if (response != null) {
+					//未读取的响应体需要消费掉，连接才能被复用
+					EntityUtils.consume(response.getEntity());
 					response.close();
 				}
 			} catch (IOException e) {
@@ -110,4 +166,117 @@ public class Monitor implements Runnable {
 		}
 	}
 
+	/**
+	 * 流式读取响应体中的词条，每行一个词，与本地词典的规则一致
+	 * @param entity 响应体
+	 * @return 词条集合
+	 * @throws IOException 读取异常
+	 */
+	private Set<String> readWords(HttpEntity entity) throws IOException {
+		Set<String> words = new HashSet<String>();
+		if (entity == null) {
+			return words;
+		}
+		Charset charset = ContentType.getOrDefault(entity).getCharset();
+		try (InputStream inputStream = entity.getContent();
+			 BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream,
+					 charset == null ? StandardCharsets.UTF_8 : charset))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				//去掉UTF-8 BOM
+				if (words.isEmpty() && !line.isEmpty() && line.charAt(0) == '\uFEFF') {
+					line = line.substring(1);
+				}
+				String word = line.trim().toLowerCase();
+				if (!word.isEmpty()) {
+					words.add(word);
+				}
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * 与上次应用的词条集合比较，只将新增、删除的词条应用到词典
+	 * @param words 远程词库的全部词条
+	 */
+	private void applyWords(Set<String> words) {
+		long begin = System.currentTimeMillis();
+		Dictionary dictionary = this.getDictionary();
+		//先取重新加载次数，应用期间发生的重新加载会在下次检查时补回词条
+		long reloads = dictionary.getReloadCount();
+		List<String> addedWords = new ArrayList<String>();
+		for (String word : words) {
+			if (!this.appliedWords.contains(word) && !this.containsWord(dictionary, word)) {
+				addedWords.add(word);
+			}
+		}
+		List<String> removedWords = new ArrayList<String>();
+		for (String word : this.appliedWords) {
+			if (!words.contains(word) && this.ownedWords.contains(word)) {
+				removedWords.add(word);
+			}
+		}
+		this.update(dictionary, addedWords, removedWords);
+		this.ownedWords.addAll(addedWords);
+		this.ownedWords.removeAll(removedWords);
+		this.appliedWords = words;
+		if (this.reloadCount == -1) {
+			this.reloadCount = reloads;
+		}
+		log.info("Remote dictionary:[{}] applied, words:[{}], added:[{}], removed:[{}], cost:[{}ms]",
+				location, words.size(), addedWords.size(), removedWords.size(), System.currentTimeMillis() - begin);
+	}
+
+	/**
+	 * 词典重新加载只读取本地词典文件，由本监控加入的词条随之丢失。
+	 * 检测到词典重新加载过时，将上次应用的远程词条中词典缺失的重新加入，不必等待远程词库变化；
+	 * 其余词条已在本地词典中，不再归本监控所有
+	 */
+	synchronized void reapplyIfReloaded() {
+		if (this.reloadCount == -1) {
+			return;
+		}
+		long begin = System.currentTimeMillis();
+		Dictionary dictionary = this.getDictionary();
+		long reloads = dictionary.getReloadCount();
+		if (reloads == this.reloadCount) {
+			return;
+		}
+		List<String> addedWords = new ArrayList<String>();
+		for (String word : this.appliedWords) {
+			if (!this.containsWord(dictionary, word)) {
+				addedWords.add(word);
+			}
+		}
+		this.update(dictionary, addedWords, Collections.<String>emptyList());
+		this.ownedWords = new HashSet<String>(addedWords);
+		this.reloadCount = reloads;
+		log.info("Remote dictionary:[{}] reapplied after reload, words:[{}], added:[{}], cost:[{}ms]",
+				location, this.appliedWords.size(), addedWords.size(), System.currentTimeMillis() - begin);
+	}
+
+	private void update(Dictionary dictionary, List<String> addedWords, List<String> removedWords) {
+		if (addedWords.isEmpty() && removedWords.isEmpty()) {
+			return;
+		}
+		if (this.stopWordDict) {
+			dictionary.updateStopWords(addedWords, removedWords);
+		} else {
+			dictionary.updateWords(addedWords, removedWords);
+		}
+	}
+
+	private Dictionary getDictionary() {
+		return this.dictionary != null ? this.dictionary : Dictionary.getSingleton();
+	}
+
+	private boolean containsWord(Dictionary dictionary, String word) {
+		char[] charArray = word.toCharArray();
+		if (this.stopWordDict) {
+			return dictionary.isStopWord(charArray, 0, charArray.length);
+		}
+		return dictionary.matchInMainDict(charArray).isMatch();
+	}
+
 }
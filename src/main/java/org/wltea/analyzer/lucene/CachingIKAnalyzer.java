@@ -0,0 +1,62 @@
+package org.wltea.analyzer.lucene;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.Tokenizer;
+import org.wltea.analyzer.core.SegmentCache;
+
+/**
+ * 使用分词结果缓存的IK分词器 Lucene Analyzer实现
+ * 输出与IKAnalyzer一致，重复的文本直接取缓存的分词结果。文本整体读入内存后查询缓存，用于查询期分词；
+ * 多个CachingIKAnalyzer可以共用一个SegmentCache，缓存key中包含切分策略。
+ */
+public final class CachingIKAnalyzer extends Analyzer {
+
+    //分词结果缓存
+    private final SegmentCache cache;
+
+    private final boolean useSmart;
+
+    //是否以词元图输出重叠的词元
+    private final boolean graphOutput;
+
+    /**
+     * @param cache 分词结果缓存
+     * @param useSmart 当为true时，分词器进行智能切分
+     */
+    public CachingIKAnalyzer(SegmentCache cache, boolean useSmart) {
+        this(cache, useSmart, false);
+    }
+
+    /**
+     * @param cache 分词结果缓存
+     * @param useSmart 当为true时，分词器进行智能切分
+     * @param graphOutput 当为true时，重叠的词元按起止位置组成词元图输出，见IKTokenizer(boolean, boolean)
+     */
+    public CachingIKAnalyzer(SegmentCache cache, boolean useSmart, boolean graphOutput) {
+        super();
+        if (cache == null) {
+            throw new IllegalArgumentException("参数 cache 不能为null.");
+        }
+        this.cache = cache;
+        this.useSmart = useSmart;
+        this.graphOutput = graphOutput;
+    }
+
+    public SegmentCache getCache() {
+        return cache;
+    }
+
+    public boolean useSmart() {
+        return useSmart;
+    }
+
+    public boolean isGraphOutput() {
+        return graphOutput;
+    }
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        Tokenizer tokenizer = new CachingIKTokenizer(this.cache, this.useSmart, this.graphOutput);
+        return new TokenStreamComponents(tokenizer);
+    }
+}
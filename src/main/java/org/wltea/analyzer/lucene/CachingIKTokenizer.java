@@ -0,0 +1,135 @@
+package org.wltea.analyzer.lucene;
+
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionLengthAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.wltea.analyzer.core.Lexeme;
+import org.wltea.analyzer.core.SegmentCache;
+
+import java.io.IOException;
+
+/**
+ * 使用分词结果缓存的IKTokenizer
+ * 第一次取词元时读入全部文本，从SegmentCache取分词结果，未缓存时切分后放入缓存；
+ * 输出的词元与IKTokenizer一致。文本整体读入内存，只适用于查询词等短文本。
+ */
+final class CachingIKTokenizer extends Tokenizer {
+
+    //读取文本的缓冲区大小
+    private static final int READ_BUFFER_SIZE = 256;
+
+    //分词结果缓存
+    private final SegmentCache cache;
+    //是否使用智能分词策略
+    private final boolean useSmart;
+    //复用的词元对象
+    private final Lexeme lexeme = new Lexeme(0, 0, 0, Lexeme.TYPE_UNKNOWN);
+    //读取文本的缓冲区
+    private final char[] readBuffer = new char[READ_BUFFER_SIZE];
+    private final StringBuilder text = new StringBuilder();
+    //当前文本的分词结果，尚未读取文本时为null
+    private SegmentCache.Tokens tokens;
+    //下一个输出的词元序号
+    private int tokenIndex;
+
+    private final CharTermAttribute termAtt;
+    private final OffsetAttribute offsetAtt;
+    private final TypeAttribute typeAtt;
+    private final PositionIncrementAttribute posIncrAtt;
+    private final PositionLengthAttribute posLengthAtt;
+    //图输出模式下的词元图缓冲，平铺输出时为null
+    private final TokenGraphBuffer graphBuffer;
+    //从分词结果依次读取词元
+    private final TokenGraphBuffer.LexemeReader reader;
+    //记录最后一个词元的结束位置
+    private int endPosition;
+
+    CachingIKTokenizer(SegmentCache cache, boolean useSmart, boolean graphOutput) {
+        this.cache = cache;
+        this.useSmart = useSmart;
+        this.termAtt = addAttribute(CharTermAttribute.class);
+        this.offsetAtt = addAttribute(OffsetAttribute.class);
+        this.typeAtt = addAttribute(TypeAttribute.class);
+        this.posIncrAtt = addAttribute(PositionIncrementAttribute.class);
+        this.posLengthAtt = addAttribute(PositionLengthAttribute.class);
+        this.graphBuffer = graphOutput ? new TokenGraphBuffer() : null;
+        this.reader = this::nextLexeme;
+    }
+
+    @Override
+    public boolean incrementToken() throws IOException {
+        clearAttributes();
+        if (this.tokens == null) {
+            this.tokens = this.cache.get(this.readText(), this.useSmart);
+        }
+        if (this.graphBuffer != null) {
+            return this.incrementGraphToken();
+        }
+        if (!this.nextLexeme(this.lexeme)) {
+            return false;
+        }
+        int length = this.lexeme.getLength();
+        this.lexeme.getLexemeChars(this.termAtt.resizeBuffer(length), 0);
+        this.termAtt.setLength(length);
+        this.offsetAtt.setOffset(this.lexeme.getBeginPosition(), this.lexeme.getEndPosition());
+        this.endPosition = this.lexeme.getEndPosition();
+        this.typeAtt.setType(this.lexeme.getLexemeTypeString());
+        return true;
+    }
+
+    private boolean incrementGraphToken() throws IOException {
+        if (!this.graphBuffer.next(this.reader)) {
+            return false;
+        }
+        int length = this.graphBuffer.getLength();
+        this.graphBuffer.getChars(this.termAtt.resizeBuffer(length), 0);
+        this.termAtt.setLength(length);
+        this.offsetAtt.setOffset(this.graphBuffer.getBeginPosition(), this.graphBuffer.getEndPosition());
+        this.endPosition = this.graphBuffer.getEndPosition();
+        this.typeAtt.setType(this.graphBuffer.getType());
+        this.posIncrAtt.setPositionIncrement(this.graphBuffer.getPositionIncrement());
+        this.posLengthAtt.setPositionLength(this.graphBuffer.getPositionLength());
+        return true;
+    }
+
+    /**
+     * 将分词结果中的下一个词元写入词元对象
+     */
+    private boolean nextLexeme(Lexeme lexeme) {
+        if (this.tokenIndex >= this.tokens.size()) {
+            return false;
+        }
+        this.tokens.fill(this.tokenIndex++, lexeme);
+        return true;
+    }
+
+    private String readText() throws IOException {
+        this.text.setLength(0);
+        int read;
+        while ((read = this.input.read(this.readBuffer)) != -1) {
+            this.text.append(this.readBuffer, 0, read);
+        }
+        return this.text.toString();
+    }
+
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        this.tokens = null;
+        this.tokenIndex = 0;
+        this.endPosition = 0;
+        if (this.graphBuffer != null) {
+            this.graphBuffer.reset();
+        }
+    }
+
+    @Override
+    public void end() throws IOException {
+        super.end();
+        int finalOffset = correctOffset(this.endPosition);
+        this.offsetAtt.setOffset(finalOffset, finalOffset);
+    }
+}
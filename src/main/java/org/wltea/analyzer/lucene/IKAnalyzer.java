@@ -34,6 +34,9 @@ public final class IKAnalyzer extends Analyzer {
 
     private boolean useSmart;
 
+    //是否以词元图输出重叠的词元
+    private boolean graphOutput;
+
     public boolean useSmart() {
         return useSmart;
     }
@@ -42,6 +45,14 @@ public final class IKAnalyzer extends Analyzer {
         this.useSmart = useSmart;
     }
 
+    public boolean isGraphOutput() {
+        return graphOutput;
+    }
+
+    public void setGraphOutput(boolean graphOutput) {
+        this.graphOutput = graphOutput;
+    }
+
     /**
      * IK分词器Lucene  Analyzer接口实现类
      *
@@ -57,8 +68,19 @@ public final class IKAnalyzer extends Analyzer {
      * @param useSmart 当为true时，分词器进行智能切分
      */
     public IKAnalyzer(boolean useSmart) {
+        this(useSmart, false);
+    }
+
+    /**
+     * IK分词器Lucene Analyzer接口实现类
+     *
+     * @param useSmart 当为true时，分词器进行智能切分
+     * @param graphOutput 当为true时，重叠的词元按起止位置组成词元图输出，见IKTokenizer(boolean, boolean)
+     */
+    public IKAnalyzer(boolean useSmart, boolean graphOutput) {
         super();
         this.useSmart = useSmart;
+        this.graphOutput = graphOutput;
     }
 
     /**
@@ -66,7 +88,7 @@ public final class IKAnalyzer extends Analyzer {
      */
     @Override
     protected TokenStreamComponents createComponents(String fieldName) {
-        Tokenizer _IKTokenizer = new IKTokenizer(this.useSmart());
+        Tokenizer _IKTokenizer = new IKTokenizer(this.useSmart(), this.isGraphOutput());
         return new TokenStreamComponents(_IKTokenizer);
     }
 }
@@ -26,11 +26,16 @@ package org.wltea.analyzer.lucene;
 import org.apache.lucene.analysis.Tokenizer;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionLengthAttribute;
 import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
 import org.apache.lucene.util.AttributeFactory;
 import org.apache.lucene.util.Version;
+import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.cfg.DefaultConfig;
 import org.wltea.analyzer.core.IKSegmenter;
 import org.wltea.analyzer.core.Lexeme;
+import org.wltea.analyzer.dic.Dictionary;
 
 import java.io.IOException;
 
@@ -42,12 +47,22 @@ public final class IKTokenizer extends Tokenizer {
 
     //IK分词器实现
     private IKSegmenter _IKImplement;
+    //复用的词元对象，词元文本直接从分词缓冲区复制到termAtt
+    private final Lexeme lexeme = new Lexeme(0, 0, 0, Lexeme.TYPE_UNKNOWN);
     //词元文本属性
     private final CharTermAttribute termAtt;
     //词元位移属性
     private final OffsetAttribute offsetAtt;
     //词元分类属性（该属性分类参考org.wltea.analyzer.core.Lexeme中的分类常量）
     private final TypeAttribute typeAtt;
+    //词元位置增量属性
+    private final PositionIncrementAttribute posIncrAtt;
+    //词元位置跨度属性
+    private final PositionLengthAttribute posLengthAtt;
+    //图输出模式下的词元图缓冲，平铺输出时为null
+    private final TokenGraphBuffer graphBuffer;
+    //词元图缓冲的词元来源
+    private final TokenGraphBuffer.LexemeReader graphReader;
     //记录最后一个词元的结束位置
     private int endPosition;
 
@@ -59,30 +74,58 @@ public final class IKTokenizer extends Tokenizer {
     }
 
     public IKTokenizer(boolean useSmart) {
-        offsetAtt = addAttribute(OffsetAttribute.class);
-        termAtt = addAttribute(CharTermAttribute.class);
-        typeAtt = addAttribute(TypeAttribute.class);
-        _IKImplement = new IKSegmenter(input, useSmart);
+        this(useSmart, false);
+    }
+
+    /**
+     * @param useSmart 当为true时，分词器进行智能切分
+     * @param graphOutput 当为true时，重叠的词元组成词元图，设置位置增量及位置跨度；
+     *                    细粒度切分输出重叠的词元时，可配合SynonymGraphFilter、FlattenGraphFilter使用。
+     *                    每组重叠词元的每个不同的起止位置各为图的一个节点，词元从起始位置的节点连到结束位置的节点，
+     *                    如“中华”、“华人”、“人民”依次错开一个位置，位置跨度均为2
+     */
+    public IKTokenizer(boolean useSmart, boolean graphOutput) {
+        this(DEFAULT_TOKEN_ATTRIBUTE_FACTORY, useSmart, graphOutput);
     }
 
     public IKTokenizer(AttributeFactory factory, boolean useSmart) {
+        this(factory, useSmart, false);
+    }
+
+    public IKTokenizer(AttributeFactory factory, boolean useSmart, boolean graphOutput) {
+        this(factory, DefaultConfig.getInstance(), null, useSmart, graphOutput);
+    }
+
+    /**
+     * @param cfg 分词器配置项
+     * @param dictionary 分词器使用的词典，如Dictionary.shared返回的共享词典；为null时使用以cfg初始化的词典单例
+     * @param useSmart 当为true时，分词器进行智能切分
+     * @param graphOutput 当为true时，重叠的词元组成词元图输出
+     */
+    public IKTokenizer(AttributeFactory factory, Configuration cfg, Dictionary dictionary, boolean useSmart, boolean graphOutput) {
         super(factory);
         offsetAtt = addAttribute(OffsetAttribute.class);
         termAtt = addAttribute(CharTermAttribute.class);
         typeAtt = addAttribute(TypeAttribute.class);
-        _IKImplement = new IKSegmenter(input, useSmart);
+        posIncrAtt = addAttribute(PositionIncrementAttribute.class);
+        posLengthAtt = addAttribute(PositionLengthAttribute.class);
+        _IKImplement = new IKSegmenter(input, cfg, dictionary, useSmart);
+        graphBuffer = graphOutput ? new TokenGraphBuffer() : null;
+        graphReader = _IKImplement::next;
     }
 
     @Override
     public boolean incrementToken() throws IOException {
         //清除所有的词元属性
         clearAttributes();
-        Lexeme nextLexeme = _IKImplement.next();
-        if (null == nextLexeme) {
+        if (graphBuffer != null) {
+            return incrementGraphToken();
+        }
+        if (!_IKImplement.next(this.lexeme)) {
             //返回false表示Token已经遍历完了
             return false;
         }
-        return setAttributes(nextLexeme);
+        return setAttributes(this.lexeme);
     }
 
     /**
@@ -92,10 +135,11 @@ public final class IKTokenizer extends Tokenizer {
      */
     private boolean setAttributes(Lexeme nextLexeme) {
         //将Lexeme转成Attributes
-        //设置词元文本
-        termAtt.append(nextLexeme.getLexemeText());
+        //设置词元文本，从分词缓冲区直接复制，不生成String
+        int length = nextLexeme.getLength();
+        nextLexeme.getLexemeChars(termAtt.resizeBuffer(length), 0);
         //设置词元长度
-        termAtt.setLength(nextLexeme.getLength());
+        termAtt.setLength(length);
         //设置词元位移
         offsetAtt.setOffset(nextLexeme.getBeginPosition(), nextLexeme.getEndPosition());
         //记录分词的最后位置
@@ -106,10 +150,32 @@ public final class IKTokenizer extends Tokenizer {
         return true;
     }
 
+    /**
+     * 图输出模式：从词元图缓冲取下一个词元，设置Token属性及位置增量、位置跨度
+     * @return
+     */
+    private boolean incrementGraphToken() throws IOException {
+        if (!graphBuffer.next(graphReader)) {
+            return false;
+        }
+        int length = graphBuffer.getLength();
+        graphBuffer.getChars(termAtt.resizeBuffer(length), 0);
+        termAtt.setLength(length);
+        offsetAtt.setOffset(graphBuffer.getBeginPosition(), graphBuffer.getEndPosition());
+        endPosition = graphBuffer.getEndPosition();
+        typeAtt.setType(graphBuffer.getType());
+        posIncrAtt.setPositionIncrement(graphBuffer.getPositionIncrement());
+        posLengthAtt.setPositionLength(graphBuffer.getPositionLength());
+        return true;
+    }
+
     @Override
     public void reset() throws IOException {
         super.reset();
         _IKImplement.reset(input);
+        if (graphBuffer != null) {
+            graphBuffer.reset();
+        }
     }
 
     public final void end() throws IOException {
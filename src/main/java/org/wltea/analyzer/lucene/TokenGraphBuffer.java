@@ -0,0 +1,228 @@
+package org.wltea.analyzer.lucene;
+
+import org.wltea.analyzer.core.Lexeme;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 词元图缓冲
+ * 细粒度切分输出相互重叠的词元，如：中华人民共和国 / 中华 / 人民 / 共和国。
+ * 本类从分词器(或缓存的分词结果)依次读入词元，把相互重叠的一组词元缓存下来，组内每个不同的词元起止位置各为图的一个节点，
+ * 节点按文本位置升序编号；每个词元从其起始位置的节点连到结束位置的节点，位置增量及位置跨度由节点编号得出，
+ * 组内词元的先后顺序与相互覆盖的关系都保留在图中，如“中华”、“华人”、“人民”依次错开一个位置。
+ * 只作为词元结束位置的节点没有词元从其连出，对应的位置空缺。
+ * 不重叠的词元各自成组，位置增量及位置跨度均为1，与平铺输出一致；相邻两组共用前一组的结束节点。
+ */
+final class TokenGraphBuffer {
+
+    /**
+     * 词元来源，如IKSegmenter.next(Lexeme)
+     */
+    interface LexemeReader {
+        /**
+         * 将下一个词元写入调用方提供的词元对象
+         * @return boolean 为false表示词元已经读完
+         */
+        boolean next(Lexeme lexeme) throws IOException;
+    }
+
+    //初始容量
+    private static final int INITIAL_CAPACITY = 16;
+
+    //复用的词元对象，同时作为预读的下一个词元
+    private final Lexeme lexeme = new Lexeme(0, 0, 0, Lexeme.TYPE_UNKNOWN);
+    //lexeme中是否有已读入、尚未放入词元组的词元
+    private boolean lookahead;
+    //分词器是否已经读完
+    private boolean exhausted;
+
+    //组内词元的起止位置、类型及文本在chars中的起始位置
+    private int[] begins;
+    private int[] ends;
+    private String[] types;
+    private int[] charStarts;
+    //组内词元的文本
+    private char[] chars;
+    private int charCount;
+    //组内词元数及下一个待输出的词元
+    private int count;
+    private int index;
+    //组的结束位置
+    private int groupEnd;
+
+    //组内节点在文本中的位置，即组内词元的起止位置，升序且互不相同
+    private int[] nodes;
+    private int nodeCount;
+    //组的第一个节点的编号，即前一组的结束节点
+    private int groupStartNode;
+    //上一个输出的词元的起始节点编号
+    private int lastStartNode;
+
+    //当前词元的位置增量及位置跨度
+    private int positionIncrement;
+    private int positionLength;
+
+    TokenGraphBuffer() {
+        this.begins = new int[INITIAL_CAPACITY];
+        this.ends = new int[INITIAL_CAPACITY];
+        this.types = new String[INITIAL_CAPACITY];
+        this.charStarts = new int[INITIAL_CAPACITY];
+        this.chars = new char[INITIAL_CAPACITY * 4];
+        this.nodes = new int[INITIAL_CAPACITY * 2];
+        this.reset();
+    }
+
+    /**
+     * 重置到初始状态，分词器重新读取文本前调用
+     */
+    void reset() {
+        this.lookahead = false;
+        this.exhausted = false;
+        this.count = 0;
+        this.index = 0;
+        this.charCount = 0;
+        this.nodeCount = 0;
+        this.groupStartNode = 0;
+        this.lastStartNode = -1;
+    }
+
+    /**
+     * 移到下一个词元
+     * @param reader 词元来源
+     * @return boolean 为false表示词元已经遍历完
+     */
+    boolean next(LexemeReader reader) throws IOException {
+        if (this.index >= this.count && !this.fillGroup(reader)) {
+            return false;
+        }
+        int i = this.index++;
+        //词元的起止位置都是节点
+        int startNode = this.groupStartNode + Arrays.binarySearch(this.nodes, 0, this.nodeCount, this.begins[i]);
+        int endNode = this.groupStartNode + Arrays.binarySearch(this.nodes, 0, this.nodeCount, this.ends[i]);
+        this.positionIncrement = startNode - this.lastStartNode;
+        this.positionLength = endNode - startNode;
+        this.lastStartNode = startNode;
+        return true;
+    }
+
+    int getBeginPosition() {
+        return this.begins[this.index - 1];
+    }
+
+    int getEndPosition() {
+        return this.ends[this.index - 1];
+    }
+
+    String getType() {
+        return this.types[this.index - 1];
+    }
+
+    int getLength() {
+        int i = this.index - 1;
+        return (i + 1 < this.count ? this.charStarts[i + 1] : this.charCount) - this.charStarts[i];
+    }
+
+    /**
+     * 将当前词元的文本复制到字符数组
+     */
+    void getChars(char[] dest, int destBegin) {
+        System.arraycopy(this.chars, this.charStarts[this.index - 1], dest, destBegin, this.getLength());
+    }
+
+    int getPositionIncrement() {
+        return this.positionIncrement;
+    }
+
+    int getPositionLength() {
+        return this.positionLength;
+    }
+
+    /**
+     * 读入下一组相互重叠的词元：后续词元的起始位置不小于组内词元的最大结束位置时，该词元属于下一组
+     * @return boolean 为false表示分词器已经读完
+     */
+    private boolean fillGroup(LexemeReader reader) throws IOException {
+        //前一组的结束节点作为本组的第一个节点
+        if (this.nodeCount > 0) {
+            this.groupStartNode += this.nodeCount - 1;
+        }
+        this.count = 0;
+        this.index = 0;
+        this.charCount = 0;
+        this.nodeCount = 0;
+        if (!this.lookahead && !this.readLexeme(reader)) {
+            return false;
+        }
+        this.groupEnd = this.lexeme.getEndPosition();
+        this.addLexeme();
+        while (this.readLexeme(reader)) {
+            if (this.lexeme.getBeginPosition() >= this.groupEnd) {
+                this.lookahead = true;
+                break;
+            }
+            this.groupEnd = Math.max(this.groupEnd, this.lexeme.getEndPosition());
+            this.addLexeme();
+        }
+        this.buildNodes();
+        return true;
+    }
+
+    private boolean readLexeme(LexemeReader reader) throws IOException {
+        this.lookahead = false;
+        if (this.exhausted) {
+            return false;
+        }
+        if (!reader.next(this.lexeme)) {
+            this.exhausted = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 将lexeme中的词元放入组内，词元文本只在读取下一个词元前有效，在此复制
+     */
+    private void addLexeme() {
+        if (this.count == this.begins.length) {
+            int newCapacity = this.count << 1;
+            this.begins = Arrays.copyOf(this.begins, newCapacity);
+            this.ends = Arrays.copyOf(this.ends, newCapacity);
+            this.types = Arrays.copyOf(this.types, newCapacity);
+            this.charStarts = Arrays.copyOf(this.charStarts, newCapacity);
+        }
+        int length = this.lexeme.getLength();
+        if (this.charCount + length > this.chars.length) {
+            this.chars = Arrays.copyOf(this.chars, Math.max(this.chars.length << 1, this.charCount + length));
+        }
+        this.lexeme.getLexemeChars(this.chars, this.charCount);
+        this.begins[this.count] = this.lexeme.getBeginPosition();
+        this.ends[this.count] = this.lexeme.getEndPosition();
+        this.types[this.count] = this.lexeme.getLexemeTypeString();
+        this.charStarts[this.count] = this.charCount;
+        this.charCount += length;
+        this.count++;
+    }
+
+    /**
+     * 生成组内的节点：收集组内全部词元的起止位置，排序去重。
+     * 组的起始位置即第一个节点，由前一组的结束节点充当；组的结束位置即最后一个节点，作为下一组的第一个节点
+     */
+    private void buildNodes() {
+        if (this.nodes.length < this.count * 2) {
+            this.nodes = new int[this.count * 2];
+        }
+        for (int i = 0; i < this.count; i++) {
+            this.nodes[i * 2] = this.begins[i];
+            this.nodes[i * 2 + 1] = this.ends[i];
+        }
+        Arrays.sort(this.nodes, 0, this.count * 2);
+        int n = 1;
+        for (int i = 1; i < this.count * 2; i++) {
+            if (this.nodes[i] != this.nodes[n - 1]) {
+                this.nodes[n++] = this.nodes[i];
+            }
+        }
+        this.nodeCount = n;
+    }
+}
@@ -29,6 +29,7 @@ import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.Query;
 import org.wltea.analyzer.core.IKSegmenter;
 import org.wltea.analyzer.core.Lexeme;
+import org.wltea.analyzer.core.SegmentCache;
 
 import java.io.IOException;
 import java.io.StringReader;
@@ -51,11 +52,23 @@ public class SWMCQueryBuilder {
      * @return Lucene Query
      */
     public static Query create(String fieldName, String keywords, boolean quickMode) {
+        return create(fieldName, keywords, quickMode, null);
+    }
+
+    /**
+     * 生成SWMCQuery，关键词的分词结果从缓存中读取
+     * @param fieldName
+     * @param keywords
+     * @param quickMode
+     * @param cache 分词结果缓存，为null时不使用缓存
+     * @return Lucene Query
+     */
+    public static Query create(String fieldName, String keywords, boolean quickMode, SegmentCache cache) {
         if (fieldName == null || keywords == null) {
             throw new IllegalArgumentException("参数 fieldName 、 keywords 不能为null.");
         }
         //1.对keywords进行分词处理
-        List<Lexeme> lexemes = doAnalyze(keywords);
+        List<Lexeme> lexemes = cache != null ? doAnalyze(keywords, cache) : doAnalyze(keywords);
         //2.根据分词结果，生成SWMCQuery
         Query _SWMCQuery = getSWMCQuery(fieldName, lexemes, quickMode);
         return _SWMCQuery;
@@ -68,6 +81,7 @@ public class SWMCQueryBuilder {
      */
     private static List<Lexeme> doAnalyze(String keywords) {
         List<Lexeme> lexemes = new ArrayList<Lexeme>();
+        //临时分词器分析时借用当前线程池中的上下文，读完关键词后归还，不必每次新建缓冲区
         IKSegmenter ikSeg = new IKSegmenter(new StringReader(keywords), true);
         try {
             Lexeme l = null;
@@ -80,6 +94,25 @@ public class SWMCQueryBuilder {
         return lexemes;
     }
 
+    /**
+     * 从缓存中读取智能切分的结果，未缓存时切分后放入缓存
+     * @param keywords
+     * @param cache
+     * @return
+     */
+    private static List<Lexeme> doAnalyze(String keywords, SegmentCache cache) {
+        List<Lexeme> lexemes = new ArrayList<Lexeme>();
+        try {
+            SegmentCache.Tokens tokens = cache.get(keywords, true);
+            for (int i = 0; i < tokens.size(); i++) {
+                lexemes.add(tokens.getLexeme(i));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return lexemes;
+    }
+
 
     /**
      * 根据分词结果生成SWMC搜索
@@ -123,6 +156,8 @@ public class SWMCQueryBuilder {
         //借助lucene queryparser 生成SWMC Query
         QueryParser qp = new QueryParser(fieldName, new StandardAnalyzer());
         qp.setDefaultOperator(QueryParser.AND_OPERATOR);
+        //关键词以空格分隔，自动生成短语查询要求按空格切分
+        qp.setSplitOnWhitespace(true);
         qp.setAutoGeneratePhraseQueries(true);
 
         if (quickMode && (shortCount * 1.0f / totalCount) > 0.5f) {
@@ -0,0 +1,147 @@
+package org.wltea.analyzer.solr;
+
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.TokenizerFactory;
+import org.apache.lucene.util.AttributeFactory;
+import org.apache.lucene.util.ResourceLoader;
+import org.apache.lucene.util.ResourceLoaderAware;
+import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.cfg.DefaultConfig;
+import org.wltea.analyzer.dic.Dictionary;
+import org.wltea.analyzer.lucene.IKTokenizer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.Cleaner;
+import java.util.Map;
+
+/**
+ * IKTokenizer工厂类
+ * 兼容Solr 9.x，通过SPI以名称ik注册，Solr schema中可以这样配置：
+ * <pre>
+ * &lt;tokenizer name="ik" useSmart="false" graphOutput="false" conf="IKAnalyzer.cfg.xml"/&gt;
+ * </pre>
+ * 配置文件及其中引用的词典文件都通过Solr的资源加载器读取，即先从core的配置目录查找，再从类路径查找；
+ * 未指定conf时使用类路径中的IKAnalyzer.cfg.xml。
+ * 词典由Dictionary.shared加载，配置项及词典文件内容相同的core、collection共用同一个编译好的词典。
+ * 引用全部释放后词典及其远程词典监控随之释放。Solr不会调用分析组件的close，
+ * 因此词典的引用与工厂的生命周期绑定：core关闭或重新加载后工厂被垃圾回收时，经Cleaner自动释放；
+ * 显式调用close可以立即释放。
+ */
+public class IKTokenizerFactory extends TokenizerFactory implements ResourceLoaderAware, Closeable {
+
+    /**
+     * SPI名称
+     */
+    public static final String NAME = "ik";
+
+    /**
+     * 工厂被回收时释放词典引用的清理线程
+     */
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /**
+     * 是否使用智能切分
+     */
+    private boolean useSmart;
+    /**
+     * 是否以词元图输出重叠的词元
+     */
+    private boolean graphOutput;
+    /**
+     * IKAnalyzer.cfg.xml格式的配置文件路径，相对于core的配置目录
+     */
+    private String conf;
+
+    private Configuration cfg;
+    private Dictionary dictionary;
+    /**
+     * 释放词典引用的清理动作，close或工厂被回收时执行，只执行一次
+     */
+    private Cleaner.Cleanable release;
+
+    public IKTokenizerFactory(Map<String, String> args) {
+        super(args);
+        this.useSmart = getBoolean(args, "useSmart", false);
+        this.graphOutput = getBoolean(args, "graphOutput", false);
+        this.conf = get(args, "conf");
+        if (!args.isEmpty()) {
+            throw new IllegalArgumentException("Unknown parameters: " + args);
+        }
+    }
+
+    /**
+     * SPI加载时使用的默认构造函数
+     */
+    public IKTokenizerFactory() {
+        throw defaultCtorException();
+    }
+
+    @Override
+    public synchronized void inform(ResourceLoader loader) throws IOException {
+        if (this.conf == null) {
+            this.cfg = DefaultConfig.getInstance();
+        } else {
+            try (InputStream inputStream = loader.openResource(this.conf)) {
+                this.cfg = DefaultConfig.load(inputStream);
+            }
+        }
+        Cleaner.Cleanable previous = this.release;
+        this.dictionary = Dictionary.shared(this.cfg, loader);
+        this.release = CLEANER.register(this, new DictionaryRelease(this.dictionary));
+        //重复调用inform时释放之前取得的词典
+        if (previous != null) {
+            previous.clean();
+        }
+    }
+
+    /**
+     * 释放共享词典的引用，之后不能再创建分词器
+     */
+    @Override
+    public synchronized void close() {
+        if (this.release != null) {
+            this.release.clean();
+            this.release = null;
+            this.dictionary = null;
+        }
+    }
+
+    @Override
+    public Tokenizer create(AttributeFactory factory) {
+        if (this.dictionary == null) {
+            throw new IllegalStateException("IKTokenizerFactory尚未初始化，请先调用inform方法");
+        }
+        return new IKTokenizer(factory, this.cfg, this.dictionary, this.useSmart, this.graphOutput);
+    }
+
+    public boolean isUseSmart() {
+        return useSmart;
+    }
+
+    public boolean isGraphOutput() {
+        return graphOutput;
+    }
+
+    public String getConf() {
+        return conf;
+    }
+
+    /**
+     * 释放词典引用的清理动作
+     * 不能引用工厂本身，否则工厂永远不会被回收
+     */
+    private static final class DictionaryRelease implements Runnable {
+        private final Dictionary dictionary;
+
+        private DictionaryRelease(Dictionary dictionary) {
+            this.dictionary = dictionary;
+        }
+
+        @Override
+        public void run() {
+            Dictionary.release(this.dictionary);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package org.wltea.analyzer.core;
+
+import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.cfg.DefaultConfig;
+import org.wltea.analyzer.dic.Dictionary;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Aho-Corasick中文子分词器差异测试
+ * 分别以enable_aho_corasick=true及false的配置切分同一语料，细粒度、智能切分两种模式下逐个比较输出的词元：
+ * 文本、起止位置及类型。语料先整体读入，再以随机长度分块返回的Reader读入，覆盖词语跨越缓冲区边界的情形；
+ * 两个分词器的Reader按相同的随机种子分块，每段文本之间以reset复用分词器。
+ * 语料可通过参数传入一个或多个UTF-8文本文件；不传参数时，以主词典中的词条随机拼接生成约100万字的无分隔文本，
+ * 其中夹杂数字、量词、英文及标点。
+ */
+public class AhoCorasickDifferentialTest {
+
+    private static final int GENERATED_LENGTH = 1000000;
+    private static final String[] FILLERS = {"2019年", "3个", "80KG", "iPhone", "T450", "，", "。", "、", " ", "十二万", "第一"};
+    //分块读入时每次返回的最大字符数，0表示整体读入
+    private static final int[] MAX_CHUNKS = {0, 7, 5000};
+
+    public static void main(String[] args) throws Exception {
+        List<String> texts = new ArrayList<String>();
+        if (args.length > 0) {
+            for (String file : args) {
+                texts.add(new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8));
+            }
+        } else {
+            texts.add(generate());
+        }
+        Dictionary.initial(DefaultConfig.getInstance());
+        Configuration automaton = DefaultConfig.builder().enableAhoCorasick(true).build();
+        Configuration trie = DefaultConfig.builder().enableAhoCorasick(false).build();
+
+        for (boolean useSmart : new boolean[]{false, true}) {
+            IKSegmenter expected = new IKSegmenter(new StringReader(""), trie, useSmart);
+            IKSegmenter actual = new IKSegmenter(new StringReader(""), automaton, useSmart);
+            checkSegmenter(expected, CJKSegmenter.class);
+            checkSegmenter(actual, AhoCorasickCJKSegmenter.class);
+            for (int maxChunk : MAX_CHUNKS) {
+                long lexemes = 0;
+                for (int i = 0; i < texts.size(); i++) {
+                    String text = texts.get(i);
+                    expected.reset(reader(text, maxChunk, i));
+                    actual.reset(reader(text, maxChunk, i));
+                    lexemes += compare(expected, actual, text, useSmart, maxChunk);
+                }
+                System.out.println((useSmart ? "智能切分" : "细粒度切分") + "，" + (maxChunk == 0 ? "整体读入" : "分块读入(每次至多" + maxChunk + "字)")
+                        + "：" + lexemes + "个词元一致");
+            }
+        }
+        System.out.println("Aho-Corasick子分词器与逐字检索的切分结果一致");
+    }
+
+    /**
+     * 同步读取两个分词器的词元并逐个比较
+     * @return 词元数
+     */
+    private static long compare(IKSegmenter expected, IKSegmenter actual, String text, boolean useSmart, int maxChunk)
+            throws IOException {
+        long count = 0;
+        while (true) {
+            Lexeme e = expected.next();
+            Lexeme a = actual.next();
+            if (e == null && a == null) {
+                return count;
+            }
+            if (e == null || a == null || !describe(e).equals(describe(a))) {
+                int position = e != null ? e.getBeginPosition() : a.getBeginPosition();
+                String context = text.substring(Math.max(0, position - 10), Math.min(text.length(), position + 10));
+                throw new IllegalStateException("useSmart=" + useSmart + "，maxChunk=" + maxChunk + "，第" + count
+                        + "个词元不一致：逐字检索为" + describe(e) + "，Aho-Corasick为" + describe(a) + "，上下文：" + context);
+            }
+            count++;
+        }
+    }
+
+    private static String describe(Lexeme lexeme) {
+        if (lexeme == null) {
+            return "null";
+        }
+        return lexeme.getLexemeText() + "@" + lexeme.getBeginPosition() + "-" + lexeme.getEndPosition()
+                + "/" + lexeme.getLexemeTypeString();
+    }
+
+    /**
+     * 核对分词器使用的中文子分词器
+     */
+    private static void checkSegmenter(IKSegmenter segmenter, Class<?> expected) throws Exception {
+        Field field = IKSegmenter.class.getDeclaredField("segmenters");
+        field.setAccessible(true);
+        for (ISegmenter s : (ISegmenter[]) field.get(segmenter)) {
+            if (s.getClass() == expected) {
+                return;
+            }
+        }
+        throw new IllegalStateException("分词器未使用" + expected.getSimpleName());
+    }
+
+    private static Reader reader(String text, int maxChunk, long seed) {
+        return maxChunk == 0 ? new StringReader(text) : new ChunkedReader(text, maxChunk, seed);
+    }
+
+    /**
+     * 以主词典词条随机拼接生成语料
+     */
+    private static String generate() throws IOException {
+        List<String> words = new ArrayList<String>();
+        String mainDictionary = DefaultConfig.getInstance().getMainDictionary();
+        InputStream is = AhoCorasickDifferentialTest.class.getClassLoader().getResourceAsStream(mainDictionary);
+        if (is != null) {
+            BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8), 512);
+            try {
+                String word;
+                while ((word = br.readLine()) != null) {
+                    word = word.trim();
+                    if (!word.isEmpty()) {
+                        words.add(word);
+                    }
+                }
+            } finally {
+                br.close();
+            }
+        }
+        if (words.isEmpty()) {
+            throw new IllegalStateException("找不到主词典：" + mainDictionary);
+        }
+        Random random = new Random(20121212L);
+        StringBuilder sb = new StringBuilder(GENERATED_LENGTH + 16);
+        while (sb.length() < GENERATED_LENGTH) {
+            if (random.nextInt(8) == 0) {
+                sb.append(FILLERS[random.nextInt(FILLERS.length)]);
+            } else {
+                sb.append(words.get(random.nextInt(words.size())));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 每次只返回随机长度字符的Reader，模拟网络流等分批到达的输入
+     */
+    private static class ChunkedReader extends Reader {
+
+        private final String text;
+        private final int maxChunk;
+        private final Random random;
+        private int position;
+
+        private ChunkedReader(String text, int maxChunk, long seed) {
+            this.text = text;
+            this.maxChunk = maxChunk;
+            this.random = new Random(seed);
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (this.position >= this.text.length()) {
+                return -1;
+            }
+            int length = Math.min(Math.min(len, 1 + this.random.nextInt(this.maxChunk)), this.text.length() - this.position);
+            this.text.getChars(this.position, this.position + length, cbuf, off);
+            this.position += length;
+            return length;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package org.wltea.analyzer.core;
+
+import org.wltea.analyzer.cfg.DefaultConfig;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Stack;
+import java.util.TreeSet;
+
+import static org.wltea.analyzer.core.LexemeArena.NONE;
+
+/**
+ * 歧义裁决差异测试
+ * 以智能模式切分语料，对每条歧义路径同时执行递推裁决(IKArbitrator.judge)与原回溯裁决，逐条比较选中的路径。
+ * 语料可通过参数传入一个或多个UTF-8文本文件；不传参数时，以主词典中的词条随机拼接生成约100万字的无分隔文本，
+ * 其中夹杂数字、量词、英文及标点，歧义路径密集，类似商品标题。
+ */
+public class ArbitratorDifferentialTest {
+
+    private static final int GENERATED_LENGTH = 1000000;
+    private static final String[] FILLERS = {"2019年", "3个", "80KG", "iPhone", "T450", "，", "。", "、", " ", "十二万", "第一"};
+
+    public static void main(String[] args) throws Exception {
+        List<String> texts = new ArrayList<String>();
+        if (args.length > 0) {
+            for (String file : args) {
+                texts.add(new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8));
+            }
+        } else {
+            texts.add(generate());
+        }
+
+        IKSegmenter segmenter = new IKSegmenter(new StringReader(""), true);
+        DifferentialArbitrator arbitrator = new DifferentialArbitrator();
+        Field field = IKSegmenter.class.getDeclaredField("arbitrator");
+        field.setAccessible(true);
+        field.set(segmenter, arbitrator);
+
+        long chars = 0;
+        for (String text : texts) {
+            chars += text.length();
+            segmenter.reset(new StringReader(text));
+            while (segmenter.next() != null) {
+            }
+        }
+        System.out.println("语料：" + chars + "字，歧义路径：" + arbitrator.judged + "条，最长歧义路径：" + arbitrator.maxSize + "个词元");
+        System.out.println("递推裁决：" + arbitrator.judgeNanos / 1000000 + "ms，回溯裁决：" + arbitrator.backtrackNanos / 1000000 + "ms");
+        if (arbitrator.mismatches > 0) {
+            throw new IllegalStateException("裁决结果不一致：" + arbitrator.mismatches + "条，首条：\r\n" + arbitrator.firstMismatch);
+        }
+        System.out.println("裁决结果一致");
+    }
+
+    /**
+     * 以主词典词条随机拼接生成语料
+     */
+    private static String generate() throws IOException {
+        List<String> words = new ArrayList<String>();
+        String mainDictionary = DefaultConfig.getInstance().getMainDictionary();
+        InputStream is = ArbitratorDifferentialTest.class.getClassLoader().getResourceAsStream(mainDictionary);
+        if (is != null) {
+            BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8), 512);
+            try {
+                String word;
+                while ((word = br.readLine()) != null) {
+                    word = word.trim();
+                    if (!word.isEmpty()) {
+                        words.add(word);
+                    }
+                }
+            } finally {
+                br.close();
+            }
+        }
+        if (words.isEmpty()) {
+            throw new IllegalStateException("找不到主词典：" + mainDictionary);
+        }
+        Random random = new Random(20121212L);
+        StringBuilder sb = new StringBuilder(GENERATED_LENGTH + 16);
+        while (sb.length() < GENERATED_LENGTH) {
+            if (random.nextInt(8) == 0) {
+                sb.append(FILLERS[random.nextInt(FILLERS.length)]);
+            } else {
+                sb.append(words.get(random.nextInt(words.size())));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 同时执行两种裁决并比较结果的裁决器，输出递推裁决的结果
+     */
+    private static class DifferentialArbitrator extends IKArbitrator {
+
+        private long judged;
+        private int maxSize;
+        private long mismatches;
+        private String firstMismatch;
+        private long judgeNanos;
+        private long backtrackNanos;
+
+        @Override
+        LexemePath judge(LexemePath crossPath) {
+            long begin = System.nanoTime();
+            LexemePath result = super.judge(crossPath);
+            long middle = System.nanoTime();
+            LexemePath expected = backtrack(crossPath);
+            this.backtrackNanos += System.nanoTime() - middle;
+            this.judgeNanos += middle - begin;
+
+            this.judged++;
+            this.maxSize = Math.max(this.maxSize, crossPath.size());
+            if (!sameLexemes(result, expected)) {
+                if (this.mismatches++ == 0) {
+                    this.firstMismatch = "歧义路径：\r\n" + crossPath + "递推裁决：\r\n" + result + "回溯裁决：\r\n" + expected;
+                }
+            }
+            return result;
+        }
+
+        private static boolean sameLexemes(LexemePath path, LexemePath other) {
+            if (path.size() != other.size()) {
+                return false;
+            }
+            int c = path.getHead();
+            int o = other.getHead();
+            while (c != NONE) {
+                if (path.arena.compare(path.getLexeme(c), other.getLexeme(o)) != 0) {
+                    return false;
+                }
+                c = path.getNext(c);
+                o = other.getNext(o);
+            }
+            return true;
+        }
+
+        /**
+         * 原回溯裁决：首次遍历记录冲突词元，依次回滚路径并从冲突词元重新遍历，候选路径放入TreeSet取最优
+         */
+        private static LexemePath backtrack(LexemePath crossPath) {
+            TreeSet<LexemePath> pathOptions = new TreeSet<LexemePath>();
+            LexemePath option = new LexemePath(crossPath.arena);
+            Stack<Integer> lexemeStack = forwardPath(crossPath, crossPath.getHead(), option);
+            pathOptions.add(option.copy());
+            while (!lexemeStack.isEmpty()) {
+                int c = lexemeStack.pop();
+                backPath(crossPath.getLexeme(c), option);
+                forwardPath(crossPath, c, option);
+                pathOptions.add(option.copy());
+            }
+            return pathOptions.first();
+        }
+
+        private static Stack<Integer> forwardPath(LexemePath crossPath, int lexemeCell, LexemePath option) {
+            Stack<Integer> conflictStack = new Stack<Integer>();
+            int c = lexemeCell;
+            while (c != NONE) {
+                if (!option.addNotCrossLexeme(crossPath.getLexeme(c))) {
+                    conflictStack.push(c);
+                }
+                c = crossPath.getNext(c);
+            }
+            return conflictStack;
+        }
+
+        private static void backPath(int l, LexemePath option) {
+            while (option.checkCross(l)) {
+                option.removeTail();
+            }
+        }
+    }
+}
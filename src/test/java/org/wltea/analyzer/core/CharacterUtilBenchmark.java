@@ -0,0 +1,69 @@
+package org.wltea.analyzer.core;
+
+/**
+ * 字符类型及规格化查表对比
+ * 先逐个校验全部char的查表结果与逐字计算一致，再分别在中文为主和ASCII为主的文本上，
+ * 比较逐字计算(Character.UnicodeBlock.of及条件判断)与查表两种方式每秒处理的字符数。
+ */
+public class CharacterUtilBenchmark {
+
+    private static final String CJK_TEXT = "中华人民共和国成立于一九四九年十月一日，今天的天气预报说北京明天有小到中雨，气温在二十三摄氏度左右。"
+            + "政治传记关于曹家沟道路规则调整的批复，据新华社报道，国务院总理在人民大会堂会见了来访的外国代表团。ＩＫ分词器２０１２版。";
+    private static final String ASCII_TEXT = "Elasticsearch IK analysis plugin supports hot reloading of remote dictionaries, "
+            + "see https://github.com/medcl/elasticsearch-analysis-ik for details. Version 8.4.1 (2022-09-01), T450 SKU-112 80KG.";
+    private static final int ROUNDS = 200000;
+
+    public static void main(String[] args) {
+        for (int i = 0; i <= Character.MAX_VALUE; i++) {
+            char c = (char) i;
+            if (CharacterUtil.identifyCharType(c) != CharacterUtil.computeCharType(c)
+                    || CharacterUtil.regularize(c, false) != CharacterUtil.computeRegularized(c, false)
+                    || CharacterUtil.regularize(c, true) != CharacterUtil.computeRegularized(c, true)) {
+                throw new IllegalStateException("查表结果不一致：\\u" + Integer.toHexString(i));
+            }
+        }
+        System.out.println("全部" + (Character.MAX_VALUE + 1) + "个char查表结果一致");
+
+        run("中文为主", CJK_TEXT.toCharArray());
+        run("ASCII为主", ASCII_TEXT.toCharArray());
+    }
+
+    private static void run(String name, char[] text) {
+        //预热
+        long checksum = 0;
+        for (int i = 0; i < ROUNDS / 4; i++) {
+            checksum += computeAll(text) + lookupAll(text);
+        }
+        long begin = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            checksum += computeAll(text);
+        }
+        long computeNanos = System.nanoTime() - begin;
+        begin = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            checksum += lookupAll(text);
+        }
+        long lookupNanos = System.nanoTime() - begin;
+        long chars = (long) text.length * ROUNDS;
+        System.out.println(name + "：逐字计算" + chars * 1000 / computeNanos + "百万字/秒，查表"
+                + chars * 1000 / lookupNanos + "百万字/秒(" + checksum % 10 + ")");
+    }
+
+    private static long computeAll(char[] text) {
+        long sum = 0;
+        for (char c : text) {
+            char regularized = CharacterUtil.computeRegularized(c, true);
+            sum += regularized + CharacterUtil.computeCharType(regularized);
+        }
+        return sum;
+    }
+
+    private static long lookupAll(char[] text) {
+        long sum = 0;
+        for (char c : text) {
+            char regularized = CharacterUtil.regularize(c, true);
+            sum += regularized + CharacterUtil.identifyCharType(regularized);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,147 @@
+package org.wltea.analyzer.dic;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 双数组Trie写时复制编辑的随机测试
+ * 以随机生成的词条编译初始Trie，再经DictTrie.withChanges连续应用多批随机增删，每批之后与参照的词条集合逐一核对：
+ * 参照集合中的词及其每个前缀都能检索到，已屏蔽的词检索不到，还原出的词条数与参照集合一致；
+ * 同时核对修改前的Trie仍保持原有的词条，即编辑只发生在副本上。
+ * 词条集中在少量常用字上，子节点位置频繁冲突，迁移节点的代码路径会被反复执行；
+ * 每批中还夹杂词典中从未出现过的字，覆盖字母表扩充。
+ * 同样的修改序列再在FST词典上重放一遍，覆盖FST之上的覆盖Trie，累计的修改超过上限后合并进FST重新编译。
+ */
+public class DoubleArrayTrieEditorFuzzTest {
+
+    private static final int BASE_WORDS = 50000;
+    private static final int BATCHES = 40;
+    private static final int BATCH_SIZE = 200;
+    //常用字的个数，词条大多由这些字组成
+    private static final int COMMON_CHARS = 400;
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 20121212L;
+        run(seed, false);
+        run(seed, true);
+    }
+
+    /**
+     * 以同一随机种子生成初始词条及修改序列，在双数组Trie或FST词典上应用并核对
+     */
+    private static void run(long seed, boolean fst) {
+        Random random = new Random(seed);
+        Set<String> expected = new HashSet<String>();
+        DictSegment root = new DictSegment((char) 0);
+        List<char[]> baseWords = new ArrayList<char[]>();
+        while (expected.size() < BASE_WORDS) {
+            String word = randomWord(random);
+            if (expected.add(word)) {
+                root.fillSegment(word.toCharArray());
+                baseWords.add(word.toCharArray());
+            }
+        }
+        DictTrie trie = fst ? FstDictTrie.compile(baseWords) : DoubleArrayTrie.compile(root);
+        verify("初始Trie", trie, expected, new HashSet<String>());
+
+        for (int batch = 0; batch < BATCHES; batch++) {
+            List<String> existing = new ArrayList<String>(expected);
+            List<char[]> added = new ArrayList<char[]>();
+            List<char[]> disabled = new ArrayList<char[]>();
+            Set<String> addedWords = new HashSet<String>();
+            Set<String> disabledWords = new HashSet<String>();
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                String word;
+                switch (random.nextInt(4)) {
+                    case 0:
+                        //已有词条加长一字，在已有节点下追加子节点
+                        word = existing.get(random.nextInt(existing.size())) + commonChar(random);
+                        break;
+                    case 1:
+                        //词典中从未出现过的字
+                        word = randomWord(random) + (char) (0xAC00 + random.nextInt(2000));
+                        break;
+                    default:
+                        word = randomWord(random);
+                        break;
+                }
+                added.add(word.toCharArray());
+                addedWords.add(word);
+            }
+            for (int i = 0; i < BATCH_SIZE / 2; i++) {
+                String word = existing.get(random.nextInt(existing.size()));
+                disabled.add(word.toCharArray());
+                disabledWords.add(word);
+            }
+            //同一批中既追加又屏蔽的词条，以屏蔽为准
+            String both = randomWord(random);
+            added.add(both.toCharArray());
+            disabled.add(both.toCharArray());
+            disabledWords.add(both);
+
+            Set<String> previous = new HashSet<String>(expected);
+            DictTrie updated = trie.withChanges(added, disabled);
+            if (updated == null) {
+                throw new IllegalStateException("第" + batch + "批修改没有生成新的Trie");
+            }
+            expected.addAll(addedWords);
+            expected.removeAll(disabledWords);
+            Set<String> removed = new HashSet<String>(previous);
+            removed.removeAll(expected);
+            removed.add(both);
+
+            verify("第" + batch + "批修改后", updated, expected, removed);
+            verify("第" + batch + "批修改前的Trie", trie, previous, new HashSet<String>());
+            trie = updated;
+        }
+        System.out.println((fst ? "FST词典" : "双数组Trie") + "，随机种子：" + seed + "，" + BATCHES + "批修改，词条数："
+                + expected.size() + "，Trie容量：" + trie.toIndexedTrie().capacity() + "，核对一致");
+    }
+
+    /**
+     * 核对Trie中的词条与参照集合一致
+     * @param name 出错时的说明
+     * @param trie 待核对的Trie
+     * @param expected 应当包含的词条
+     * @param absent 应当检索不到的词条
+     */
+    private static void verify(String name, DictTrie trie, Set<String> expected, Set<String> absent) {
+        for (String word : expected) {
+            char[] chars = word.toCharArray();
+            if (!trie.contains(chars, 0, chars.length)) {
+                throw new IllegalStateException(name + "：缺少词条 " + word);
+            }
+            for (int length = 1; length < chars.length; length++) {
+                if (!trie.match(chars, 0, length).isPrefix()) {
+                    throw new IllegalStateException(name + "：" + word.substring(0, length) + " 不是前缀");
+                }
+            }
+        }
+        for (String word : absent) {
+            char[] chars = word.toCharArray();
+            if (trie.contains(chars, 0, chars.length)) {
+                throw new IllegalStateException(name + "：已屏蔽的词条仍可检索到 " + word);
+            }
+        }
+        int words = trie.decompile(new DictSegment((char) 0));
+        if (words != expected.size()) {
+            throw new IllegalStateException(name + "：还原出" + words + "个词条，应为" + expected.size());
+        }
+    }
+
+    private static String randomWord(Random random) {
+        int length = 1 + random.nextInt(5);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(random.nextInt(8) == 0 ? (char) (0x4E00 + random.nextInt(20000)) : commonChar(random));
+        }
+        return sb.toString();
+    }
+
+    private static char commonChar(Random random) {
+        return (char) (0x4E00 + random.nextInt(COMMON_CHARS));
+    }
+}
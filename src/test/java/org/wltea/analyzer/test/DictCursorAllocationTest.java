@@ -0,0 +1,76 @@
+package org.wltea.analyzer.test;
+
+import org.wltea.analyzer.cfg.DefaultConfig;
+import org.wltea.analyzer.core.IKSegmenter;
+import org.wltea.analyzer.core.Lexeme;
+import org.wltea.analyzer.dic.Dictionary;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+/**
+ * 验证分词过程中不按字分配内存
+ * 使用线程的TLAB分配计数(ThreadMXBean.getThreadAllocatedBytes)统计分配的字节数。
+ * 预热后以IKSegmenter.next(Lexeme)反复切分同一段文本，经过全部子分词器(字母、英文单位、中文词语、中文数量词)，
+ * 文本的reader可复位重用，每字分配的字节数必须为0。细粒度及智能两种模式分别验证。
+ */
+public class DictCursorAllocationTest {
+
+    private static final String TEXT = "政治传记关于曹家沟道路规则调整的批复T450 SKU-112 80KG 365天 八小时 联想2000 粤TB01235，"
+            + "中华人民共和国成立于一九四九年十月一日，今天的天气预报说北京明天有小到中雨，气温在二十三摄氏度左右。";
+
+    private static final int WARMUP_ROUNDS = 20000;
+    private static final int ROUNDS = 1000;
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws IOException {
+        Dictionary.initial(DefaultConfig.getInstance());
+        check("细粒度", false);
+        check("智能", true);
+    }
+
+    private static void check(String name, boolean useSmart) throws IOException {
+        char[] text = TEXT.toCharArray();
+        CharArrayReader reader = new CharArrayReader(text);
+        IKSegmenter segmenter = new IKSegmenter(reader, useSmart);
+        Lexeme lexeme = new Lexeme(0, 0, 0, Lexeme.TYPE_UNKNOWN);
+        //取得计数本身的开销
+        long start = allocatedBytes();
+        long overhead = allocatedBytes() - start;
+
+        //预热，使分词代码完成JIT编译，上下文及各子分词器的缓冲区扩容到位
+        long lexemes = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            lexemes += segment(segmenter, reader, lexeme);
+        }
+
+        long before = allocatedBytes();
+        for (int i = 0; i < ROUNDS; i++) {
+            lexemes += segment(segmenter, reader, lexeme);
+        }
+        long allocated = allocatedBytes() - before - overhead;
+        double perChar = allocated / ((double) ROUNDS * text.length);
+        System.out.println(name + "模式：" + (long) ROUNDS * text.length + "字，词元数：" + lexemes
+                + "，分配字节数：" + allocated + "，每字" + String.format("%.3f", perChar) + "字节");
+        if (allocated > 0) {
+            throw new IllegalStateException(name + "模式分词过程中分配了" + allocated + "字节");
+        }
+    }
+
+    private static long segment(IKSegmenter segmenter, CharArrayReader reader, Lexeme lexeme) throws IOException {
+        reader.reset();
+        segmenter.reset(reader);
+        long lexemes = 0;
+        while (segmenter.next(lexeme)) {
+            lexemes++;
+        }
+        return lexemes;
+    }
+
+    private static long allocatedBytes() {
+        return THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
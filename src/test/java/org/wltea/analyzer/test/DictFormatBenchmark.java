@@ -0,0 +1,74 @@
+package org.wltea.analyzer.test;
+
+import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.cfg.DefaultConfig;
+import org.wltea.analyzer.dic.DictCursor;
+import org.wltea.analyzer.dic.Dictionary;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+/**
+ * 主词典存储格式对比
+ * 分别以double_array和fst格式加载默认词典，比较词典占用的堆内存和每秒的逐字检索次数。
+ * 词典为单例，每个JVM只能测量一种格式：
+ * java DictFormatBenchmark double_array
+ * java DictFormatBenchmark fst
+ */
+public class DictFormatBenchmark {
+
+    private static final String TEXT = "中华人民共和国成立于一九四九年十月一日，今天的天气预报说北京明天有小到中雨，气温在二十三摄氏度左右。"
+            + "政治传记关于曹家沟道路规则调整的批复，据新华社报道，国务院总理在人民大会堂会见了来访的外国代表团。";
+
+    public static void main(String[] args) {
+        String format = args.length > 0 ? args[0] : DefaultConfig.MAIN_DICT_FORMAT_DOUBLE_ARRAY;
+        Configuration cfg = DefaultConfig.builder().mainDictionaryFormat(format).build();
+
+        MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+        long heapBefore = usedHeap(memoryMXBean);
+        long begin = System.currentTimeMillis();
+        Dictionary dictionary = Dictionary.initial(cfg);
+        long loadTime = System.currentTimeMillis() - begin;
+        long heapAfter = usedHeap(memoryMXBean);
+
+        char[] text = TEXT.toCharArray();
+        DictCursor cursor = dictionary.newMainDictCursor();
+        //预热
+        long lookups = 0;
+        for (int i = 0; i < 20000; i++) {
+            lookups += matchAll(cursor, text);
+        }
+        lookups = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < 50000; i++) {
+            lookups += matchAll(cursor, text);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println("格式：" + format + "，加载耗时：" + loadTime + "ms，词典堆内存：" + (heapAfter - heapBefore) / 1024 + "KB，"
+                + "检索：" + (long) (lookups / seconds) + "次/秒");
+    }
+
+    /**
+     * 以每个位置为起点做前缀匹配
+     * @return 检索次数
+     */
+    private static long matchAll(DictCursor cursor, char[] text) {
+        long lookups = 0;
+        for (int begin = 0; begin < text.length; begin++) {
+            int state = cursor.first(text[begin]);
+            lookups++;
+            for (int i = begin + 1; DictCursor.isPrefix(state) && i < text.length; i++) {
+                state = cursor.next(state, text[i]);
+                lookups++;
+            }
+        }
+        return lookups;
+    }
+
+    private static long usedHeap(MemoryMXBean memoryMXBean) {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memoryMXBean.getHeapMemoryUsage().getUsed();
+    }
+}
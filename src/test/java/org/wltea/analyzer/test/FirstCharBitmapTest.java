@@ -0,0 +1,81 @@
+package org.wltea.analyzer.test;
+
+import org.wltea.analyzer.cfg.DefaultConfig;
+import org.wltea.analyzer.core.IKSegmenter;
+import org.wltea.analyzer.dic.DictCursor;
+import org.wltea.analyzer.dic.Dictionary;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collections;
+
+/**
+ * 词条首字位图演示
+ * 统计中英文、标点、生僻字混排语料中，各词典因首字位图而省去的首字检索次数，
+ * 并验证addWords追加以新字开头的词条后位图随之更新。
+ */
+public class FirstCharBitmapTest {
+
+    private static final String TEXT = "政治传记关于曹家沟道路规则调整的批复T450 SKU-112 80KG 365天 八小时 联想2000 粤TB01235，"
+            + "《Java编程思想》(Thinking in Java)第4版、ISBN 978-7-111-21382-6；价格：108.00元！"
+            + "Elasticsearch的IK分词插件支持热更新词库，see https://github.com/medcl/elasticsearch-analysis-ik for details. "
+            + "龘靐齉爩麤，生僻字与「引号」、【括号】混排——测试…… email: ik@example.com 2023-10-01 12:30:45";
+
+    public static void main(String[] args) throws IOException {
+        Dictionary dictionary = Dictionary.initial(DefaultConfig.getInstance());
+        char[] text = TEXT.toCharArray();
+        report("主词典", dictionary.newMainDictCursor(), text);
+        report("量词词典", dictionary.newQuantifierDictCursor(), text);
+        report("英文单位词典", dictionary.newENUnitDictCursor(), text);
+
+        //词典更新后位图随新版本的词典一起发布
+        DictCursor cursor = dictionary.newMainDictCursor();
+        if (cursor.isFirstChar('龘')) {
+            throw new IllegalStateException("主词典中不应存在以[龘]开头的词条");
+        }
+        dictionary.addWords(Collections.singletonList("龘龘测试词"));
+        cursor.refresh();
+        if (!cursor.isFirstChar('龘') || !dictionary.matchInMainDict("龘龘测试词".toCharArray()).isMatch()) {
+            throw new IllegalStateException("追加词条后首字位图未更新");
+        }
+
+        //完整分词耗时，仅作参考
+        IKSegmenter segmenter = new IKSegmenter(new StringReader(TEXT), false);
+        for (int i = 0; i < 20000; i++) {
+            segment(segmenter);
+        }
+        long begin = System.nanoTime();
+        for (int i = 0; i < 50000; i++) {
+            segment(segmenter);
+        }
+        System.out.println("完整分词：" + (System.nanoTime() - begin) / 50000 / 1000 + "微秒/次，" + text.length + "字");
+        System.out.println("首字位图验证通过");
+    }
+
+    /**
+     * 统计逐字做首字检索时可以跳过的次数
+     */
+    private static void report(String name, DictCursor cursor, char[] text) {
+        int probes = 0;
+        int skipped = 0;
+        for (char c : text) {
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            probes++;
+            if (!cursor.isFirstChar(c)) {
+                skipped++;
+                if (!DictCursor.isUnmatch(cursor.first(c))) {
+                    throw new IllegalStateException(name + "首字位图遗漏了字符[" + c + "]");
+                }
+            }
+        }
+        System.out.println(name + "：首字检索" + probes + "次，位图跳过" + skipped + "次(" + 100 * skipped / probes + "%)");
+    }
+
+    private static void segment(IKSegmenter segmenter) throws IOException {
+        segmenter.reset(new StringReader(TEXT));
+        while (segmenter.next() != null) {
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.wltea.analyzer.test;
+
+import com.sun.net.httpserver.HttpServer;
+import org.wltea.analyzer.cfg.DefaultConfig;
+import org.wltea.analyzer.dic.Dictionary;
+import org.wltea.analyzer.dic.Monitor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 远程词典增量同步演示
+ * 在本地启动一个HTTP词库桩服务，Monitor首次全量加载后，词库变化50个词，只增量应用变化的词条，
+ * 并验证304未修改、本地词典原有词条不会因远程词库删除而被屏蔽，以及重新加载词典后远程词条得以补回。
+ */
+public class RemoteDictSyncTest {
+
+    //本地主词典中已有的词
+    private static final String LOCAL_WORD = "中华人民共和国";
+
+    private static volatile String body;
+    private static volatile String eTag;
+
+    public static void main(String[] args) throws IOException {
+        Dictionary dictionary = Dictionary.initial(DefaultConfig.getInstance());
+        AtomicInteger bodyRequests = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/words.dic", exchange -> {
+            String currentETag = eTag;
+            exchange.getResponseHeaders().set("ETag", currentETag);
+            if (currentETag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                bodyRequests.incrementAndGet();
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+                exchange.sendResponseHeaders(200, bytes.length);
+                try (OutputStream outputStream = exchange.getResponseBody()) {
+                    outputStream.write(bytes);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+        try {
+            String location = "http://127.0.0.1:" + server.getAddress().getPort() + "/words.dic";
+            Monitor monitor = new Monitor(location, 60);
+
+            //第一版：2000个远程词条及一个本地已有的词
+            List<String> words = new ArrayList<String>();
+            for (int i = 0; i < 2000; i++) {
+                words.add("远程词条" + i);
+            }
+            publish(words, LOCAL_WORD, "v1");
+            long begin = System.nanoTime();
+            monitor.run();
+            System.out.println("全量加载2000词耗时：" + (System.nanoTime() - begin) / 1000000 + "ms");
+            check(dictionary, "远程词条0", true);
+            check(dictionary, "远程词条1999", true);
+
+            //第二版：删除25个词(含本地已有的词)，新增25个词
+            List<String> removed = new ArrayList<String>(words.subList(0, 24));
+            words.subList(0, 24).clear();
+            for (int i = 0; i < 25; i++) {
+                words.add("新增远程词条" + i);
+            }
+            publish(words, null, "v2");
+            begin = System.nanoTime();
+            monitor.run();
+            System.out.println("增量应用50个词耗时：" + (System.nanoTime() - begin) / 1000000 + "ms");
+            for (String word : removed) {
+                check(dictionary, word, false);
+            }
+            check(dictionary, "新增远程词条24", true);
+            check(dictionary, "远程词条1999", true);
+            //远程词库删除了本地已有的词，本地词典不受影响
+            check(dictionary, LOCAL_WORD, true);
+
+            //ETag未变化时服务端返回304，不再下载词条
+            monitor.run();
+            if (bodyRequests.get() != 2) {
+                throw new IllegalStateException("词库未变化时不应重新下载，下载次数：" + bodyRequests.get());
+            }
+
+            //重新加载词典只读取本地词典文件，监控在下次刷新时补回远程词条，词库未变化也不重新下载
+            dictionary.reLoadMainDict();
+            check(dictionary, "新增远程词条24", false);
+            monitor.run();
+            check(dictionary, "新增远程词条24", true);
+            check(dictionary, "远程词条1999", true);
+            for (String word : removed) {
+                check(dictionary, word, false);
+            }
+            check(dictionary, LOCAL_WORD, true);
+            if (bodyRequests.get() != 2) {
+                throw new IllegalStateException("重新加载词典后不应重新下载，下载次数：" + bodyRequests.get());
+            }
+            System.out.println("远程词典增量同步验证通过");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static void publish(List<String> words, String extraWord, String version) {
+        StringBuilder builder = new StringBuilder();
+        for (String word : words) {
+            builder.append(word).append('\n');
+        }
+        if (extraWord != null) {
+            builder.append(extraWord).append('\n');
+        }
+        body = builder.toString();
+        eTag = "\"" + version + "\"";
+    }
+
+    private static void check(Dictionary dictionary, String word, boolean expected) {
+        if (dictionary.matchInMainDict(word.toCharArray()).isMatch() != expected) {
+            throw new IllegalStateException("词条[" + word + "]应" + (expected ? "存在" : "不存在"));
+        }
+    }
+}
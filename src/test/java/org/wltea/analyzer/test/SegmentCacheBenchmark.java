@@ -0,0 +1,161 @@
+package org.wltea.analyzer.test;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.wltea.analyzer.cfg.DefaultConfig;
+import org.wltea.analyzer.core.SegmentCache;
+import org.wltea.analyzer.dic.Dictionary;
+import org.wltea.analyzer.lucene.CachingIKAnalyzer;
+import org.wltea.analyzer.lucene.IKAnalyzer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 查询期分词缓存测试
+ * 以主词典词条拼接生成一批查询词，按Zipf分布抽样模拟热门查询反复出现的情形，
+ * 分别用IKAnalyzer及CachingIKAnalyzer分词，比较每秒处理的查询数，并输出缓存命中率；
+ * 同时核对两者分词结果的校验和一致，命中率不低于MIN_HIT_RATE。
+ */
+public class SegmentCacheBenchmark {
+
+    private static final int DISTINCT_QUERIES = 50000;
+    private static final int SAMPLES = 200000;
+    private static final double ZIPF_EXPONENT = 1.0;
+    private static final int CACHE_SIZE = 5000;
+    private static final long CACHE_WEIGHT = 4L << 20;
+    private static final int ROUNDS = 3;
+    private static final double MIN_HIT_RATE = 0.5;
+    //穿插在词条之间的数量词、字母数字等片段；以数字结尾或以量词开头的片段覆盖数量词跨文本的状态
+    private static final String[] FILLERS = {"2019年", "3个", "80KG", "iPhone", "T450", " ", "十二万", "第一",
+            "12", "个人", "3.5", "公斤", "二十", "万元"};
+
+    public static void main(String[] args) throws IOException {
+        Dictionary.initial(DefaultConfig.getInstance());
+        String[] queries = sample(generate(DISTINCT_QUERIES, 19491001L));
+        for (boolean useSmart : new boolean[]{false, true}) {
+            SegmentCache cache = new SegmentCache(CACHE_SIZE, CACHE_WEIGHT);
+            Analyzer plain = new IKAnalyzer(useSmart);
+            Analyzer cached = new CachingIKAnalyzer(cache, useSmart);
+            long plainNanos = 0;
+            long cachedNanos = 0;
+            for (int i = 0; i < ROUNDS; i++) {
+                long begin = System.nanoTime();
+                long plainChecksum = analyze(plain, queries);
+                plainNanos = System.nanoTime() - begin;
+                begin = System.nanoTime();
+                long cachedChecksum = analyze(cached, queries);
+                cachedNanos = System.nanoTime() - begin;
+                if (plainChecksum != cachedChecksum) {
+                    throw new IllegalStateException("第" + i + "轮CachingIKAnalyzer的分词结果与IKAnalyzer不一致");
+                }
+            }
+            String name = useSmart ? "智能" : "细粒度";
+            System.out.println(name + "模式：IKAnalyzer " + (long) (queries.length / (plainNanos / 1e9)) + "次/秒，"
+                    + "CachingIKAnalyzer " + (long) (queries.length / (cachedNanos / 1e9)) + "次/秒，命中率"
+                    + String.format("%.3f", cache.getHitRate()) + "，" + cache);
+            //热门查询反复出现，缓存应能命中大部分查询
+            if (cache.getHitRate() < MIN_HIT_RATE) {
+                throw new IllegalStateException(name + "模式缓存命中率过低：" + cache.getHitRate());
+            }
+        }
+    }
+
+    /**
+     * 分词并返回词元文本、位置及偏移的校验和，用于比较两个Analyzer的分词结果
+     */
+    private static long analyze(Analyzer analyzer, String[] queries) throws IOException {
+        long checksum = 0;
+        for (String query : queries) {
+            TokenStream ts = analyzer.tokenStream("f", query);
+            try {
+                CharTermAttribute term = ts.addAttribute(CharTermAttribute.class);
+                OffsetAttribute offset = ts.addAttribute(OffsetAttribute.class);
+                PositionIncrementAttribute posIncr = ts.addAttribute(PositionIncrementAttribute.class);
+                ts.reset();
+                while (ts.incrementToken()) {
+                    checksum = checksum * 31 + term.toString().hashCode();
+                    checksum = checksum * 31 + offset.startOffset() * 7919 + offset.endOffset();
+                    checksum = checksum * 31 + posIncr.getPositionIncrement();
+                }
+                ts.end();
+                checksum = checksum * 31 + offset.endOffset();
+            } finally {
+                ts.close();
+            }
+        }
+        return checksum;
+    }
+
+    /**
+     * 按Zipf分布抽样，排名越靠前的查询出现得越频繁
+     */
+    private static String[] sample(List<String> distinct) {
+        double[] cumulative = new double[distinct.size()];
+        double sum = 0;
+        for (int i = 0; i < cumulative.length; i++) {
+            sum += 1 / Math.pow(i + 1, ZIPF_EXPONENT);
+            cumulative[i] = sum;
+        }
+        Random random = new Random(20121212L);
+        String[] queries = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            queries[i] = distinct.get(rank >= 0 ? rank : -rank - 1);
+        }
+        return queries;
+    }
+
+    /**
+     * 以主词典词条随机拼接生成2至5个词的查询词，其中约八分之一的片段取自数量词、字母数字等片段
+     * @param count 生成的查询词数
+     * @param seed 随机种子
+     */
+    static List<String> generate(int count, long seed) throws IOException {
+        List<String> words = new ArrayList<String>();
+        String mainDictionary = DefaultConfig.getInstance().getMainDictionary();
+        InputStream is = SegmentCacheBenchmark.class.getClassLoader().getResourceAsStream(mainDictionary);
+        if (is != null) {
+            BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8), 512);
+            try {
+                String word;
+                while ((word = br.readLine()) != null) {
+                    word = word.trim();
+                    if (!word.isEmpty()) {
+                        words.add(word);
+                    }
+                }
+            } finally {
+                br.close();
+            }
+        }
+        if (words.isEmpty()) {
+            throw new IllegalStateException("找不到主词典：" + mainDictionary);
+        }
+        Random random = new Random(seed);
+        List<String> queries = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder sb = new StringBuilder();
+            int parts = 2 + random.nextInt(4);
+            for (int j = 0; j < parts; j++) {
+                if (random.nextInt(8) == 0) {
+                    sb.append(FILLERS[random.nextInt(FILLERS.length)]);
+                } else {
+                    sb.append(words.get(random.nextInt(words.size())));
+                }
+            }
+            queries.add(sb.toString());
+        }
+        return queries;
+    }
+}
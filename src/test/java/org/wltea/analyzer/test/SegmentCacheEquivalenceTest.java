@@ -0,0 +1,80 @@
+package org.wltea.analyzer.test;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionLengthAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.wltea.analyzer.cfg.DefaultConfig;
+import org.wltea.analyzer.core.SegmentCache;
+import org.wltea.analyzer.dic.Dictionary;
+import org.wltea.analyzer.lucene.CachingIKAnalyzer;
+import org.wltea.analyzer.lucene.IKAnalyzer;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 查询期分词缓存的一致性测试
+ * 生成5000个查询词，细粒度、智能切分及平铺、词元图输出四种组合下，逐个比较CachingIKAnalyzer与每次新建的IKAnalyzer的输出：
+ * 词元文本、偏移、类型、位置增量及位置跨度。第一遍全部未命中，缓存的切分器依次复用分词器切分各查询词；
+ * 第二遍全部命中。两遍结果都必须与新建的IKAnalyzer一致，即缓存结果不受切分顺序影响。
+ */
+public class SegmentCacheEquivalenceTest {
+
+    private static final int QUERIES = 5000;
+
+    public static void main(String[] args) throws IOException {
+        Dictionary.initial(DefaultConfig.getInstance());
+        List<String> queries = SegmentCacheBenchmark.generate(QUERIES, 20121212L);
+        //数量词跨文本的情形：前一个查询词以数字结尾，后一个以量词开头
+        queries.add("共计12");
+        queries.add("个人所得税");
+        queries.add("3.5");
+        queries.add("公斤苹果");
+        queries.add("");
+        SegmentCache cache = new SegmentCache(QUERIES * 8, 64L << 20);
+        for (boolean useSmart : new boolean[]{false, true}) {
+            for (boolean graphOutput : new boolean[]{false, true}) {
+                Analyzer cached = new CachingIKAnalyzer(cache, useSmart, graphOutput);
+                for (int pass = 0; pass < 2; pass++) {
+                    for (String query : queries) {
+                        String expected = dump(new IKAnalyzer(useSmart, graphOutput), query);
+                        String actual = dump(cached, query);
+                        if (!expected.equals(actual)) {
+                            throw new IllegalStateException("useSmart=" + useSmart + "，graphOutput=" + graphOutput
+                                    + "，第" + pass + "遍，[" + query + "]的分词结果不一致：\n  IKAnalyzer：" + expected
+                                    + "\n  CachingIKAnalyzer：" + actual);
+                        }
+                    }
+                }
+            }
+        }
+        System.out.println(queries.size() + "个查询词分词结果一致，" + cache);
+    }
+
+    private static String dump(Analyzer analyzer, String text) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        TokenStream ts = analyzer.tokenStream("f", text);
+        try {
+            CharTermAttribute term = ts.addAttribute(CharTermAttribute.class);
+            OffsetAttribute offset = ts.addAttribute(OffsetAttribute.class);
+            TypeAttribute type = ts.addAttribute(TypeAttribute.class);
+            PositionIncrementAttribute posIncr = ts.addAttribute(PositionIncrementAttribute.class);
+            PositionLengthAttribute posLength = ts.addAttribute(PositionLengthAttribute.class);
+            ts.reset();
+            while (ts.incrementToken()) {
+                builder.append(term).append(' ').append(offset.startOffset()).append('-').append(offset.endOffset())
+                        .append(' ').append(type.type()).append(' ').append(posIncr.getPositionIncrement())
+                        .append('/').append(posLength.getPositionLength()).append('|');
+            }
+            ts.end();
+            builder.append("end=").append(offset.endOffset());
+        } finally {
+            ts.close();
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,97 @@
+package org.wltea.analyzer.test;
+
+import org.wltea.analyzer.cfg.DefaultConfig;
+import org.wltea.analyzer.core.IKSegmenter;
+import org.wltea.analyzer.dic.Dictionary;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 分词吞吐量测试
+ * 分别以细粒度和智能模式切分约100万字的文本，每种模式先预热，再取多轮的平均每秒处理字数。
+ * 文本可通过参数传入一个UTF-8文本文件；不传参数时，以主词典中的词条随机拼接生成，其中夹杂数字、量词、英文及标点。
+ */
+public class SegmenterBenchmark {
+
+    private static final int GENERATED_LENGTH = 1000000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 5;
+    private static final String[] FILLERS = {"2019年", "3个", "80KG", "iPhone", "T450", "，", "。", "、", " ", "十二万", "第一"};
+
+    public static void main(String[] args) throws IOException {
+        Dictionary.initial(DefaultConfig.getInstance());
+        String text = args.length > 0 ? new String(Files.readAllBytes(Paths.get(args[0])), StandardCharsets.UTF_8) : generate();
+        run("细粒度", text, false);
+        run("智能", text, true);
+    }
+
+    private static void run(String name, String text, boolean useSmart) throws IOException {
+        IKSegmenter segmenter = new IKSegmenter(new StringReader(""), useSmart);
+        long tokens = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            tokens = segment(segmenter, text);
+        }
+        long begin = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            segment(segmenter, text);
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9 / ROUNDS;
+        System.out.println(name + "模式：" + text.length() + "字，" + tokens + "个词元，每轮" + (long) (seconds * 1000) + "ms，"
+                + String.format("%.2f", text.length() / seconds / 1e6) + "百万字/秒");
+    }
+
+    private static long segment(IKSegmenter segmenter, String text) throws IOException {
+        segmenter.reset(new StringReader(text));
+        long tokens = 0;
+        while (segmenter.next() != null) {
+            tokens++;
+        }
+        return tokens;
+    }
+
+    /**
+     * 以主词典词条随机拼接生成文本
+     */
+    private static String generate() throws IOException {
+        List<String> words = new ArrayList<String>();
+        String mainDictionary = DefaultConfig.getInstance().getMainDictionary();
+        InputStream is = SegmenterBenchmark.class.getClassLoader().getResourceAsStream(mainDictionary);
+        if (is != null) {
+            BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8), 512);
+            try {
+                String word;
+                while ((word = br.readLine()) != null) {
+                    word = word.trim();
+                    if (!word.isEmpty()) {
+                        words.add(word);
+                    }
+                }
+            } finally {
+                br.close();
+            }
+        }
+        if (words.isEmpty()) {
+            throw new IllegalStateException("找不到主词典：" + mainDictionary);
+        }
+        Random random = new Random(20121212L);
+        StringBuilder sb = new StringBuilder(GENERATED_LENGTH + 16);
+        while (sb.length() < GENERATED_LENGTH) {
+            if (random.nextInt(8) == 0) {
+                sb.append(FILLERS[random.nextInt(FILLERS.length)]);
+            } else {
+                sb.append(words.get(random.nextInt(words.size())));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,228 @@
+package org.wltea.analyzer.test;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.TokenizerFactory;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.util.FilesystemResourceLoader;
+import org.apache.lucene.util.ResourceLoader;
+import org.apache.lucene.util.ResourceLoaderAware;
+import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.cfg.DefaultConfig;
+import org.wltea.analyzer.dic.Dictionary;
+import org.wltea.analyzer.solr.IKTokenizerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.lang.ref.WeakReference;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 共享词典测试
+ * 建立三个core配置目录：a、b的配置及扩展词典完全相同，c的扩展词典不同。
+ * 验证a、b共用同一个词典实例，c单独加载，各core按各自的扩展词分词；并发加载相同的词典只加载一次；
+ * 引用全部释放后词典从共享词典中移除，再次加载得到新的实例，远程词典的监控任务也随之停止；
+ * 未调用close的工厂被垃圾回收后同样释放词典，监控任务随之停止。
+ */
+public class SharedDictionaryTest {
+
+    private static final String CONF = "ik.xml";
+
+    public static void main(String[] args) throws Exception {
+        Path root = Files.createTempDirectory("ik-cores");
+        Path a = createCore(root, "a", "测试新词语", null);
+        Path b = createCore(root, "b", "测试新词语", null);
+        Path c = createCore(root, "c", "别的新词", null);
+
+        IKTokenizerFactory factoryA = createFactory(a);
+        IKTokenizerFactory factoryB = createFactory(b);
+        IKTokenizerFactory factoryC = createFactory(c);
+        Dictionary dictionaryA = Dictionary.shared(loadConfig(a), loader(a));
+        Dictionary dictionaryB = Dictionary.shared(loadConfig(b), loader(b));
+        Dictionary dictionaryC = Dictionary.shared(loadConfig(c), loader(c));
+        check(dictionaryA == dictionaryB, "配置相同的core应共用同一个词典");
+        check(dictionaryA != dictionaryC, "扩展词典不同的core应使用各自的词典");
+
+        String text = "他说测试新词语和别的新词都很好";
+        String tokensA = tokens(factoryA, text);
+        String tokensC = tokens(factoryC, text);
+        System.out.println("a：" + tokensA);
+        System.out.println("c：" + tokensC);
+        check(tokensA.contains("|测试新词语|") && !tokensA.contains("|别的新词|"), "a应按自己的扩展词分词");
+        check(tokensC.contains("|别的新词|") && !tokensC.contains("|测试新词语|"), "c应按自己的扩展词分词");
+        check(tokensA.equals(tokens(factoryB, text)), "a、b的分词结果应相同");
+
+        //引用未全部释放时仍共用同一个词典
+        Dictionary.release(dictionaryA);
+        Dictionary.release(dictionaryB);
+        factoryA.close();
+        check(Dictionary.shared(loadConfig(a), loader(a)) == dictionaryB, "b仍在使用时应返回同一个词典");
+        Dictionary.release(dictionaryB);
+        factoryB.close();
+        Dictionary reloaded = Dictionary.shared(loadConfig(a), loader(a));
+        check(reloaded != dictionaryA, "引用全部释放后应重新加载词典");
+        Dictionary.release(reloaded);
+        Dictionary.release(dictionaryC);
+        factoryC.close();
+
+        checkConcurrentLoad(createCore(root, "d", "并发新词", null));
+        checkMonitorCancelled(root, false);
+        checkMonitorCancelled(root, true);
+        System.out.println("共享词典验证通过");
+    }
+
+    /**
+     * 多个线程同时加载相同的词典，只加载一次，得到同一个实例
+     */
+    private static void checkConcurrentLoad(Path core) throws Exception {
+        List<CompletableFuture<Dictionary>> futures = new ArrayList<CompletableFuture<Dictionary>>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return Dictionary.shared(loadConfig(core), loader(core));
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+        Dictionary first = futures.get(0).join();
+        for (CompletableFuture<Dictionary> future : futures) {
+            check(future.join() == first, "并发加载相同的词典应得到同一个实例");
+            Dictionary.release(first);
+        }
+    }
+
+    /**
+     * 引用全部释放后远程词典的监控任务取消，不再请求词库服务
+     * @param dropFactory true时经工厂取得词典，不调用close，丢弃工厂后由垃圾回收释放；false时直接释放词典
+     */
+    private static void checkMonitorCancelled(Path root, boolean dropFactory) throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/words.dic", exchange -> {
+            requests.incrementAndGet();
+            byte[] bytes = "远程新词\n".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(bytes);
+            }
+            exchange.close();
+        });
+        server.start();
+        try {
+            String location = "http://127.0.0.1:" + server.getAddress().getPort() + "/words.dic";
+            Path core = createCore(root, dropFactory ? "remote-factory" : "remote", "远程测试", location);
+            Dictionary dictionary = null;
+            WeakReference<IKTokenizerFactory> factory = null;
+            if (dropFactory) {
+                factory = new WeakReference<IKTokenizerFactory>(createFactory(core));
+            } else {
+                dictionary = Dictionary.shared(loadConfig(core), loader(core));
+            }
+            //监控任务在10秒后首次执行，之后每秒刷新一次
+            long deadline = System.currentTimeMillis() + 30000;
+            while (requests.get() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+            check(requests.get() >= 2, "远程词典监控未运行");
+            if (dropFactory) {
+                check(tokens(factory.get(), "他说远程新词").contains("|远程新词|"), "远程词条应已加入词典");
+                //不调用close，工厂不再被引用后由垃圾回收释放词典
+                deadline = System.currentTimeMillis() + 10000;
+                while (factory.get() != null && System.currentTimeMillis() < deadline) {
+                    System.gc();
+                    Thread.sleep(100);
+                }
+                check(factory.get() == null, "工厂未被垃圾回收");
+            } else {
+                check(dictionary.matchInMainDict("远程新词".toCharArray()).isMatch(), "远程词条应已加入词典");
+                Dictionary.release(dictionary);
+            }
+            //等待正在进行的请求结束
+            Thread.sleep(500);
+            int count = requests.get();
+            Thread.sleep(3000);
+            System.out.println((dropFactory ? "回收工厂" : "释放词典") + "前远程词库请求次数：" + count
+                    + "，之后3秒内：" + (requests.get() - count));
+            check(requests.get() == count, "词典释放后监控任务应停止");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static Path createCore(Path root, String name, String extWord, String remoteLocation) throws IOException {
+        Path core = Files.createDirectories(root.resolve(name));
+        StringBuilder conf = new StringBuilder();
+        conf.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<!DOCTYPE properties SYSTEM \"http://java.sun.com/dtd/properties.dtd\">\n")
+                .append("<properties>\n")
+                .append("    <entry key=\"ext_dict\">core_ext.dic;</entry>\n")
+                .append("    <entry key=\"ext_stopwords\">stopword.dic;</entry>\n");
+        if (remoteLocation != null) {
+            conf.append("    <entry key=\"enable_remote_dict\">true</entry>\n")
+                    .append("    <entry key=\"remote_ext_dict\">").append(remoteLocation).append("</entry>\n")
+                    .append("    <entry key=\"remote_ext_dict_refresh_interval\">1</entry>\n");
+        }
+        conf.append("</properties>\n");
+        Files.write(core.resolve(CONF), conf.toString().getBytes(StandardCharsets.UTF_8));
+        Files.write(core.resolve("core_ext.dic"), (extWord + "\n").getBytes(StandardCharsets.UTF_8));
+        return core;
+    }
+
+    /**
+     * 与Solr的资源加载器一致，先从core的配置目录查找，再从类路径查找
+     */
+    private static ResourceLoader loader(Path core) {
+        return new FilesystemResourceLoader(core, SharedDictionaryTest.class.getClassLoader());
+    }
+
+    private static Configuration loadConfig(Path core) throws IOException {
+        try (InputStream inputStream = loader(core).openResource(CONF)) {
+            return DefaultConfig.load(inputStream);
+        }
+    }
+
+    private static IKTokenizerFactory createFactory(Path core) throws IOException {
+        Map<String, String> args = new HashMap<String, String>();
+        args.put("conf", CONF);
+        args.put("useSmart", "true");
+        IKTokenizerFactory factory = (IKTokenizerFactory) TokenizerFactory.forName(IKTokenizerFactory.NAME, args);
+        ((ResourceLoaderAware) factory).inform(loader(core));
+        return factory;
+    }
+
+    private static String tokens(IKTokenizerFactory factory, String text) throws IOException {
+        StringBuilder builder = new StringBuilder("|");
+        Tokenizer tokenizer = factory.create();
+        try {
+            tokenizer.setReader(new StringReader(text));
+            CharTermAttribute term = tokenizer.addAttribute(CharTermAttribute.class);
+            tokenizer.reset();
+            while (tokenizer.incrementToken()) {
+                builder.append(term).append('|');
+            }
+            tokenizer.end();
+        } finally {
+            tokenizer.close();
+        }
+        return builder.toString();
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.wltea.analyzer.test;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionLengthAttribute;
+import org.wltea.analyzer.cfg.DefaultConfig;
+import org.wltea.analyzer.dic.Dictionary;
+import org.wltea.analyzer.lucene.IKAnalyzer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 词元图输出的位置验证
+ * 以IKAnalyzer(useSmart, true)分词，由位置增量及位置跨度算出每个词元的起止节点，核对词元的起止位置都落在正确的节点上：
+ * 同一文本位置只对应一个节点，节点随文本位置递增；相邻的两个起止位置之间有词元覆盖时，节点编号相差1，
+ * 否则两者分属前后两组词元，共用同一个节点。细粒度、智能切分分别验证，并核对一句的完整输出。
+ */
+public class TokenGraphPositionTest {
+
+    private static final String[] TEXTS = {
+            "中华人民共和国成立了",
+            "关于曹家沟道路规则调整的批复",
+            "我们是中国人",
+            "政治传记T450 SKU-112 80KG 365天 八小时 联想2000",
+            "今天的天气预报说北京明天有小到中雨，气温在二十三摄氏度左右。"
+    };
+
+    public static void main(String[] args) throws IOException {
+        Dictionary.initial(DefaultConfig.getInstance());
+        Analyzer maxWord = new IKAnalyzer(false, true);
+        Analyzer smart = new IKAnalyzer(true, true);
+        for (String text : TEXTS) {
+            checkNodes(maxWord, text);
+            checkNodes(smart, text);
+        }
+        //中华(0-2)、华人(1-3)、人民(2-4)依次错开一个节点；只作为华人结束位置的节点3没有词元连出
+        String expected = "中华人民共和国@0+6 中华人民@0+4 中华@0+2 华人@1+2 人民共和国@2+4 人民@2+2 共和国@4+2 "
+                + "共和@4+1 国@5+1 成立@6+2 立了@7+2";
+        String actual = format("中华人民共和国成立了", tokens(maxWord, "中华人民共和国成立了"));
+        if (!expected.equals(actual)) {
+            throw new IllegalStateException("词元图位置不符：" + actual + "，应为：" + expected);
+        }
+        System.out.println("词元图位置验证通过");
+    }
+
+    /**
+     * 核对词元的起止位置落在正确的节点上
+     */
+    private static void checkNodes(Analyzer analyzer, String text) throws IOException {
+        List<int[]> tokens = tokens(analyzer, text);
+        System.out.println(text + "：" + format(text, tokens));
+        //文本位置 ---> 节点
+        TreeMap<Integer, Integer> nodes = new TreeMap<Integer, Integer>();
+        int lastPosition = -1;
+        for (int[] token : tokens) {
+            if (token[2] < lastPosition) {
+                throw new IllegalStateException(text + "：位置增量为负");
+            }
+            lastPosition = token[2];
+            if (token[3] < 1) {
+                throw new IllegalStateException(text + "：位置跨度小于1");
+            }
+            putNode(nodes, text, token[0], token[2]);
+            putNode(nodes, text, token[1], token[2] + token[3]);
+        }
+        Map.Entry<Integer, Integer> previous = null;
+        for (Map.Entry<Integer, Integer> entry : nodes.entrySet()) {
+            if (previous != null) {
+                int expectedStep = covered(tokens, previous.getKey(), entry.getKey()) ? 1 : 0;
+                if (entry.getValue() - previous.getValue() != expectedStep) {
+                    throw new IllegalStateException(text + "：文本位置" + previous.getKey() + "、" + entry.getKey()
+                            + "对应的节点" + previous.getValue() + "、" + entry.getValue() + "应相差" + expectedStep);
+                }
+            }
+            previous = entry;
+        }
+    }
+
+    private static void putNode(Map<Integer, Integer> nodes, String text, int offset, int node) {
+        Integer existing = nodes.put(offset, node);
+        if (existing != null && existing != node) {
+            throw new IllegalStateException(text + "：文本位置" + offset + "对应了节点" + existing + "及" + node);
+        }
+    }
+
+    /**
+     * 是否有词元覆盖文本位置begin至end
+     */
+    private static boolean covered(List<int[]> tokens, int begin, int end) {
+        for (int[] token : tokens) {
+            if (token[0] <= begin && token[1] >= end) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 分词，每个词元依次为：起始偏移、结束偏移、起始节点、位置跨度
+     */
+    private static List<int[]> tokens(Analyzer analyzer, String text) throws IOException {
+        List<int[]> tokens = new ArrayList<int[]>();
+        TokenStream ts = analyzer.tokenStream("f", text);
+        try {
+            OffsetAttribute offset = ts.addAttribute(OffsetAttribute.class);
+            PositionIncrementAttribute posIncr = ts.addAttribute(PositionIncrementAttribute.class);
+            PositionLengthAttribute posLength = ts.addAttribute(PositionLengthAttribute.class);
+            ts.reset();
+            int position = -1;
+            while (ts.incrementToken()) {
+                position += posIncr.getPositionIncrement();
+                tokens.add(new int[]{offset.startOffset(), offset.endOffset(), position, posLength.getPositionLength()});
+            }
+            ts.end();
+        } finally {
+            ts.close();
+        }
+        for (int[] token : tokens) {
+            if (token[0] >= token[1]) {
+                throw new IllegalStateException(text + "：词元偏移有误");
+            }
+        }
+        return tokens;
+    }
+
+    private static String format(String text, List<int[]> tokens) {
+        StringBuilder builder = new StringBuilder();
+        for (int[] token : tokens) {
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append(text, token[0], token[1]).append('@').append(token[2]).append('+').append(token[3]);
+        }
+        return builder.toString();
+    }
+}